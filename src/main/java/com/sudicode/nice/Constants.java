@@ -1,6 +1,11 @@
 package com.sudicode.nice;
 
+import org.apache.commons.lang3.EnumUtils;
 import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.math.NumberUtils;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
 
 /**
  * Constant values and strings.
@@ -13,6 +18,36 @@ public class Constants {
     public static final String DB_USER = StringUtils.defaultString(System.getenv("DB_USER"), "root");
     public static final String DB_PW = System.getenv("DB_PW");
     public static final String DB_SERVER = StringUtils.defaultString(System.getenv("DB_SERVER"), "localhost");
+    public static final int DB_POOL_MAX_SIZE = NumberUtils.toInt(System.getenv("DB_POOL_MAX_SIZE"), 10);
+    public static final int DB_POOL_MIN_IDLE = NumberUtils.toInt(System.getenv("DB_POOL_MIN_IDLE"), 2);
+    public static final long DB_POOL_IDLE_TIMEOUT_MS = NumberUtils.toLong(System.getenv("DB_POOL_IDLE_TIMEOUT_MS"), 600_000);
+    public static final long DB_POOL_LEAK_DETECTION_MS = NumberUtils.toLong(System.getenv("DB_POOL_LEAK_DETECTION_MS"), 60_000);
+    public static final long DB_POOL_CONNECTION_TIMEOUT_MS = NumberUtils.toLong(System.getenv("DB_POOL_CONNECTION_TIMEOUT_MS"), 10_000);
+    public static final int WORKER_THREADS = NumberUtils.toInt(System.getenv("WORKER_THREADS"), 4);
+    public static final int WORKER_QUEUE_CAPACITY = NumberUtils.toInt(System.getenv("WORKER_QUEUE_CAPACITY"), 32);
+    public static final boolean VIRTUAL_THREADS = Boolean.parseBoolean(System.getenv("VIRTUAL_THREADS"));
+    public static final int VIRTUAL_DB_PERMITS = NumberUtils.toInt(System.getenv("VIRTUAL_DB_PERMITS"), Math.max(1, DB_POOL_MAX_SIZE / 2));
+    public static final Path JOURNAL_PATH = System.getenv("JOURNAL_PATH") != null
+            ? Paths.get(System.getenv("JOURNAL_PATH"))
+            : Paths.get(System.getProperty("user.home"), ".nice", "attendance.journal");
+    public static final int JOURNAL_CAPACITY = NumberUtils.toInt(System.getenv("JOURNAL_CAPACITY"), 32_768);
+    public static final int STUDENT_CACHE_SIZE = NumberUtils.toInt(System.getenv("STUDENT_CACHE_SIZE"), 50_000);
+    public static final long STUDENT_CACHE_TTL_MS = NumberUtils.toLong(System.getenv("STUDENT_CACHE_TTL_MS"), 600_000);
+    public static final long STUDENT_CACHE_NEGATIVE_TTL_MS = 30_000;
+    public static final int ROSTER_PAGE_SIZE = NumberUtils.toInt(System.getenv("ROSTER_PAGE_SIZE"), 100);
+    public static final long ROSTER_INDEX_TTL_MS = NumberUtils.toLong(System.getenv("ROSTER_INDEX_TTL_MS"), 60_000);
+    public static final int ROSTER_MAX_PAGES = Math.max(4, NumberUtils.toInt(System.getenv("ROSTER_MAX_PAGES"), 10));
+    public static final int SESSION_LEAD_MINUTES = NumberUtils.toInt(System.getenv("SESSION_LEAD_MINUTES"), 15);
+    public static final long SCHEDULE_INDEX_TTL_MS = NumberUtils.toLong(System.getenv("SCHEDULE_INDEX_TTL_MS"), 60_000);
+    public static final long TAP_DEDUPE_WINDOW_MS = NumberUtils.toLong(System.getenv("TAP_DEDUPE_WINDOW_MS"), 60_000);
+    public static final int TAP_QUEUE_CAPACITY = NumberUtils.toInt(System.getenv("TAP_QUEUE_CAPACITY"), 256);
+    public static final TapPipeline.Backpressure TAP_BACKPRESSURE = EnumUtils.isValidEnum(TapPipeline.Backpressure.class, System.getenv("TAP_BACKPRESSURE"))
+            ? TapPipeline.Backpressure.valueOf(System.getenv("TAP_BACKPRESSURE"))
+            : TapPipeline.Backpressure.BLOCK;
+    public static final long METRICS_LOG_INTERVAL_MS = NumberUtils.toLong(System.getenv("METRICS_LOG_INTERVAL_MS"), 300_000);
+    public static final long SHUTDOWN_TIMEOUT_MS = 5_000;
+    public static final long CARD_MONITOR_TIMEOUT_MS = 1_000;
+    public static final long READER_RETRY_MS = 1_000;
     public static final int PLACEHOLDER_SIZE = 24;
     public static final String ICON_URL = Constants.class.getResource("wit.png").toExternalForm();
     public static final String STYLESHEET_URL = Constants.class.getResource("bootstrap3.css").toExternalForm();
@@ -0,0 +1,140 @@
+package com.sudicode.nice;
+
+import com.sudicode.nice.collect.LongLongHashMap;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Drops repeated taps of the same card for the same course within a time window, such as when a student taps twice
+ * or holds their card over two readers. The window starts at the accepted tap; repeats inside it do not extend it.
+ * A window whose tap could not be recorded is released, so that the student can tap again straight away.
+ * <p>
+ * This class is thread-safe.
+ */
+public class TapDeduplicator {
+
+    private static final int MIN_PURGE_THRESHOLD = 1024;
+
+    private final long windowNanos;
+    private final Map<Integer, LongLongHashMap> expiries = new HashMap<>();
+    private int trackedCount;
+    private int purgeThreshold = MIN_PURGE_THRESHOLD;
+    private long acceptedCount;
+    private long suppressedCount;
+
+    /**
+     * Construct a new {@link TapDeduplicator}.
+     *
+     * @param window Length of the window
+     * @param unit   Unit of <code>window</code>
+     */
+    public TapDeduplicator(long window, TimeUnit unit) {
+        this.windowNanos = unit.toNanos(window);
+    }
+
+    /**
+     * Decide whether a tap should be processed.
+     *
+     * @param uid The card's UID
+     * @param crn Course registration number
+     * @return <code>true</code> if the tap is not a repeat, in which case it opens a new window
+     */
+    public boolean accept(long uid, int crn) {
+        return accept(uid, crn, System.nanoTime());
+    }
+
+    /**
+     * Decide whether a tap should be processed.
+     *
+     * @param uid      The card's UID
+     * @param crn      Course registration number
+     * @param nanoTime Time of the tap, as in {@link System#nanoTime()}
+     * @return <code>true</code> if the tap is not a repeat, in which case it opens a new window
+     */
+    public synchronized boolean accept(long uid, int crn, long nanoTime) {
+        LongLongHashMap course = expiries.computeIfAbsent(crn, k -> new LongLongHashMap());
+        boolean tracked = course.containsKey(uid);
+        if (tracked && nanoTime - course.get(uid, 0) < 0) {
+            suppressedCount++;
+            return false;
+        }
+        course.put(uid, nanoTime + windowNanos);
+        acceptedCount++;
+        if (!tracked) {
+            trackedCount++;
+        }
+
+        // Keep the tables small by purging expired windows once they have doubled since the last purge.
+        if (trackedCount >= purgeThreshold) {
+            purge(nanoTime);
+            purgeThreshold = Math.max(MIN_PURGE_THRESHOLD, trackedCount * 2);
+        }
+        return true;
+    }
+
+    /**
+     * Close the window opened by an accepted tap, such as when its attendance could not be recorded, so that the next
+     * tap of the card for the course is accepted.
+     *
+     * @param uid The card's UID
+     * @param crn Course registration number
+     */
+    public void release(long uid, int crn) {
+        release(uid, crn, System.nanoTime());
+    }
+
+    /**
+     * Close the window opened by an accepted tap.
+     *
+     * @param uid      The card's UID
+     * @param crn      Course registration number
+     * @param nanoTime Current time, as in {@link System#nanoTime()}
+     */
+    public synchronized void release(long uid, int crn, long nanoTime) {
+        LongLongHashMap course = expiries.get(crn);
+        if (course != null && course.containsKey(uid)) {
+            course.put(uid, nanoTime);
+        }
+    }
+
+    /**
+     * Remove expired windows, and the tables of courses which have none left.
+     *
+     * @param nanoTime Current time, as in {@link System#nanoTime()}
+     */
+    private void purge(long nanoTime) {
+        Iterator<LongLongHashMap> it = expiries.values().iterator();
+        while (it.hasNext()) {
+            LongLongHashMap course = it.next();
+            trackedCount -= course.removeIf((uid, expiry) -> nanoTime - expiry >= 0);
+            if (course.size() == 0) {
+                it.remove();
+            }
+        }
+    }
+
+    /**
+     * @return Number of taps accepted
+     */
+    public synchronized long getAcceptedCount() {
+        return acceptedCount;
+    }
+
+    /**
+     * @return Number of taps dropped as repeats
+     */
+    public synchronized long getSuppressedCount() {
+        return suppressedCount;
+    }
+
+    /**
+     * @return Number of windows currently tracked, including expired windows which have not been purged yet
+     */
+    public synchronized int getTrackedCount() {
+        return trackedCount;
+    }
+
+}
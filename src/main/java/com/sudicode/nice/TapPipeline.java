@@ -0,0 +1,290 @@
+package com.sudicode.nice;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.sudicode.nice.TapProcessor.Outcome;
+import com.sudicode.nice.TapProcessor.Result;
+import com.sudicode.nice.collect.SpscRingBuffer;
+import com.sudicode.nice.database.Course;
+import com.sudicode.nice.hardware.ReaderManager;
+import com.sudicode.nice.hardware.Tap;
+import com.sudicode.nice.metrics.TapMetrics;
+import com.sudicode.nice.metrics.TapMetrics.Stage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.sql.DataSource;
+import java.io.Closeable;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Processes taps in four stages, each on its own thread, so that a slow stage holds up only the taps behind it:
+ * <ol>
+ * <li>The reader stage takes taps from the {@link ReaderManager} and hands taps claimed by a dialog to it.</li>
+ * <li>The resolve stage looks up the student, routes the tap to a course and drops repeats.</li>
+ * <li>The persist stage records the attendance of accepted taps, and passes the others on.</li>
+ * <li>The user interface stage hands the outcome of each tap to the {@link Handler}.</li>
+ * </ol>
+ * The stages are joined by bounded {@link SpscRingBuffer SpscRingBuffers}. When the queue of the resolve stage is full,
+ * the reader stage applies the {@link Backpressure} policy; the later stages always wait for space, so that no
+ * accepted tap is lost. The depth of each queue is published as a gauge in {@link TapMetrics}, along with the number
+ * of taps dropped, and the time each tap spends in each stage is recorded there too.
+ */
+public class TapPipeline implements Closeable {
+
+    private static final Logger log = LoggerFactory.getLogger(TapPipeline.class);
+
+    /**
+     * What the reader stage does with a tap when the resolve stage's queue is full.
+     */
+    public enum Backpressure {
+        /**
+         * Wait for space. Taps queue up in the {@link ReaderManager} meanwhile.
+         */
+        BLOCK,
+        /**
+         * Drop the tap, and log it.
+         */
+        DROP
+    }
+
+    /**
+     * Receives the taps which leave the pipeline.
+     */
+    public interface Handler {
+
+        /**
+         * Offer a tap to whoever is waiting for a card, such as a dialog. Called from the reader stage.
+         *
+         * @param tap The {@link Tap}
+         * @return <code>true</code> if the tap was claimed, and should not be processed
+         */
+        boolean claim(Tap tap);
+
+        /**
+         * Called from the resolve stage.
+         *
+         * @return The selected {@link Course}, or <code>null</code> if none
+         */
+        Course getSelectedCourse();
+
+        /**
+         * Act on the outcome of a tap. Called from the user interface stage, which has a database connection.
+         *
+         * @param tap    The {@link Tap}
+         * @param result The {@link Result}
+         * @throws SQLException if a database access error occurs
+         */
+        void handle(Tap tap, Result result) throws SQLException;
+
+        /**
+         * Report a tap which could not be processed. Called from the stage which failed.
+         *
+         * @param tap The {@link Tap}
+         * @param e   The exception
+         */
+        void failed(Tap tap, Exception e);
+
+    }
+
+    private final ReaderManager readers;
+    private final TapProcessor processor;
+    private final Handler handler;
+    private final Backpressure backpressure;
+    private final SpscRingBuffer<Work> resolveQueue;
+    private final SpscRingBuffer<Work> persistQueue;
+    private final SpscRingBuffer<Work> handleQueue;
+    private final AtomicLong dropped = new AtomicLong();
+    private final DataSource dataSource;
+    private WorkerPool workers;
+    private Thread reader;
+
+    /**
+     * Construct a new {@link TapPipeline}.
+     *
+     * @param readers       The {@link ReaderManager} to take taps from
+     * @param processor     The {@link TapProcessor}
+     * @param dataSource    The {@link DataSource} which the resolve, persist and user interface stages borrow
+     *                      connections from. Each stage holds its connection until the pipeline is closed.
+     * @param handler       The {@link Handler}
+     * @param queueCapacity Number of taps which may wait for each stage
+     * @param backpressure  The {@link Backpressure} policy
+     */
+    public TapPipeline(ReaderManager readers, TapProcessor processor, DataSource dataSource, Handler handler,
+                       int queueCapacity, Backpressure backpressure) {
+        this.readers = readers;
+        this.processor = processor;
+        this.handler = handler;
+        this.backpressure = backpressure;
+        this.resolveQueue = new SpscRingBuffer<>(queueCapacity);
+        this.persistQueue = new SpscRingBuffer<>(queueCapacity);
+        this.handleQueue = new SpscRingBuffer<>(queueCapacity);
+        this.dataSource = dataSource;
+    }
+
+    /**
+     * Start every stage. The {@link ReaderManager} must be started separately.
+     */
+    public synchronized void start() {
+        if (reader != null) {
+            return;
+        }
+        TapMetrics.registerGauge("pipeline.resolve.depth", resolveQueue::size);
+        TapMetrics.registerGauge("pipeline.persist.depth", persistQueue::size);
+        TapMetrics.registerGauge("pipeline.handle.depth", handleQueue::size);
+        TapMetrics.registerGauge("pipeline.dropped", dropped::get);
+
+        workers = new WorkerPool("nice-tap", dataSource, 3, 1);
+        workers.submit(() -> runStage(resolveQueue, this::resolve));
+        workers.submit(() -> runStage(persistQueue, this::persist));
+        workers.submit(() -> runStage(handleQueue, this::handle));
+        reader = new ThreadFactoryBuilder().setNameFormat("nice-tap-reader").setDaemon(true).build().newThread(this::read);
+        reader.start();
+    }
+
+    /**
+     * @return Number of taps dropped because the resolve stage's queue was full
+     */
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+
+    /**
+     * @return Number of taps waiting for each stage: resolve, persist and user interface
+     */
+    public int[] getQueueDepths() {
+        return new int[]{resolveQueue.size(), persistQueue.size(), handleQueue.size()};
+    }
+
+    /**
+     * Stop every stage. Taps still in the pipeline are discarded; journaled attendances are not affected.
+     */
+    @Override
+    public synchronized void close() {
+        if (reader == null) {
+            return;
+        }
+        reader.interrupt();
+        workers.shutdown(Constants.SHUTDOWN_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+        TapMetrics.unregisterGauge("pipeline.resolve.depth");
+        TapMetrics.unregisterGauge("pipeline.persist.depth");
+        TapMetrics.unregisterGauge("pipeline.handle.depth");
+        TapMetrics.unregisterGauge("pipeline.dropped");
+        log.info("Tap pipeline closed ({} taps dropped).", dropped.get());
+    }
+
+    /**
+     * The reader stage.
+     */
+    private void read() {
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                Tap tap = readers.take();
+                TapMetrics.recordSince(Stage.QUEUE, tap.getTerminal(), tap.getReadNanos());
+                log.debug("Card tapped: {}", tap);
+                if (handler.claim(tap)) {
+                    continue;
+                }
+                Work work = new Work(tap);
+                if (backpressure == Backpressure.BLOCK) {
+                    resolveQueue.put(work);
+                } else if (!resolveQueue.offer(work)) {
+                    dropped.incrementAndGet();
+                    log.warn("Dropping {}: {} taps are waiting to be resolved.", tap, resolveQueue.size());
+                }
+            }
+        } catch (InterruptedException e) {
+            log.debug("Tap reader stopped.");
+        }
+    }
+
+    /**
+     * The resolve stage.
+     *
+     * @param work The {@link Work}
+     * @throws Exception if the tap could not be resolved
+     */
+    private void resolve(Work work) throws Exception {
+        work.result = processor.resolve(work.tap, handler.getSelectedCourse());
+        work.queuedNanos = TapMetrics.recordSince(Stage.RESOLVE, work.tap.getTerminal(), work.queuedNanos);
+        persistQueue.put(work);
+    }
+
+    /**
+     * The persist stage. Taps which were not accepted pass straight through, so that every queue has a single
+     * producer.
+     *
+     * @param work The {@link Work}
+     * @throws Exception if the attendance could not be recorded
+     */
+    private void persist(Work work) throws Exception {
+        if (work.result.getOutcome() == Outcome.ACCEPTED) {
+            work.result = processor.record(work.tap, work.result);
+            work.queuedNanos = TapMetrics.recordSince(Stage.PERSIST, work.tap.getTerminal(), work.queuedNanos);
+        } else {
+            work.queuedNanos = System.nanoTime();
+        }
+        handleQueue.put(work);
+    }
+
+    /**
+     * The user interface stage.
+     *
+     * @param work The {@link Work}
+     * @throws Exception if the handler failed
+     */
+    private void handle(Work work) throws Exception {
+        handler.handle(work.tap, work.result);
+        TapMetrics.recordSince(Stage.HANDLE, work.tap.getTerminal(), work.queuedNanos);
+    }
+
+    /**
+     * Run a stage until interrupted. A tap which fails is reported to the {@link Handler}, and the stage moves on.
+     *
+     * @param queue The stage's queue
+     * @param stage What the stage does with each tap
+     */
+    private void runStage(SpscRingBuffer<Work> queue, StageTask stage) {
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                Work work = queue.take();
+                try {
+                    stage.run(work);
+                } catch (InterruptedException e) {
+                    throw e;
+                } catch (Exception e) {
+                    log.warn("Could not process {}", work.tap, e);
+                    handler.failed(work.tap, e);
+                }
+            }
+        } catch (InterruptedException e) {
+            log.debug("Tap pipeline stage stopped.");
+        }
+    }
+
+    /**
+     * What a stage does with each tap.
+     */
+    @FunctionalInterface
+    private interface StageTask {
+        void run(Work work) throws Exception;
+    }
+
+    /**
+     * A tap on its way through the pipeline. Only the stage which holds it may touch it.
+     */
+    private static class Work {
+
+        private final Tap tap;
+        private Result result;
+        private long queuedNanos;
+
+        private Work(Tap tap) {
+            this.tap = tap;
+            this.queuedNanos = System.nanoTime();
+        }
+
+    }
+
+}
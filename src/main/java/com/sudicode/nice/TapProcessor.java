@@ -0,0 +1,303 @@
+package com.sudicode.nice;
+
+import com.sudicode.nice.database.AttendanceJournal;
+import com.sudicode.nice.database.Course;
+import com.sudicode.nice.database.RosterIndex;
+import com.sudicode.nice.database.ScheduleIndex;
+import com.sudicode.nice.database.Student;
+import com.sudicode.nice.database.StudentCache;
+import com.sudicode.nice.hardware.Tap;
+import com.sudicode.nice.hardware.UidCodec;
+import com.sudicode.nice.metrics.TapMetrics;
+import com.sudicode.nice.metrics.TapMetrics.Stage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+
+/**
+ * Turns a tapped card into an attendance: looks up the student, routes the tap to a course, drops repeats, and
+ * records the attendance. Taps which need the instructor, such as unregistered cards, are reported back to the
+ * caller. Uses the current thread's database connection, and does not depend on the user interface.
+ */
+public class TapProcessor {
+
+    private static final Logger log = LoggerFactory.getLogger(TapProcessor.class);
+
+    /**
+     * What became of a tap.
+     */
+    public enum Outcome {
+        /**
+         * The tap was accepted by {@link #resolve(Tap, Course)}, and its attendance is yet to be recorded by
+         * {@link #record(Tap, Result)}.
+         */
+        ACCEPTED,
+        /**
+         * The attendance was journaled, and will be written to the database in the background.
+         */
+        JOURNALED,
+        /**
+         * The attendance was written to the database.
+         */
+        ATTENDED,
+        /**
+         * The student's attendance was already recorded a moment ago.
+         */
+        REPEATED,
+        /**
+         * The student is not enrolled in the course.
+         */
+        NOT_ENROLLED,
+        /**
+         * No student has the card.
+         */
+        UNREGISTERED,
+        /**
+         * No course is selected or in session.
+         */
+        NO_COURSE
+    }
+
+    /**
+     * Result of processing a tap.
+     */
+    public static class Result {
+
+        private final Outcome outcome;
+        private final Student student;
+        private final Course course;
+
+        Result(Outcome outcome, Student student, Course course) {
+            this.outcome = outcome;
+            this.student = student;
+            this.course = course;
+        }
+
+        /**
+         * @return What became of the tap
+         */
+        public Outcome getOutcome() {
+            return outcome;
+        }
+
+        /**
+         * @return The {@link Student}, or <code>null</code> if the card is unregistered
+         */
+        public Student getStudent() {
+            return student;
+        }
+
+        /**
+         * @return The {@link Course} the tap was routed to, or <code>null</code> if none
+         */
+        public Course getCourse() {
+            return course;
+        }
+
+    }
+
+    private final AttendanceJournal journal;
+    private final TapDeduplicator deduplicator;
+
+    /**
+     * Construct a new {@link TapProcessor}.
+     *
+     * @param journal      The {@link AttendanceJournal}, or <code>null</code> to write attendances directly
+     * @param deduplicator The {@link TapDeduplicator}
+     */
+    public TapProcessor(AttendanceJournal journal, TapDeduplicator deduplicator) {
+        this.journal = journal;
+        this.deduplicator = deduplicator;
+    }
+
+    /**
+     * Process a tap. It is routed to the selected course or, if no course is selected, to the course in session.
+     *
+     * @param uid      The card's UID
+     * @param selected The selected {@link Course}, or <code>null</code>
+     * @return The {@link Result}
+     * @throws SQLException if a database access error occurs
+     */
+    public Result process(long uid, Course selected) throws SQLException {
+        return process(uid, null, System.nanoTime(), selected);
+    }
+
+    /**
+     * Process a tap read from a terminal. The latency of each stage is recorded in {@link TapMetrics} for the
+     * terminal, and the total from the card being detected.
+     *
+     * @param tap      The {@link Tap}
+     * @param selected The selected {@link Course}, or <code>null</code>
+     * @return The {@link Result}
+     * @throws SQLException if a database access error occurs
+     * @see #process(long, Course)
+     */
+    public Result process(Tap tap, Course selected) throws SQLException {
+        return process(tap.getUid(), tap.getTerminal(), tap.getDetectedNanos(), selected);
+    }
+
+    /**
+     * First half of {@link #process(Tap, Course)}: look up the student, route the tap to a course and drop repeats,
+     * without recording the attendance.
+     *
+     * @param tap      The {@link Tap}
+     * @param selected The selected {@link Course}, or <code>null</code>
+     * @return The {@link Result}, which is {@link Outcome#ACCEPTED} if the attendance should be recorded
+     * @throws SQLException if a database access error occurs
+     */
+    public Result resolve(Tap tap, Course selected) throws SQLException {
+        return resolve(tap.getUid(), tap.getTerminal(), selected);
+    }
+
+    /**
+     * Second half of {@link #process(Tap, Course)}: record the attendance of a tap accepted by
+     * {@link #resolve(Tap, Course)}.
+     *
+     * @param tap      The {@link Tap}
+     * @param accepted The {@link Result} of resolving the tap
+     * @return The {@link Result}
+     * @throws SQLException             if a database access error occurs
+     * @throws IllegalArgumentException if the tap was not {@link Outcome#ACCEPTED}
+     */
+    public Result record(Tap tap, Result accepted) throws SQLException {
+        return record(tap.getUid(), tap.getTerminal(), tap.getDetectedNanos(), accepted);
+    }
+
+    /**
+     * @param uid           The card's UID
+     * @param terminal      Name of the terminal, or <code>null</code> if unknown
+     * @param detectedNanos When the card was detected, as in {@link System#nanoTime()}
+     * @param selected      The selected {@link Course}, or <code>null</code>
+     * @return The {@link Result}
+     * @throws SQLException if a database access error occurs
+     */
+    private Result process(long uid, String terminal, long detectedNanos, Course selected) throws SQLException {
+        Result result = resolve(uid, terminal, selected);
+        return result.getOutcome() == Outcome.ACCEPTED ? record(uid, terminal, detectedNanos, result) : result;
+    }
+
+    /**
+     * @param uid      The card's UID
+     * @param terminal Name of the terminal, or <code>null</code> if unknown
+     * @param selected The selected {@link Course}, or <code>null</code>
+     * @return The {@link Result}
+     * @throws SQLException if a database access error occurs
+     */
+    private Result resolve(long uid, String terminal, Course selected) throws SQLException {
+        long start = System.nanoTime();
+        Student student = StudentCache.get(uid);
+        if (student == null) {
+            warnIfTruncated(uid);
+        }
+        start = TapMetrics.recordSince(Stage.LOOKUP, terminal, start);
+        Course course = selected != null ? selected : findCourseInSession(student);
+        if (course == null) {
+            return new Result(Outcome.NO_COURSE, student, null);
+        } else if (student == null) {
+            return new Result(Outcome.UNREGISTERED, null, course);
+        } else if (!RosterIndex.isEnrolled(course.getCrn(), student.getStudentId())) {
+            return new Result(Outcome.NOT_ENROLLED, student, course);
+        } else if (!deduplicator.accept(uid, course.getCrn())) {
+            return new Result(Outcome.REPEATED, student, course);
+        } else {
+            TapMetrics.recordSince(Stage.ROUTE, terminal, start);
+            return new Result(Outcome.ACCEPTED, student, course);
+        }
+    }
+
+    /**
+     * Warn if an unregistered card with a 7-byte UID was registered before such UIDs were supported, under only the
+     * first 4 bytes of its UID, so that an operator can move that student's history to the full UID.
+     *
+     * @param uid The card's UID
+     */
+    private static void warnIfTruncated(long uid) {
+        long truncated = UidCodec.truncatedId(uid);
+        if (truncated >= 0 && StudentCache.get(truncated) != null) {
+            log.warn("Card {} is not registered, but student {} was registered under its first 4 bytes; "
+                    + "their registrations and attendance should be moved to {}.", uid, truncated, uid);
+        }
+    }
+
+    /**
+     * Record the attendance of an accepted tap. If it cannot be recorded, the tap's dedupe window is released, so that
+     * the student can tap again.
+     *
+     * @param uid           The card's UID
+     * @param terminal      Name of the terminal, or <code>null</code> if unknown
+     * @param detectedNanos When the card was detected, as in {@link System#nanoTime()}
+     * @param accepted      The {@link Result} of resolving the tap
+     * @return The {@link Result}
+     * @throws SQLException if a database access error occurs
+     */
+    private Result record(long uid, String terminal, long detectedNanos, Result accepted) throws SQLException {
+        if (accepted.getOutcome() != Outcome.ACCEPTED) {
+            throw new IllegalArgumentException("Tap was not accepted: " + accepted.getOutcome());
+        }
+        long start = System.nanoTime();
+        Outcome outcome;
+        try {
+            outcome = recordAttendance(accepted.getStudent(), accepted.getCourse());
+        } catch (SQLException | RuntimeException e) {
+            deduplicator.release(uid, accepted.getCourse().getCrn());
+            throw e;
+        }
+        TapMetrics.recordSince(Stage.ATTEND, terminal, start);
+        TapMetrics.recordSince(Stage.TOTAL, terminal, detectedNanos);
+        return new Result(outcome, accepted.getStudent(), accepted.getCourse());
+    }
+
+    /**
+     * @return The {@link TapDeduplicator}
+     */
+    public TapDeduplicator getDeduplicator() {
+        return deduplicator;
+    }
+
+    /**
+     * Find the course in session right now. When several are, such as back-to-back sections sharing a room, the one
+     * the student is enrolled in is chosen.
+     *
+     * @param student The {@link Student}, or <code>null</code> if the card is not registered
+     * @return The {@link Course}, or <code>null</code> if no course, or more than one course, is a match
+     */
+    private Course findCourseInSession(Student student) {
+        ScheduleIndex index = ScheduleIndex.get();
+        int[] crns = index.inSession(LocalDateTime.now());
+        if (student != null) {
+            for (int crn : crns) {
+                if (RosterIndex.isEnrolled(crn, student.getStudentId())) {
+                    return index.getCourse(crn);
+                }
+            }
+        }
+        return crns.length == 1 ? index.getCourse(crns[0]) : null;
+    }
+
+    /**
+     * Mark a student as present. The attendance is journaled to local disk and replayed into the database in the
+     * background, so a slow database does not hold up the next tap. If the journal is unavailable, the attendance is
+     * written to the database directly.
+     *
+     * @param student The {@link Student}
+     * @param course  The {@link Course}
+     * @return {@link Outcome#JOURNALED} or {@link Outcome#ATTENDED}
+     * @throws SQLException if a database access error occurs
+     */
+    private Outcome recordAttendance(Student student, Course course) throws SQLException {
+        if (journal != null) {
+            try {
+                journal.append(student.getStudentId(), course.getCrn());
+                return Outcome.JOURNALED;
+            } catch (IOException e) {
+                log.warn("Could not journal attendance, writing it directly", e);
+            }
+        }
+        student.attend(course);
+        return Outcome.ATTENDED;
+    }
+
+}
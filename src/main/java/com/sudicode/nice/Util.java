@@ -1,10 +1,17 @@
 package com.sudicode.nice;
 
 import com.mysql.jdbc.Driver;
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
 import org.javalite.activejdbc.Base;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
 /**
  * Utility class.
  */
@@ -12,6 +19,16 @@ public class Util {
 
     private static final Logger log = LoggerFactory.getLogger(Util.class);
 
+    /**
+     * Number of connections which may be held for the life of the application: one for the user interface thread, and
+     * one for each of the three tap pipeline stages.
+     */
+    private static final int HELD_CONNECTIONS = 4;
+
+    private static HikariDataSource dataSource;
+    private static HikariDataSource heldDataSource;
+    private static WorkerPool workers;
+
     /**
      * Illegal.
      */
@@ -22,42 +39,166 @@ public class Util {
      * Run a task in the background. The background thread will have access to the database.
      *
      * @param task A {@link Runnable} containing the task to run
+     * @return A {@link Future} which may be used to cancel the task
+     * @throws RejectedExecutionException if too many tasks are already waiting to run
+     */
+    public static Future<?> submitBackgroundTask(Runnable task) {
+        return getWorkers().submit(task);
+    }
+
+    /**
+     * Get the background workers, creating them on first use. If virtual threads are enabled, each task runs on a
+     * virtual thread of its own, and at most {@link Constants#VIRTUAL_DB_PERMITS} of them hold a connection at once.
+     *
+     * @return The {@link WorkerPool}
      */
-    public static void submitBackgroundTask(Runnable task) {
-        Thread t = new Thread(() -> {
-            try {
-                openDbConnection();
-                task.run();
-            } finally {
-                closeDbConnection();
+    private static synchronized WorkerPool getWorkers() {
+        if (workers == null) {
+            if (useVirtualThreads()) {
+                workers = WorkerPool.perTask("nice-worker", getDataSource(), Constants.VIRTUAL_DB_PERMITS, Constants.WORKER_QUEUE_CAPACITY);
+                log.info("Running background tasks on virtual threads ({} may use the database at once).", Constants.VIRTUAL_DB_PERMITS);
+            } else {
+                workers = new WorkerPool("nice-worker", getDataSource(), Constants.WORKER_THREADS, Constants.WORKER_QUEUE_CAPACITY);
             }
-        });
-        t.setDaemon(true);
-        t.start();
+        }
+        return workers;
     }
 
     /**
-     * Opens a new connection and attaches it to the current thread.
+     * @return <code>true</code> if {@link Constants#VIRTUAL_THREADS} is set and the runtime supports virtual threads
+     */
+    public static boolean useVirtualThreads() {
+        if (Constants.VIRTUAL_THREADS && !VirtualThreads.isSupported()) {
+            log.warn("Virtual threads require Java 21 or later and the packaged jar; using platform threads.");
+            return false;
+        }
+        return Constants.VIRTUAL_THREADS;
+    }
+
+    /**
+     * Stop all background tasks, then release every database connection.
+     */
+    public static synchronized void shutdown() {
+        if (workers != null) {
+            if (!workers.shutdown(Constants.SHUTDOWN_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+                log.warn("Background tasks did not terminate within {} ms.", Constants.SHUTDOWN_TIMEOUT_MS);
+            }
+            workers = null;
+        }
+        if (Base.hasConnection()) {
+            closeDbConnection();
+        }
+        closeDataSource();
+    }
+
+    /**
+     * Borrows a connection from the pool and attaches it to the current thread.
      */
     public static void openDbConnection() {
-        Base.open(
-                Driver.class.getName(),
-                String.format("jdbc:mysql://%s/%s"
-                        + "?useUnicode=true"
-                        + "&nullNamePatternMatchesAll=true"
-                        + "&useSSL=false"
-                        + "&logger=com.mysql.jdbc.log.Slf4JLogger"
-                        + "&profileSQL=true", Constants.DB_SERVER, Constants.DB_NAME),
-                Constants.DB_USER,
-                Constants.DB_PW);
+        Base.open(getDataSource());
+    }
+
+    /**
+     * Attaches a connection to the current thread which it may hold for the life of the application, such as the user
+     * interface thread. The connection comes from a separate small pool without leak detection, so that holding it on
+     * purpose is not reported as a leak.
+     */
+    public static void openHeldDbConnection() {
+        Base.open(getHeldDataSource());
     }
 
     /**
-     * Closes connection and detaches it from current thread.
+     * Detaches the connection from the current thread and returns it to the pool.
      */
     public static void closeDbConnection() {
         Base.close();
-        log.info("Closed DB connection.");
+        log.debug("Returned DB connection to pool.");
+    }
+
+    /**
+     * Get the pooled {@link javax.sql.DataSource}, creating it on first use.
+     *
+     * @return The {@link HikariDataSource}
+     */
+    public static synchronized HikariDataSource getDataSource() {
+        if (dataSource == null) {
+            HikariConfig config = newConfig("nice-db");
+            config.setMaximumPoolSize(Constants.DB_POOL_MAX_SIZE);
+            config.setMinimumIdle(Math.min(Constants.DB_POOL_MIN_IDLE, Constants.DB_POOL_MAX_SIZE));
+            config.setLeakDetectionThreshold(Constants.DB_POOL_LEAK_DETECTION_MS);
+            dataSource = new HikariDataSource(config);
+            log.info("Created DB connection pool (min idle {}, max size {}).",
+                    config.getMinimumIdle(), config.getMaximumPoolSize());
+        }
+        return dataSource;
+    }
+
+    /**
+     * Get the pool of connections which are held for the life of the application, such as by the user interface thread
+     * and the tap pipeline stages, creating it on first use. It has no leak detection.
+     *
+     * @return The {@link HikariDataSource}
+     * @see #openHeldDbConnection()
+     */
+    public static synchronized HikariDataSource getHeldDataSource() {
+        if (heldDataSource == null) {
+            HikariConfig config = newConfig("nice-db-held");
+            config.setMaximumPoolSize(HELD_CONNECTIONS);
+            config.setMinimumIdle(0);
+            heldDataSource = new HikariDataSource(config);
+        }
+        return heldDataSource;
+    }
+
+    /**
+     * @param poolName Name of the pool
+     * @return Settings shared by every connection pool
+     */
+    private static HikariConfig newConfig(String poolName) {
+        HikariConfig config = new HikariConfig();
+        config.setPoolName(poolName);
+        config.setDriverClassName(Driver.class.getName());
+        config.setJdbcUrl(String.format("jdbc:mysql://%s/%s"
+                + "?useUnicode=true"
+                + "&nullNamePatternMatchesAll=true"
+                + "&useSSL=false"
+                + "&logger=com.mysql.jdbc.log.Slf4JLogger"
+                + "&profileSQL=true", Constants.DB_SERVER, Constants.DB_NAME));
+        config.setUsername(Constants.DB_USER);
+        config.setPassword(Constants.DB_PW);
+        config.setIdleTimeout(Constants.DB_POOL_IDLE_TIMEOUT_MS);
+        config.setConnectionTimeout(Constants.DB_POOL_CONNECTION_TIMEOUT_MS);
+        config.setRegisterMbeans(true);
+        config.addDataSourceProperty("cachePrepStmts", "true");
+        config.addDataSourceProperty("prepStmtCacheSize", "250");
+        config.addDataSourceProperty("prepStmtCacheSqlLimit", "2048");
+        return config;
+    }
+
+    /**
+     * Get the statistics of the connection pool, which are also published over JMX.
+     *
+     * @return The {@link HikariPoolMXBean}
+     */
+    public static HikariPoolMXBean getPoolStats() {
+        return getDataSource().getHikariPoolMXBean();
+    }
+
+    /**
+     * Closes the connection pools, along with every connection they hold.
+     */
+    public static synchronized void closeDataSource() {
+        if (heldDataSource != null) {
+            heldDataSource.close();
+            heldDataSource = null;
+        }
+        if (dataSource != null) {
+            HikariPoolMXBean stats = dataSource.getHikariPoolMXBean();
+            log.info("Closing DB connection pool (active {}, idle {}, total {}).",
+                    stats.getActiveConnections(), stats.getIdleConnections(), stats.getTotalConnections());
+            dataSource.close();
+            dataSource = null;
+        }
     }
 
 }
@@ -0,0 +1,36 @@
+package com.sudicode.nice;
+
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Creates virtual threads, on runtimes which have them. This is the version for Java 8 to 20, which do not: the jar
+ * carries a Java 21 version of this class under <code>META-INF/versions/21</code>, which is used instead when the
+ * jar is run on Java 21 or later.
+ */
+public final class VirtualThreads {
+
+    /**
+     * Illegal.
+     */
+    private VirtualThreads() {
+    }
+
+    /**
+     * @return <code>true</code> if virtual threads are supported
+     */
+    public static boolean isSupported() {
+        return false;
+    }
+
+    /**
+     * Create an {@link ExecutorService} which runs each task on a new virtual thread.
+     *
+     * @param name Prefix of the thread names
+     * @return The {@link ExecutorService}
+     * @throws UnsupportedOperationException if virtual threads are not supported
+     */
+    public static ExecutorService newExecutor(String name) {
+        throw new UnsupportedOperationException("Virtual threads require Java 21 or later");
+    }
+
+}
@@ -0,0 +1,198 @@
+package com.sudicode.nice;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.javalite.activejdbc.Base;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.sql.DataSource;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Bounded pool of named worker threads which have access to the database. Each task borrows a connection when it
+ * starts and returns it when it ends, so that no connection is held between tasks. A task which throws is logged,
+ * since callers often discard the {@link Future}.
+ * <p>
+ * A pool made by {@link #perTask(String, DataSource, int, int)} instead runs each task on a new virtual thread, which
+ * borrows a connection for the length of the task. A semaphore limits how many tasks hold a connection at once; the
+ * others wait for a permit without occupying a platform thread.
+ */
+public class WorkerPool {
+
+    private static final Logger log = LoggerFactory.getLogger(WorkerPool.class);
+
+    private final DataSource dataSource;
+    private final ExecutorService executor;
+    private final Semaphore permits;
+    private final int maxPermits;
+    private final int queueCapacity;
+    private final AtomicInteger pending = new AtomicInteger();
+
+    /**
+     * Construct a new {@link WorkerPool}.
+     *
+     * @param name          Prefix of the worker thread names
+     * @param dataSource    The {@link DataSource} which workers borrow connections from
+     * @param threads       Number of worker threads
+     * @param queueCapacity Number of tasks which may wait for a worker before further tasks are rejected
+     */
+    public WorkerPool(String name, DataSource dataSource, int threads, int queueCapacity) {
+        this.dataSource = dataSource;
+        ThreadFactory threadFactory = new ThreadFactoryBuilder()
+                .setNameFormat(name + "-%d")
+                .setDaemon(true)
+                .build();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), threadFactory, (r, e) -> reject(e.getActiveCount(), e.getQueue().size()));
+        this.permits = null;
+        this.maxPermits = threads;
+        this.queueCapacity = queueCapacity;
+    }
+
+    /**
+     * Construct a {@link WorkerPool} which runs each task on its own thread.
+     *
+     * @param dataSource    The {@link DataSource} which tasks borrow connections from
+     * @param executor      An {@link ExecutorService} which starts a thread for each task
+     * @param permits       Number of tasks which may hold a connection at once
+     * @param queueCapacity Number of tasks which may wait for a connection before further tasks are rejected
+     */
+    WorkerPool(DataSource dataSource, ExecutorService executor, int permits, int queueCapacity) {
+        this.dataSource = dataSource;
+        this.executor = executor;
+        this.permits = new Semaphore(permits, true);
+        this.maxPermits = permits;
+        this.queueCapacity = queueCapacity;
+    }
+
+    /**
+     * Construct a {@link WorkerPool} which runs each task on a new virtual thread. Requires Java 21 or later.
+     *
+     * @param name          Prefix of the thread names
+     * @param dataSource    The {@link DataSource} which tasks borrow connections from
+     * @param permits       Number of tasks which may hold a connection at once
+     * @param queueCapacity Number of tasks which may wait for a connection before further tasks are rejected
+     * @return The {@link WorkerPool}
+     * @throws UnsupportedOperationException if virtual threads are not supported
+     * @see VirtualThreads#isSupported()
+     */
+    public static WorkerPool perTask(String name, DataSource dataSource, int permits, int queueCapacity) {
+        return new WorkerPool(dataSource, VirtualThreads.newExecutor(name), permits, queueCapacity);
+    }
+
+    /**
+     * Submit a task. The task will run on a worker thread with a database connection attached. If it throws, the
+     * exception is logged as well as being reported through the returned {@link Future}.
+     *
+     * @param task A {@link Runnable} containing the task to run
+     * @return A {@link Future} which may be used to cancel the task
+     * @throws RejectedExecutionException if the pool has been shut down or its queue is full
+     */
+    public Future<?> submit(Runnable task) {
+        if (permits == null) {
+            return executor.submit(() -> runWithConnection(task));
+        }
+        if (executor.isShutdown() || pending.get() >= queueCapacity + permits.availablePermits()) {
+            reject(getActiveCount(), pending.get());
+        }
+        pending.incrementAndGet();
+        try {
+            return executor.submit(() -> runWithPermit(task));
+        } catch (RejectedExecutionException e) {
+            pending.decrementAndGet();
+            throw e;
+        }
+    }
+
+    /**
+     * Wait for a permit, then run a task with a connection attached, and return the connection when it is done.
+     *
+     * @param task The task
+     */
+    private void runWithPermit(Runnable task) {
+        try {
+            permits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        } finally {
+            pending.decrementAndGet();
+        }
+        try {
+            runWithConnection(task);
+        } finally {
+            permits.release();
+        }
+    }
+
+    /**
+     * Run a task with a connection attached, log it if it fails, and return the connection when it is done.
+     *
+     * @param task The task
+     */
+    private void runWithConnection(Runnable task) {
+        try {
+            Base.open(dataSource);
+            try {
+                task.run();
+            } finally {
+                Base.close();
+            }
+        } catch (RuntimeException | Error e) {
+            log.error("Background task failed", e);
+            throw e;
+        }
+    }
+
+    /**
+     * @param active Number of busy workers
+     * @param queued Number of queued tasks
+     * @throws RejectedExecutionException always
+     */
+    private static void reject(int active, int queued) {
+        String message = String.format("Task rejected (%d workers busy, %d tasks queued)", active, queued);
+        log.warn(message);
+        throw new RejectedExecutionException(message);
+    }
+
+    /**
+     * Interrupt all running tasks, discard queued tasks, and wait for the workers to terminate.
+     *
+     * @param timeout Maximum time to wait
+     * @param unit    The {@link TimeUnit} of <code>timeout</code>
+     * @return <code>true</code> if all workers terminated, <code>false</code> if the timeout elapsed first
+     */
+    public boolean shutdown(long timeout, TimeUnit unit) {
+        int discarded = executor.shutdownNow().size();
+        log.info("Shutting down workers ({} queued tasks discarded).", discarded);
+        try {
+            return executor.awaitTermination(timeout, unit);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    /**
+     * @return Number of workers which are currently running a task
+     */
+    public int getActiveCount() {
+        return permits == null ? ((ThreadPoolExecutor) executor).getActiveCount() : maxPermits - permits.availablePermits();
+    }
+
+    /**
+     * @return Number of tasks which are waiting for a worker
+     */
+    public int getQueuedCount() {
+        return permits == null ? ((ThreadPoolExecutor) executor).getQueue().size() : pending.get();
+    }
+
+}
@@ -0,0 +1,155 @@
+package com.sudicode.nice.collect;
+
+import java.util.Arrays;
+
+/**
+ * Set of primitive <code>long</code> values, backed by an open-addressing hash table with linear probing. Unlike a
+ * {@link java.util.HashSet HashSet&lt;Long&gt;}, lookups do not box or allocate.
+ * <p>
+ * This class is not thread-safe.
+ */
+public class LongHashSet {
+
+    private static final long EMPTY = 0;
+    private static final int MIN_CAPACITY = 16;
+
+    private long[] table;
+    private int mask;
+    private int size;
+    private boolean containsEmpty;
+
+    /**
+     * Construct an empty {@link LongHashSet}.
+     */
+    public LongHashSet() {
+        this(MIN_CAPACITY);
+    }
+
+    /**
+     * Construct an empty {@link LongHashSet} which can hold the given number of values without resizing.
+     *
+     * @param expectedSize Expected number of values
+     */
+    public LongHashSet(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(MIN_CAPACITY, expectedSize * 2 - 1)) << 1;
+        table = new long[capacity];
+        mask = capacity - 1;
+    }
+
+    /**
+     * @param value The value
+     * @return <code>true</code> if the set contains the value
+     */
+    public boolean contains(long value) {
+        if (value == EMPTY) {
+            return containsEmpty;
+        }
+        for (int i = index(value); ; i = (i + 1) & mask) {
+            long current = table[i];
+            if (current == value) {
+                return true;
+            } else if (current == EMPTY) {
+                return false;
+            }
+        }
+    }
+
+    /**
+     * Add a value to the set.
+     *
+     * @param value The value
+     * @return <code>true</code> if the set did not already contain the value
+     */
+    public boolean add(long value) {
+        if (value == EMPTY) {
+            boolean added = !containsEmpty;
+            containsEmpty = true;
+            size += added ? 1 : 0;
+            return added;
+        }
+        int i = index(value);
+        while (table[i] != EMPTY) {
+            if (table[i] == value) {
+                return false;
+            }
+            i = (i + 1) & mask;
+        }
+        table[i] = value;
+        if (++size * 2 > table.length) {
+            rehash(table.length * 2);
+        }
+        return true;
+    }
+
+    /**
+     * Remove a value from the set.
+     *
+     * @param value The value
+     * @return <code>true</code> if the set contained the value
+     */
+    public boolean remove(long value) {
+        if (value == EMPTY) {
+            boolean removed = containsEmpty;
+            containsEmpty = false;
+            size -= removed ? 1 : 0;
+            return removed;
+        }
+        int i = index(value);
+        while (table[i] != value) {
+            if (table[i] == EMPTY) {
+                return false;
+            }
+            i = (i + 1) & mask;
+        }
+
+        // Shift back any following entries which would no longer be reachable across the gap.
+        int gap = i;
+        for (int j = (gap + 1) & mask; table[j] != EMPTY; j = (j + 1) & mask) {
+            int home = index(table[j]);
+            if (((j - home) & mask) >= ((j - gap) & mask)) {
+                table[gap] = table[j];
+                gap = j;
+            }
+        }
+        table[gap] = EMPTY;
+        size--;
+        return true;
+    }
+
+    /**
+     * @return Number of values in the set
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Remove all values from the set.
+     */
+    public void clear() {
+        Arrays.fill(table, EMPTY);
+        containsEmpty = false;
+        size = 0;
+    }
+
+    private void rehash(int capacity) {
+        long[] old = table;
+        table = new long[capacity];
+        mask = capacity - 1;
+        for (long value : old) {
+            if (value != EMPTY) {
+                int i = index(value);
+                while (table[i] != EMPTY) {
+                    i = (i + 1) & mask;
+                }
+                table[i] = value;
+            }
+        }
+    }
+
+    private int index(long value) {
+        long h = value * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & mask;
+    }
+
+}
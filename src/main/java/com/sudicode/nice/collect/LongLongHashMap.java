@@ -0,0 +1,192 @@
+package com.sudicode.nice.collect;
+
+import java.util.Arrays;
+
+/**
+ * Map from primitive <code>long</code> keys to primitive <code>long</code> values, backed by an open-addressing hash
+ * table with linear probing. Unlike a {@link java.util.HashMap HashMap&lt;Long, Long&gt;}, lookups and updates do not
+ * box or allocate.
+ * <p>
+ * This class is not thread-safe.
+ */
+public class LongLongHashMap {
+
+    /**
+     * Tests an entry of a {@link LongLongHashMap}.
+     */
+    @FunctionalInterface
+    public interface EntryPredicate {
+
+        /**
+         * @param key   The key
+         * @param value The value
+         * @return <code>true</code> if the entry matches
+         */
+        boolean test(long key, long value);
+
+    }
+
+    private static final long EMPTY = 0;
+    private static final int MIN_CAPACITY = 16;
+
+    private long[] keys;
+    private long[] values;
+    private int mask;
+    private int size;
+    private boolean containsEmpty;
+    private long emptyValue;
+
+    /**
+     * Construct an empty {@link LongLongHashMap}.
+     */
+    public LongLongHashMap() {
+        this(MIN_CAPACITY);
+    }
+
+    /**
+     * Construct an empty {@link LongLongHashMap} which can hold the given number of entries without resizing.
+     *
+     * @param expectedSize Expected number of entries
+     */
+    public LongLongHashMap(int expectedSize) {
+        allocate(Integer.highestOneBit(Math.max(MIN_CAPACITY, expectedSize * 2 - 1)) << 1);
+    }
+
+    /**
+     * @param key          The key
+     * @param defaultValue Value to return if the map does not contain the key
+     * @return The value mapped to the key, or <code>defaultValue</code>
+     */
+    public long get(long key, long defaultValue) {
+        if (key == EMPTY) {
+            return containsEmpty ? emptyValue : defaultValue;
+        }
+        for (int i = index(key); ; i = (i + 1) & mask) {
+            long current = keys[i];
+            if (current == key) {
+                return values[i];
+            } else if (current == EMPTY) {
+                return defaultValue;
+            }
+        }
+    }
+
+    /**
+     * @param key The key
+     * @return <code>true</code> if the map contains the key
+     */
+    public boolean containsKey(long key) {
+        if (key == EMPTY) {
+            return containsEmpty;
+        }
+        for (int i = index(key); ; i = (i + 1) & mask) {
+            long current = keys[i];
+            if (current == key) {
+                return true;
+            } else if (current == EMPTY) {
+                return false;
+            }
+        }
+    }
+
+    /**
+     * Map a key to a value, replacing any previous value.
+     *
+     * @param key   The key
+     * @param value The value
+     */
+    public void put(long key, long value) {
+        if (key == EMPTY) {
+            size += containsEmpty ? 0 : 1;
+            containsEmpty = true;
+            emptyValue = value;
+            return;
+        }
+        int i = index(key);
+        while (keys[i] != EMPTY) {
+            if (keys[i] == key) {
+                values[i] = value;
+                return;
+            }
+            i = (i + 1) & mask;
+        }
+        keys[i] = key;
+        values[i] = value;
+        if (++size * 2 > keys.length) {
+            rehash(keys.length * 2);
+        }
+    }
+
+    /**
+     * Remove every entry which matches a predicate.
+     *
+     * @param predicate The {@link EntryPredicate}
+     * @return Number of entries removed
+     */
+    public int removeIf(EntryPredicate predicate) {
+        int before = size;
+        if (containsEmpty && predicate.test(EMPTY, emptyValue)) {
+            containsEmpty = false;
+            size--;
+        }
+        long[] oldKeys = keys;
+        long[] oldValues = values;
+        allocate(keys.length);
+        size = containsEmpty ? 1 : 0;
+        for (int j = 0; j < oldKeys.length; j++) {
+            if (oldKeys[j] != EMPTY && !predicate.test(oldKeys[j], oldValues[j])) {
+                insert(oldKeys[j], oldValues[j]);
+                size++;
+            }
+        }
+        return before - size;
+    }
+
+    /**
+     * @return Number of entries in the map
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Remove all entries from the map.
+     */
+    public void clear() {
+        Arrays.fill(keys, EMPTY);
+        containsEmpty = false;
+        size = 0;
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new long[capacity];
+        mask = capacity - 1;
+    }
+
+    private void rehash(int capacity) {
+        long[] oldKeys = keys;
+        long[] oldValues = values;
+        allocate(capacity);
+        for (int j = 0; j < oldKeys.length; j++) {
+            if (oldKeys[j] != EMPTY) {
+                insert(oldKeys[j], oldValues[j]);
+            }
+        }
+    }
+
+    private void insert(long key, long value) {
+        int i = index(key);
+        while (keys[i] != EMPTY) {
+            i = (i + 1) & mask;
+        }
+        keys[i] = key;
+        values[i] = value;
+    }
+
+    private int index(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & mask;
+    }
+
+}
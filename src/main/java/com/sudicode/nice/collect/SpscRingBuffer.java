@@ -0,0 +1,145 @@
+package com.sudicode.nice.collect;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Bounded queue for exactly one producer thread and one consumer thread, backed by a ring buffer. Offering and polling
+ * take no locks and do not allocate. A consumer which waits for an element, or a producer which waits for space, is
+ * parked and woken by the other side.
+ * <p>
+ * Only one thread may call {@link #offer(Object)} and {@link #put(Object)}, and only one thread may call
+ * {@link #poll()} and {@link #take()}. {@link #size()} may be called from any thread.
+ *
+ * @param <E> Type of the elements
+ */
+public class SpscRingBuffer<E> {
+
+    private final AtomicReferenceArray<E> elements;
+    private final int mask;
+    private final AtomicLong head = new AtomicLong();
+    private final AtomicLong tail = new AtomicLong();
+    private volatile Thread waitingConsumer;
+    private volatile Thread waitingProducer;
+
+    /**
+     * Construct a new {@link SpscRingBuffer}.
+     *
+     * @param capacity Maximum number of elements, which is rounded up to a power of two
+     */
+    public SpscRingBuffer(int capacity) {
+        if (capacity < 1 || capacity > 1 << 30) {
+            throw new IllegalArgumentException("Invalid capacity: " + capacity);
+        }
+        int size = Integer.highestOneBit(capacity - 1) << 1;
+        this.elements = new AtomicReferenceArray<>(Math.max(1, size));
+        this.mask = elements.length() - 1;
+    }
+
+    /**
+     * Add an element if there is space. Producer only.
+     *
+     * @param element The element
+     * @return <code>true</code> if the element was added, <code>false</code> if the buffer is full
+     */
+    public boolean offer(E element) {
+        if (element == null) {
+            throw new NullPointerException();
+        }
+        long t = tail.get();
+        if (t - head.get() > mask) {
+            return false;
+        }
+        elements.lazySet((int) t & mask, element);
+        tail.set(t + 1);
+        Thread consumer = waitingConsumer;
+        if (consumer != null) {
+            LockSupport.unpark(consumer);
+        }
+        return true;
+    }
+
+    /**
+     * Add an element, waiting for space if the buffer is full. Producer only.
+     *
+     * @param element The element
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public void put(E element) throws InterruptedException {
+        while (!offer(element)) {
+            waitingProducer = Thread.currentThread();
+            try {
+                if (tail.get() - head.get() > mask) {
+                    LockSupport.park(this);
+                }
+            } finally {
+                waitingProducer = null;
+            }
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+        }
+    }
+
+    /**
+     * Remove the oldest element, if any. Consumer only.
+     *
+     * @return The element, or <code>null</code> if the buffer is empty
+     */
+    public E poll() {
+        long h = head.get();
+        if (h == tail.get()) {
+            return null;
+        }
+        int index = (int) h & mask;
+        E element = elements.get(index);
+        elements.lazySet(index, null);
+        head.set(h + 1);
+        Thread producer = waitingProducer;
+        if (producer != null) {
+            LockSupport.unpark(producer);
+        }
+        return element;
+    }
+
+    /**
+     * Remove the oldest element, waiting for one if the buffer is empty. Consumer only.
+     *
+     * @return The element
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public E take() throws InterruptedException {
+        E element;
+        while ((element = poll()) == null) {
+            waitingConsumer = Thread.currentThread();
+            try {
+                if (head.get() == tail.get()) {
+                    LockSupport.park(this);
+                }
+            } finally {
+                waitingConsumer = null;
+            }
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+        }
+        return element;
+    }
+
+    /**
+     * @return Number of elements in the buffer. May be stale by the time it returns.
+     */
+    public int size() {
+        long h = head.get();
+        return (int) Math.max(0, Math.min(tail.get() - h, elements.length()));
+    }
+
+    /**
+     * @return Maximum number of elements
+     */
+    public int capacity() {
+        return elements.length();
+    }
+
+}
@@ -0,0 +1,552 @@
+package com.sudicode.nice.database;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.sql.DataSource;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.BatchUpdateException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.UUID;
+import java.util.function.LongConsumer;
+import java.util.zip.CRC32;
+
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+/**
+ * Durable, append-only journal of attendance taps, kept in a memory-mapped file on local disk. A tap is acknowledged
+ * once it has been forced to disk, and a background drainer replays acknowledged taps into <code>Attendances</code> in
+ * JDBC batches. The drainer records its progress in <code>JournalCheckpoints</code> in the same transaction as the
+ * inserts, so every tap is replayed exactly once, even across crashes and restarts.
+ * <p>
+ * The file is a ring of fixed-size records. A record's slot is reused only after the record has been drained. The
+ * header also holds the last drained sequence number, so that a reopened journal knows which slots are free before the
+ * database can be reached. Journals written before student IDs were widened to 64 bits are upgraded in place when
+ * opened.
+ */
+public class AttendanceJournal implements Closeable {
+
+    private static final Logger log = LoggerFactory.getLogger(AttendanceJournal.class);
+
+    private static final int MAGIC = 0x4E494345; // "NICE"
+    private static final int FORMAT = 2;
+    private static final int FORMAT_INT_IDS = 1;
+    private static final int HEADER_SIZE = 32;
+    private static final int DRAINED_SEQ_OFFSET = 24;
+    private static final int RECORD_SIZE = 32;
+    private static final int CHECKSUMMED_SIZE = 28;
+    private static final int CHECKSUMMED_SIZE_INT_IDS = 24;
+    private static final int BATCH_SIZE = 500;
+    private static final long IDLE_WAIT_MS = 1_000;
+    private static final long MIN_BACKOFF_MS = 500;
+    private static final long MAX_BACKOFF_MS = 30_000;
+    private static final long JOIN_TIMEOUT_MS = 5_000;
+    private static final String INSERT = "INSERT INTO Attendances (studentid, crn, datetime) VALUES (?, ?, ?)";
+
+    private final Object lock = new Object();
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final ByteBuffer scratch = ByteBuffer.allocate(CHECKSUMMED_SIZE);
+    private final CRC32 crc = new CRC32();
+    private final String journalId;
+    private final int capacity;
+
+    private long lastSeq;
+    private long durableSeq;
+    private long drainedSeq;
+    private boolean flushing;
+    private volatile boolean closed;
+    private Thread drainer;
+
+    /**
+     * Open a journal, creating it if it does not exist. Records which survived a previous run are recovered and will
+     * be replayed once a drainer is started.
+     *
+     * @param path     Location of the journal file
+     * @param capacity Maximum number of undrained taps, if the file must be created
+     * @return The {@link AttendanceJournal}
+     * @throws IOException if an I/O error occurs
+     */
+    public static AttendanceJournal open(Path path, int capacity) throws IOException {
+        if (path.getParent() != null) {
+            Files.createDirectories(path.getParent());
+        }
+        return new AttendanceJournal(FileChannel.open(path, CREATE, READ, WRITE), capacity);
+    }
+
+    /**
+     * Map the journal file, initializing its header if it is new, and recover its records.
+     *
+     * @param channel  The {@link FileChannel}
+     * @param capacity Number of records, if the file is new
+     * @throws IOException if an I/O error occurs or the file is not a journal
+     */
+    private AttendanceJournal(FileChannel channel, int capacity) throws IOException {
+        this.channel = channel;
+        boolean created = channel.size() == 0;
+        long size = created ? HEADER_SIZE + (long) capacity * RECORD_SIZE : channel.size();
+        this.capacity = (int) ((size - HEADER_SIZE) / RECORD_SIZE);
+        this.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+
+        if (created) {
+            UUID uuid = UUID.randomUUID();
+            buffer.putInt(0, MAGIC);
+            buffer.putInt(4, FORMAT);
+            buffer.putLong(8, uuid.getMostSignificantBits());
+            buffer.putLong(16, uuid.getLeastSignificantBits());
+            buffer.force();
+        } else if (buffer.getInt(0) != MAGIC || (buffer.getInt(4) != FORMAT && buffer.getInt(4) != FORMAT_INT_IDS)) {
+            channel.close();
+            throw new IOException("Not an attendance journal.");
+        } else if (buffer.getInt(4) == FORMAT_INT_IDS) {
+            upgrade();
+        }
+        this.journalId = new UUID(buffer.getLong(8), buffer.getLong(16)).toString();
+
+        // Every valid record in the file survived, so it is durable. Slots below the oldest surviving record can only
+        // have been overwritten after being drained, and so can those up to the drained sequence number in the header.
+        long minSeq = Long.MAX_VALUE;
+        long maxSeq = 0;
+        for (int slot = 0; slot < this.capacity; slot++) {
+            long seq = buffer.getLong(offset(slot));
+            if (seq > 0 && isValid(slot)) {
+                minSeq = Math.min(minSeq, seq);
+                maxSeq = Math.max(maxSeq, seq);
+            }
+        }
+        this.lastSeq = maxSeq;
+        this.durableSeq = maxSeq;
+        this.drainedSeq = maxSeq == 0 ? 0 : Math.min(maxSeq, Math.max(minSeq - 1, buffer.getLong(DRAINED_SEQ_OFFSET)));
+        log.info("Opened attendance journal {} ({} records recovered).", journalId, maxSeq - drainedSeq);
+    }
+
+    /**
+     * Journal a tap at the current time. Returns once the tap is on disk.
+     *
+     * @param studentId Student ID
+     * @param crn       Course registration number
+     * @return Sequence number of the tap
+     * @throws IOException if the journal is full or closed, or an I/O error occurs
+     */
+    public long append(long studentId, int crn) throws IOException {
+        return append(studentId, crn, System.currentTimeMillis());
+    }
+
+    /**
+     * Journal a tap. Returns once the tap is on disk. Concurrent appends share a single force to disk.
+     *
+     * @param studentId   Student ID
+     * @param crn         Course registration number
+     * @param epochMillis Time of the tap
+     * @return Sequence number of the tap
+     * @throws IOException if the journal is full or closed, or an I/O error occurs
+     */
+    public long append(long studentId, int crn, long epochMillis) throws IOException {
+        long seq;
+        synchronized (lock) {
+            if (closed) {
+                throw new IOException("Journal is closed.");
+            }
+            if (lastSeq - drainedSeq >= capacity) {
+                throw new IOException(String.format("Journal is full (%d undrained taps).", capacity));
+            }
+            seq = ++lastSeq;
+            int slot = slot(seq);
+            scratch.clear();
+            scratch.putLong(seq).putLong(studentId).putInt(crn).putLong(epochMillis);
+            crc.reset();
+            crc.update(scratch.array(), 0, CHECKSUMMED_SIZE);
+            int offset = offset(slot);
+            buffer.putLong(offset, seq);
+            buffer.putLong(offset + 8, studentId);
+            buffer.putInt(offset + 16, crn);
+            buffer.putLong(offset + 20, epochMillis);
+            buffer.putInt(offset + CHECKSUMMED_SIZE, (int) crc.getValue());
+        }
+        awaitDurable(seq);
+        return seq;
+    }
+
+    /**
+     * Wait until a record has been forced to disk, forcing it ourselves if no other thread is doing so.
+     *
+     * @param seq Sequence number of the record
+     * @throws IOException if an I/O error occurs
+     */
+    private void awaitDurable(long seq) throws IOException {
+        while (true) {
+            long target;
+            synchronized (lock) {
+                while (durableSeq < seq && flushing) {
+                    try {
+                        lock.wait();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new InterruptedIOException("Interrupted while journaling tap.");
+                    }
+                }
+                if (durableSeq >= seq) {
+                    return;
+                }
+                flushing = true;
+                target = lastSeq;
+            }
+            boolean forced = false;
+            try {
+                buffer.force();
+                forced = true;
+            } finally {
+                synchronized (lock) {
+                    flushing = false;
+                    if (forced) {
+                        durableSeq = Math.max(durableSeq, target);
+                    }
+                    lock.notifyAll();
+                }
+            }
+        }
+    }
+
+    /**
+     * Start replaying journaled taps into the database on a background thread.
+     *
+     * @param dataSource The {@link DataSource} to replay into
+     * @param onDrained  Called with the latest drained sequence number after each batch is committed
+     */
+    public void startDrainer(DataSource dataSource, LongConsumer onDrained) {
+        synchronized (lock) {
+            if (drainer != null) {
+                throw new IllegalStateException("Drainer already started.");
+            }
+            drainer = new Thread(() -> drain(dataSource, onDrained), "nice-journal-drainer");
+            drainer.setDaemon(true);
+            drainer.start();
+        }
+    }
+
+    /**
+     * Drain loop. Reconnects with exponential backoff whenever the database is unavailable.
+     *
+     * @param dataSource The {@link DataSource}
+     * @param onDrained  Called after each batch is committed
+     */
+    private void drain(DataSource dataSource, LongConsumer onDrained) {
+        long backoff = MIN_BACKOFF_MS;
+        while (!closed) {
+            try (Connection connection = dataSource.getConnection()) {
+                connection.setAutoCommit(false);
+                long checkpoint = readCheckpoint(connection);
+                synchronized (lock) {
+                    drainedSeq = Math.max(drainedSeq, Math.min(checkpoint, lastSeq));
+                    lock.notifyAll();
+                }
+                while (!closed) {
+                    long from;
+                    long to;
+                    synchronized (lock) {
+                        while (durableSeq <= drainedSeq && !closed) {
+                            lock.wait(IDLE_WAIT_MS);
+                        }
+                        if (closed) {
+                            break;
+                        }
+                        from = drainedSeq + 1;
+                        to = Math.min(durableSeq, drainedSeq + BATCH_SIZE);
+                    }
+                    replay(connection, from, to);
+                    synchronized (lock) {
+                        drainedSeq = to;
+                        buffer.putLong(DRAINED_SEQ_OFFSET, to);
+                        lock.notifyAll();
+                    }
+                    backoff = MIN_BACKOFF_MS;
+                    try {
+                        onDrained.accept(to);
+                    } catch (RuntimeException e) {
+                        log.warn("Drain listener failed", e);
+                    }
+                }
+            } catch (SQLException | RuntimeException e) {
+                log.warn("Could not drain attendance journal, retrying in {} ms", backoff, e);
+                try {
+                    synchronized (lock) {
+                        if (!closed) {
+                            lock.wait(backoff);
+                        }
+                    }
+                } catch (InterruptedException ie) {
+                    return;
+                }
+                backoff = Math.min(backoff * 2, MAX_BACKOFF_MS);
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Insert a range of records and advance the checkpoint, in a single transaction. If the database rejects the data
+     * of the batch, such as a record whose student or course has since been deleted, the range is replayed one record
+     * at a time instead, so that only the rejected records are dropped.
+     *
+     * @param connection The {@link Connection}, with auto-commit disabled
+     * @param from       First sequence number to replay
+     * @param to         Last sequence number to replay
+     * @throws SQLException if a database access error occurs
+     */
+    private void replay(Connection connection, long from, long to) throws SQLException {
+        try (PreparedStatement ps = connection.prepareStatement(INSERT)) {
+            for (long seq = from; seq <= to; seq++) {
+                if (bind(ps, seq)) {
+                    ps.addBatch();
+                }
+            }
+            ps.executeBatch();
+
+            writeCheckpoint(connection, to);
+            connection.commit();
+            log.debug("Drained journal records {} to {}.", from, to);
+        } catch (SQLException e) {
+            connection.rollback();
+            if (!isRejected(e)) {
+                throw e;
+            }
+            log.warn("Database rejected journal records {} to {}, replaying them one at a time", from, to, e);
+            replayEach(connection, from, to);
+        }
+    }
+
+    /**
+     * Insert a range of records one at a time, each in its own transaction with the checkpoint. Records which the
+     * database rejects are logged and dropped.
+     *
+     * @param connection The {@link Connection}, with auto-commit disabled
+     * @param from       First sequence number to replay
+     * @param to         Last sequence number to replay
+     * @throws SQLException if a database access error occurs, other than a rejected record
+     */
+    private void replayEach(Connection connection, long from, long to) throws SQLException {
+        try (PreparedStatement ps = connection.prepareStatement(INSERT)) {
+            for (long seq = from; seq <= to; seq++) {
+                try {
+                    if (bind(ps, seq)) {
+                        ps.executeUpdate();
+                    }
+                } catch (SQLException e) {
+                    connection.rollback();
+                    if (!isRejected(e)) {
+                        throw e;
+                    }
+                    int offset = offset(slot(seq));
+                    log.error("Dropping journal record {} (student {}, course {}, at {}), which the database rejected",
+                            seq, buffer.getLong(offset + 8), buffer.getInt(offset + 16),
+                            new Timestamp(buffer.getLong(offset + 20)), e);
+                }
+                writeCheckpoint(connection, seq);
+                connection.commit();
+            }
+        } catch (SQLException e) {
+            connection.rollback();
+            throw e;
+        }
+    }
+
+    /**
+     * Bind a record to the insert statement.
+     *
+     * @param ps  The insert {@link PreparedStatement}
+     * @param seq Sequence number of the record
+     * @return <code>false</code> if the record is corrupt and was skipped
+     * @throws SQLException if a database access error occurs
+     */
+    private boolean bind(PreparedStatement ps, long seq) throws SQLException {
+        int slot = slot(seq);
+        if (buffer.getLong(offset(slot)) != seq || !isValid(slot)) {
+            log.warn("Skipping corrupt journal record {}.", seq);
+            return false;
+        }
+        int offset = offset(slot);
+        ps.setLong(1, buffer.getLong(offset + 8));
+        ps.setInt(2, buffer.getInt(offset + 16));
+        ps.setTimestamp(3, new Timestamp(buffer.getLong(offset + 20)));
+        return true;
+    }
+
+    /**
+     * Check whether the database rejected the data being inserted, rather than being unreachable. Data exceptions
+     * (SQLState class 22) and integrity constraint violations (class 23) are rejections, as is any failed batch, since
+     * the failing record is only known once the batch is replayed one record at a time.
+     *
+     * @param e The {@link SQLException}
+     * @return <code>true</code> if the data was rejected
+     */
+    private static boolean isRejected(SQLException e) {
+        if (e instanceof BatchUpdateException) {
+            return true;
+        }
+        for (SQLException next = e; next != null; next = next.getNextException()) {
+            String state = next.getSQLState();
+            if (state != null && (state.startsWith("22") || state.startsWith("23"))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @param connection The {@link Connection}
+     * @return Sequence number of the last record committed to the database
+     * @throws SQLException if a database access error occurs
+     */
+    private long readCheckpoint(Connection connection) throws SQLException {
+        try (PreparedStatement ps = connection.prepareStatement("SELECT seq FROM JournalCheckpoints WHERE journalid = ?")) {
+            ps.setString(1, journalId);
+            try (ResultSet rs = ps.executeQuery()) {
+                long checkpoint = rs.next() ? rs.getLong("seq") : 0;
+                connection.commit();
+                return checkpoint;
+            }
+        }
+    }
+
+    /**
+     * @param connection The {@link Connection}
+     * @param seq        Sequence number of the last record committed to the database
+     * @throws SQLException if a database access error occurs
+     */
+    private void writeCheckpoint(Connection connection, long seq) throws SQLException {
+        try (PreparedStatement ps = connection.prepareStatement("UPDATE JournalCheckpoints SET seq = ? WHERE journalid = ?")) {
+            ps.setLong(1, seq);
+            ps.setString(2, journalId);
+            if (ps.executeUpdate() == 1) {
+                return;
+            }
+        }
+        try (PreparedStatement ps = connection.prepareStatement("INSERT INTO JournalCheckpoints (journalid, seq) VALUES (?, ?)")) {
+            ps.setString(1, journalId);
+            ps.setLong(2, seq);
+            ps.executeUpdate();
+        }
+    }
+
+    /**
+     * @return Number of acknowledged taps which have not yet been committed to the database
+     */
+    public long getPendingCount() {
+        synchronized (lock) {
+            return durableSeq - drainedSeq;
+        }
+    }
+
+    /**
+     * Stop the drainer and close the journal file. Undrained taps are replayed the next time the journal is opened.
+     *
+     * @throws IOException if an I/O error occurs
+     */
+    @Override
+    public void close() throws IOException {
+        Thread toJoin;
+        synchronized (lock) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            toJoin = drainer;
+            lock.notifyAll();
+        }
+        if (toJoin != null) {
+            try {
+                toJoin.join(JOIN_TIMEOUT_MS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        buffer.force();
+        channel.close();
+        log.info("Closed attendance journal ({} taps pending).", getPendingCount());
+    }
+
+    /**
+     * Rewrite every record of a journal with 32-bit student IDs in the current format, then update the header. IDs
+     * are widened as unsigned, to match {@link com.sudicode.nice.hardware.UidCodec}. Records which were already
+     * rewritten before a crash are kept, and records which are valid in neither format are cleared.
+     */
+    private void upgrade() {
+        int upgraded = 0;
+        for (int slot = 0; slot < capacity; slot++) {
+            int offset = offset(slot);
+            long seq = buffer.getLong(offset);
+            if (seq > 0 && isValid(slot, CHECKSUMMED_SIZE_INT_IDS)) {
+                long studentId = Integer.toUnsignedLong(buffer.getInt(offset + 8));
+                int crn = buffer.getInt(offset + 12);
+                long epochMillis = buffer.getLong(offset + 16);
+                buffer.putLong(offset + 8, studentId);
+                buffer.putInt(offset + 16, crn);
+                buffer.putLong(offset + 20, epochMillis);
+                buffer.putInt(offset + CHECKSUMMED_SIZE, checksum(offset, CHECKSUMMED_SIZE));
+                upgraded++;
+            } else if (seq != 0 && !isValid(slot)) {
+                buffer.putLong(offset, 0);
+            }
+        }
+        buffer.force();
+        buffer.putInt(4, FORMAT);
+        buffer.force();
+        log.info("Upgraded attendance journal to format {} ({} records rewritten).", FORMAT, upgraded);
+    }
+
+    /**
+     * @param slot Slot index
+     * @return <code>true</code> if the record in the slot matches its checksum
+     */
+    private boolean isValid(int slot) {
+        return isValid(slot, CHECKSUMMED_SIZE);
+    }
+
+    /**
+     * @param slot   Slot index
+     * @param length Number of bytes covered by the checksum, which follows them
+     * @return <code>true</code> if the record in the slot matches its checksum
+     */
+    private boolean isValid(int slot, int length) {
+        int offset = offset(slot);
+        return buffer.getInt(offset + length) == checksum(offset, length);
+    }
+
+    /**
+     * @param offset Offset of the first byte
+     * @param length Number of bytes
+     * @return CRC-32 of the bytes
+     */
+    private int checksum(int offset, int length) {
+        byte[] bytes = new byte[length];
+        for (int i = 0; i < length; i++) {
+            bytes[i] = buffer.get(offset + i);
+        }
+        CRC32 checksum = new CRC32();
+        checksum.update(bytes, 0, length);
+        return (int) checksum.getValue();
+    }
+
+    private int slot(long seq) {
+        return (int) ((seq - 1) % capacity);
+    }
+
+    private static int offset(int slot) {
+        return HEADER_SIZE + slot * RECORD_SIZE;
+    }
+
+}
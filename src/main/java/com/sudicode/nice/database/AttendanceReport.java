@@ -0,0 +1,132 @@
+package com.sudicode.nice.database;
+
+import org.apache.commons.text.StringEscapeUtils;
+import org.javalite.activejdbc.Base;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+/**
+ * Exports CSV-formatted attendance reports. The attendances of a whole date range are read in one ordered, streamed
+ * query and pivoted one student at a time, so memory use does not grow with the size of the course.
+ */
+public class AttendanceReport {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int FETCH_SIZE = 1000;
+
+    /**
+     * Illegal.
+     */
+    private AttendanceReport() {
+    }
+
+    /**
+     * Write the attendance report of a {@link Course} to a CSV file. There is one row per enrolled student and one
+     * column per day on which the course meets. If <code>from</code> is after <code>to</code>, such as when the
+     * course has not started yet, there are no day columns.
+     *
+     * @param course  The {@link Course}
+     * @param from    First day of the report
+     * @param to      Last day of the report
+     * @param csvFile The file to write
+     * @throws SQLException if a database access error occurs
+     * @throws IOException  if an I/O error occurs
+     */
+    public static void export(Course course, LocalDate from, LocalDate to, Path csvFile) throws SQLException, IOException {
+        // Find the days on which the course meets, and map each day of the range to its column.
+        WeeklySchedule schedule = course.getSchedule();
+        List<LocalDate> dates = new ArrayList<>();
+        int[] columns = new int[(int) Math.max(0, to.toEpochDay() - from.toEpochDay() + 1)];
+        Arrays.fill(columns, -1);
+        for (LocalDate date = from; !date.isAfter(to); date = date.plusDays(1)) {
+            if (schedule.meetsOn(date.getDayOfWeek())) {
+                columns[(int) (date.toEpochDay() - from.toEpochDay())] = dates.size();
+                dates.add(date);
+            }
+        }
+
+        String sql = "SELECT s.studentid, s.firstname, s.lastname, a.datetime "
+                + "FROM Registrations r "
+                + "JOIN Students s ON s.studentid = r.studentid "
+                + "LEFT JOIN Attendances a "
+                + "ON a.studentid = r.studentid AND a.crn = r.crn AND a.datetime >= ? AND a.datetime < ? "
+                + "WHERE r.crn = ? "
+                + "ORDER BY s.studentid, a.datetime";
+        Connection connection = Base.connection();
+        try (PreparedStatement ps = connection.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+             Writer out = new BufferedWriter(Channels.newWriter(FileChannel.open(csvFile, CREATE, WRITE, TRUNCATE_EXISTING),
+                     StandardCharsets.UTF_8.newEncoder(), BUFFER_SIZE), BUFFER_SIZE)) {
+            ps.setFetchSize(isMySQL(connection) ? Integer.MIN_VALUE : FETCH_SIZE);
+            ps.setTimestamp(1, Timestamp.valueOf(from.atStartOfDay()));
+            ps.setTimestamp(2, Timestamp.valueOf(to.plusDays(1).atStartOfDay()));
+            ps.setInt(3, course.getCrn());
+
+            // Header
+            for (LocalDate date : dates) {
+                out.write(',');
+                out.write(date.toString());
+            }
+            out.write(System.lineSeparator());
+
+            // One row per student. Rows arrive ordered by student, then by time, so the first attendance of each day
+            // is the first one seen.
+            Timestamp[] firstAttendances = new Timestamp[dates.size()];
+            try (ResultSet rs = ps.executeQuery()) {
+                boolean hasRow = rs.next();
+                while (hasRow) {
+                    long studentId = rs.getLong("studentid");
+                    String name = rs.getString("firstname") + " " + rs.getString("lastname");
+                    Arrays.fill(firstAttendances, null);
+                    do {
+                        Timestamp timestamp = rs.getTimestamp("datetime");
+                        if (timestamp != null) {
+                            int column = columns[(int) (timestamp.toLocalDateTime().toLocalDate().toEpochDay() - from.toEpochDay())];
+                            if (column >= 0 && firstAttendances[column] == null) {
+                                firstAttendances[column] = timestamp;
+                            }
+                        }
+                        hasRow = rs.next();
+                    } while (hasRow && rs.getLong("studentid") == studentId);
+
+                    out.write(StringEscapeUtils.escapeCsv(name));
+                    out.write(',');
+                    for (int i = 0; i < dates.size(); i++) {
+                        out.write(StatusService.classify(course, dates.get(i), firstAttendances[i]));
+                        out.write(',');
+                    }
+                    out.write(System.lineSeparator());
+                }
+            }
+        }
+    }
+
+    /**
+     * @param connection The {@link Connection}
+     * @return <code>true</code> if the connection is to a MySQL server, which streams result sets only when the fetch
+     * size is {@link Integer#MIN_VALUE}
+     * @throws SQLException if a database access error occurs
+     */
+    private static boolean isMySQL(Connection connection) throws SQLException {
+        return "MySQL".equals(connection.getMetaData().getDatabaseProductName());
+    }
+
+}
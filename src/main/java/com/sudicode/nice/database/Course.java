@@ -1,6 +1,7 @@
 package com.sudicode.nice.database;
 
 import com.google.common.collect.ImmutableMap;
+import com.sudicode.nice.Constants;
 import lombok.EqualsAndHashCode;
 import org.javalite.activejdbc.Base;
 import org.javalite.activejdbc.Model;
@@ -12,6 +13,7 @@ import java.sql.SQLException;
 import java.sql.Time;
 import java.time.DayOfWeek;
 import java.time.LocalTime;
+import java.util.Map;
 
 import static java.time.DayOfWeek.FRIDAY;
 import static java.time.DayOfWeek.MONDAY;
@@ -38,11 +40,14 @@ public class Course extends Model {
             .put(SATURDAY, 's')
             .put(SUNDAY, 'u')
             .build();
+    private static final String[] START_COLUMNS = columnNames("start");
+    private static final String[] END_COLUMNS = columnNames("end");
 
     private Integer crn;
     private String name;
     private String number;
     private Integer section;
+    private volatile WeeklySchedule schedule;
 
     public Integer getCrn() {
         return isFrozen() ? crn : getInteger("crn");
@@ -76,6 +81,21 @@ public class Course extends Model {
         setString("section", section);
     }
 
+    /**
+     * Get the course's weekly meeting times. The schedule is built when the course is loaded and rebuilt whenever a
+     * start or end time is set.
+     *
+     * @return The {@link WeeklySchedule}
+     */
+    public WeeklySchedule getSchedule() {
+        WeeklySchedule current = schedule;
+        if (current == null) {
+            current = buildSchedule();
+            schedule = current;
+        }
+        return current;
+    }
+
     /**
      * Get the course's start time on the given day of the week.
      *
@@ -83,7 +103,7 @@ public class Course extends Model {
      * @return The start time
      */
     public LocalTime getStart(DayOfWeek dayOfWeek) {
-        return getStartOrEnd(dayOfWeek, "start");
+        return WeeklySchedule.toLocalTime(getSchedule().getStartSecond(dayOfWeek));
     }
 
     /**
@@ -93,7 +113,7 @@ public class Course extends Model {
      * @param time      The start time
      */
     public void setStart(DayOfWeek dayOfWeek, LocalTime time) {
-        setStartOrEnd(dayOfWeek, time, "start");
+        setStartOrEnd(START_COLUMNS, dayOfWeek, time);
     }
 
     /**
@@ -103,7 +123,7 @@ public class Course extends Model {
      * @return The end time
      */
     public LocalTime getEnd(DayOfWeek dayOfWeek) {
-        return getStartOrEnd(dayOfWeek, "end");
+        return WeeklySchedule.toLocalTime(getSchedule().getEndSecond(dayOfWeek));
     }
 
     /**
@@ -113,30 +133,55 @@ public class Course extends Model {
      * @param time      The end time
      */
     public void setEnd(DayOfWeek dayOfWeek, LocalTime time) {
-        setStartOrEnd(dayOfWeek, time, "end");
+        setStartOrEnd(END_COLUMNS, dayOfWeek, time);
     }
 
     /**
-     * Get this course's start or end time, depending on the value of <code>startOrEnd</code>.
+     * Set this course's start or end time, depending on the value of <code>columns</code>, then rebuild the schedule.
      *
-     * @param dayOfWeek  The {@link DayOfWeek}
-     * @param startOrEnd "start" or "end"
-     * @return The start or end time
+     * @param columns   {@link #START_COLUMNS} or {@link #END_COLUMNS}
+     * @param dayOfWeek The {@link DayOfWeek}
+     * @param time      The start or end time
      */
-    private LocalTime getStartOrEnd(DayOfWeek dayOfWeek, String startOrEnd) {
-        Time time = getTime(DAYS.get(dayOfWeek) + "_" + startOrEnd);
-        return time != null ? time.toLocalTime() : null;
+    private void setStartOrEnd(String[] columns, DayOfWeek dayOfWeek, LocalTime time) {
+        setTime(columns[dayOfWeek.getValue() - 1], time != null ? Time.valueOf(time) : null);
+        schedule = buildSchedule();
     }
 
     /**
-     * Set this course's start or end time, depending on the value of <code>startOrEnd</code>.
+     * Build the schedule from this course's attributes.
+     *
+     * @return The {@link WeeklySchedule}
+     */
+    private WeeklySchedule buildSchedule() {
+        int[] seconds = new int[2 * Constants.DAYS_OF_WEEK];
+        for (int i = 0; i < Constants.DAYS_OF_WEEK; i++) {
+            Time start = getTime(START_COLUMNS[i]);
+            Time end = getTime(END_COLUMNS[i]);
+            seconds[2 * i] = WeeklySchedule.toSecond(start != null ? start.toLocalTime() : null);
+            seconds[2 * i + 1] = WeeklySchedule.toSecond(end != null ? end.toLocalTime() : null);
+        }
+        return new WeeklySchedule(seconds);
+    }
+
+    @Override
+    protected void hydrate(Map<String, Object> attributesMap, boolean fireAfterLoad) {
+        super.hydrate(attributesMap, fireAfterLoad);
+        schedule = buildSchedule();
+    }
+
+    /**
+     * Get the names of the start or end time columns.
      *
-     * @param dayOfWeek  The {@link DayOfWeek}
-     * @param time       The start or end time
      * @param startOrEnd "start" or "end"
+     * @return Column names, indexed by {@link DayOfWeek#getValue()} - 1
      */
-    private void setStartOrEnd(DayOfWeek dayOfWeek, LocalTime time, String startOrEnd) {
-        setTime(DAYS.get(dayOfWeek) + "_" + startOrEnd, time != null ? Time.valueOf(time) : null);
+    private static String[] columnNames(String startOrEnd) {
+        String[] columns = new String[Constants.DAYS_OF_WEEK];
+        for (DayOfWeek dayOfWeek : DayOfWeek.values()) {
+            columns[dayOfWeek.getValue() - 1] = DAYS.get(dayOfWeek) + "_" + startOrEnd;
+        }
+        return columns;
     }
 
     /**
@@ -147,7 +192,30 @@ public class Course extends Model {
         this.name = getName();
         this.number = getNumber();
         this.section = getSection();
-        delete();
+        try {
+            delete();
+        } finally {
+            ScheduleIndex.invalidate();
+        }
+        RosterIndex.courseDeleted(crn);
+    }
+
+    @Override
+    public boolean saveIt() {
+        try {
+            return super.saveIt();
+        } finally {
+            ScheduleIndex.invalidate();
+        }
+    }
+
+    @Override
+    public boolean insert() {
+        try {
+            return super.insert();
+        } finally {
+            ScheduleIndex.invalidate();
+        }
     }
 
     @Override
@@ -164,12 +232,13 @@ public class Course extends Model {
     public void drop(Student student) throws SQLException {
         String sql = "DELETE FROM Registrations WHERE studentid = ? AND crn = ?";
         try (PreparedStatement ps = Base.connection().prepareStatement(sql)) {
-            ps.setInt(1, student.getStudentId());
+            ps.setLong(1, student.getStudentId());
             ps.setInt(2, getCrn());
             if (ps.executeUpdate() != 1) {
                 throw new SQLException("Drop failed.");
             }
         }
+        RosterIndex.dropped(getCrn(), student.getStudentId());
     }
 
 }
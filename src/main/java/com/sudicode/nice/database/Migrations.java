@@ -0,0 +1,193 @@
+package com.sudicode.nice.database;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.io.Resources;
+import org.javalite.activejdbc.Base;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Brings the schema of the current connection up to date by running versioned migration scripts. Applied versions are
+ * recorded in the <code>SchemaVersions</code> table, so each script runs at most once per database.
+ * <p>
+ * A migration named <code>V2__example</code> is loaded from <code>migrations/V2__example.&lt;dialect&gt;.sql</code>
+ * (where the dialect is <code>mysql</code> or <code>h2</code>) if present, or <code>migrations/V2__example.sql</code>
+ * otherwise. Statements are separated by semicolons.
+ * <p>
+ * MySQL commits each DDL statement as it runs, so a script which fails partway cannot be rolled back. Every MySQL
+ * script must therefore be idempotent, so that rerunning it after a failure completes it. On MySQL, migrations also
+ * run under a named lock, so that two kiosks starting at once do not migrate the same database together.
+ */
+public class Migrations {
+
+    private static final Logger log = LoggerFactory.getLogger(Migrations.class);
+    private static final String LOCK_NAME = "nice_migrations";
+    private static final int LOCK_TIMEOUT_SECONDS = 60;
+
+    /**
+     * All migrations, in the order in which they must be applied.
+     */
+    private static final ImmutableList<String> MIGRATIONS = ImmutableList.of(
+            "V1__attendance_indexes",
+            "V2__journal_checkpoints",
+            "V3__long_student_ids");
+
+    /**
+     * Illegal.
+     */
+    private Migrations() {
+    }
+
+    /**
+     * Apply every pending migration to the database of the current thread's connection.
+     *
+     * @throws SQLException if a database access error occurs, or the migration lock could not be acquired
+     * @throws IOException  if a migration script cannot be read
+     */
+    public static void migrate() throws SQLException, IOException {
+        Connection connection = Base.connection();
+        String dialect = connection.getMetaData().getDatabaseProductName().toLowerCase(Locale.ROOT);
+        boolean locking = dialect.equals("mysql");
+        if (locking) {
+            lock(connection);
+        }
+        try {
+            migrate(connection, dialect);
+        } finally {
+            if (locking) {
+                unlock(connection);
+            }
+        }
+    }
+
+    /**
+     * @param connection The {@link Connection}
+     * @param dialect    Lower-case database product name
+     * @throws SQLException if a database access error occurs
+     * @throws IOException  if a migration script cannot be read
+     */
+    private static void migrate(Connection connection, String dialect) throws SQLException, IOException {
+        try (Statement stmt = connection.createStatement()) {
+            stmt.execute("CREATE TABLE IF NOT EXISTS `SchemaVersions` ("
+                    + "`version` INT NOT NULL, "
+                    + "`description` VARCHAR(255) NOT NULL, "
+                    + "`appliedat` TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP, "
+                    + "PRIMARY KEY (`version`))");
+        }
+
+        Set<Integer> applied = new HashSet<>();
+        try (Statement stmt = connection.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT version FROM SchemaVersions")) {
+            while (rs.next()) {
+                applied.add(rs.getInt("version"));
+            }
+        }
+
+        for (String migration : MIGRATIONS) {
+            int version = Integer.parseInt(migration.substring(1, migration.indexOf("__")));
+            if (!applied.contains(version)) {
+                log.info("Applying migration {}.", migration);
+                apply(connection, version, migration, readScript(migration, dialect));
+            }
+        }
+    }
+
+    /**
+     * Wait for the MySQL migration lock.
+     *
+     * @param connection The {@link Connection}
+     * @throws SQLException if the lock could not be acquired in time
+     */
+    private static void lock(Connection connection) throws SQLException {
+        try (PreparedStatement ps = connection.prepareStatement("SELECT GET_LOCK(?, ?)")) {
+            ps.setString(1, LOCK_NAME);
+            ps.setInt(2, LOCK_TIMEOUT_SECONDS);
+            try (ResultSet rs = ps.executeQuery()) {
+                if (!rs.next() || rs.getInt(1) != 1) {
+                    throw new SQLException(String.format("Timed out after %d s waiting for another kiosk to migrate the database.",
+                            LOCK_TIMEOUT_SECONDS));
+                }
+            }
+        }
+    }
+
+    /**
+     * Release the MySQL migration lock.
+     *
+     * @param connection The {@link Connection}
+     */
+    private static void unlock(Connection connection) {
+        try (PreparedStatement ps = connection.prepareStatement("SELECT RELEASE_LOCK(?)")) {
+            ps.setString(1, LOCK_NAME);
+            ps.executeQuery().close();
+        } catch (SQLException e) {
+            log.warn("Could not release migration lock", e);
+        }
+    }
+
+    /**
+     * Run a migration script and record its version.
+     *
+     * @param connection The {@link Connection}
+     * @param version    Version number
+     * @param migration  Name of the migration
+     * @param script     Contents of the script
+     * @throws SQLException if a database access error occurs
+     */
+    private static void apply(Connection connection, int version, String migration, String script) throws SQLException {
+        boolean autoCommit = connection.getAutoCommit();
+        connection.setAutoCommit(false);
+        try {
+            for (String sql : script.split(";")) {
+                if (!sql.trim().isEmpty()) {
+                    try (Statement stmt = connection.createStatement()) {
+                        stmt.execute(sql);
+                    }
+                }
+            }
+            try (PreparedStatement ps = connection.prepareStatement("INSERT INTO SchemaVersions (version, description) VALUES (?, ?)")) {
+                ps.setInt(1, version);
+                ps.setString(2, migration);
+                ps.executeUpdate();
+            }
+            connection.commit();
+        } catch (SQLException e) {
+            connection.rollback();
+            throw new SQLException("Migration " + migration + " failed.", e);
+        } finally {
+            connection.setAutoCommit(autoCommit);
+        }
+    }
+
+    /**
+     * Read a migration script, preferring the variant written for the given dialect.
+     *
+     * @param migration Name of the migration
+     * @param dialect   Lower-case database product name
+     * @return Contents of the script
+     * @throws IOException if the script cannot be read
+     */
+    private static String readScript(String migration, String dialect) throws IOException {
+        URL url = Migrations.class.getResource("/com/sudicode/nice/migrations/" + migration + "." + dialect + ".sql");
+        if (url == null) {
+            url = Migrations.class.getResource("/com/sudicode/nice/migrations/" + migration + ".sql");
+        }
+        if (url == null) {
+            throw new IOException("Missing migration script: " + migration);
+        }
+        return Resources.toString(url, StandardCharsets.UTF_8);
+    }
+
+}
@@ -0,0 +1,183 @@
+package com.sudicode.nice.database;
+
+import com.sudicode.nice.Constants;
+import com.sudicode.nice.collect.LongHashSet;
+import org.javalite.activejdbc.Base;
+import org.javalite.activejdbc.DBException;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * In-memory index of which students are enrolled in which courses, so that membership can be checked without a query
+ * or a scan of the roster. A course's roster is loaded on first use, and is kept consistent by
+ * {@link Student#enroll(Course)}, {@link Course#drop(Student)}, {@link Course#deleteIt()} and
+ * {@link Student#deleteIt()}. Since enrollments may also be made by other terminals sharing the database, a roster is
+ * loaded again once it is older than {@link Constants#ROSTER_INDEX_TTL_MS}.
+ */
+public class RosterIndex {
+
+    /**
+     * The IDs of the students enrolled in a course, and when they were loaded.
+     */
+    private static class Roster {
+
+        private final LongHashSet studentIds;
+        private final long loadedNanos;
+
+        private Roster(LongHashSet studentIds, long loadedNanos) {
+            this.studentIds = studentIds;
+            this.loadedNanos = loadedNanos;
+        }
+
+    }
+
+    private static final long TTL_NANOS = TimeUnit.MILLISECONDS.toNanos(Constants.ROSTER_INDEX_TTL_MS);
+
+    private static final ConcurrentMap<Integer, Roster> rosters = new ConcurrentHashMap<>();
+
+    /**
+     * Guards {@link #changes}, and makes installing a loaded roster atomic with respect to the changes made by this
+     * process.
+     */
+    private static final Object lock = new Object();
+
+    /**
+     * Incremented by every change made by this process, so that a roster loaded while one was being made is not kept.
+     */
+    private static long changes;
+
+    /**
+     * Illegal.
+     */
+    private RosterIndex() {
+    }
+
+    /**
+     * Check whether a student is enrolled in a course. If the course's roster has not been loaded yet, or is stale, it
+     * is loaded using the current thread's connection.
+     *
+     * @param crn       Course registration number
+     * @param studentId Student ID
+     * @return <code>true</code> if the student is enrolled
+     * @throws DBException if the roster could not be loaded
+     */
+    public static boolean isEnrolled(int crn, long studentId) {
+        return isEnrolled(crn, studentId, System.nanoTime());
+    }
+
+    /**
+     * Check whether a student is enrolled in a course at a given time.
+     *
+     * @param crn       Course registration number
+     * @param studentId Student ID
+     * @param nanoTime  The current {@link System#nanoTime()}
+     * @return <code>true</code> if the student is enrolled
+     * @throws DBException if the roster could not be loaded
+     */
+    static boolean isEnrolled(int crn, long studentId, long nanoTime) {
+        Roster roster = rosters.get(crn);
+        if (roster == null || nanoTime - roster.loadedNanos >= TTL_NANOS) {
+            // Load outside the lock, so that loading one course's roster does not hold up any other
+            long version;
+            synchronized (lock) {
+                version = changes;
+            }
+            roster = new Roster(load(crn), nanoTime);
+            synchronized (lock) {
+                if (changes == version) {
+                    rosters.put(crn, roster);
+                }
+            }
+        }
+        synchronized (roster.studentIds) {
+            return roster.studentIds.contains(studentId);
+        }
+    }
+
+    /**
+     * Record an enrollment, if the course's roster is loaded.
+     *
+     * @param crn       Course registration number
+     * @param studentId Student ID
+     */
+    static void enrolled(int crn, long studentId) {
+        synchronized (lock) {
+            changes++;
+            Roster roster = rosters.get(crn);
+            if (roster != null) {
+                synchronized (roster.studentIds) {
+                    roster.studentIds.add(studentId);
+                }
+            }
+        }
+    }
+
+    /**
+     * Record a drop, if the course's roster is loaded.
+     *
+     * @param crn       Course registration number
+     * @param studentId Student ID
+     */
+    static void dropped(int crn, long studentId) {
+        synchronized (lock) {
+            changes++;
+            Roster roster = rosters.get(crn);
+            if (roster != null) {
+                synchronized (roster.studentIds) {
+                    roster.studentIds.remove(studentId);
+                }
+            }
+        }
+    }
+
+    /**
+     * Forget a course's roster.
+     *
+     * @param crn Course registration number
+     */
+    static void courseDeleted(int crn) {
+        synchronized (lock) {
+            changes++;
+            rosters.remove(crn);
+        }
+    }
+
+    /**
+     * Remove a student from every loaded roster.
+     *
+     * @param studentId Student ID
+     */
+    static void studentDeleted(long studentId) {
+        for (Integer crn : rosters.keySet()) {
+            dropped(crn, studentId);
+        }
+    }
+
+    /**
+     * Load a course's roster.
+     *
+     * @param crn Course registration number
+     * @return Set of the IDs of the enrolled students
+     */
+    private static LongHashSet load(int crn) {
+        String sql = "SELECT studentid FROM Registrations WHERE crn = ?";
+        LongHashSet roster = new LongHashSet();
+        try (PreparedStatement ps = Base.connection().prepareStatement(sql)) {
+            ps.setInt(1, crn);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    roster.add(rs.getLong("studentid"));
+                }
+            }
+        } catch (SQLException e) {
+            throw new DBException(e);
+        }
+        return roster;
+    }
+
+}
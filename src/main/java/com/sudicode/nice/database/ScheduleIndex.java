@@ -0,0 +1,176 @@
+package com.sudicode.nice.database;
+
+import com.sudicode.nice.Constants;
+
+import java.time.DayOfWeek;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Immutable index of the meeting windows of every {@link Course}, which answers "which courses are in session at this
+ * time" with a binary search. Each day of the week is cut into elementary segments at every start and end time, and
+ * each segment holds the CRNs of the courses which are in session throughout it.
+ * <p>
+ * A course counts as in session from {@link Constants#SESSION_LEAD_MINUTES} before its start time until its end time,
+ * so that students who arrive early are routed to it. The index holds a detached copy of each course rather than the
+ * {@link Course} models it was built from, so it can be shared by any number of threads. The current index is built on
+ * first use, is discarded by {@link Course#saveIt()}, {@link Course#insert()} and {@link Course#deleteIt()}, and,
+ * since courses may also be changed by other terminals sharing the database, is built again once it is older than
+ * {@link Constants#SCHEDULE_INDEX_TTL_MS}.
+ */
+public class ScheduleIndex {
+
+    private static final int[] NONE = new int[0];
+    private static final long TTL_NANOS = TimeUnit.MILLISECONDS.toNanos(Constants.SCHEDULE_INDEX_TTL_MS);
+
+    private static volatile ScheduleIndex current;
+
+    private final int[][] bounds = new int[Constants.DAYS_OF_WEEK][];
+    private final int[][][] segments = new int[Constants.DAYS_OF_WEEK][][];
+    private final Map<Integer, Map<String, Object>> attributes = new HashMap<>();
+    private final long builtNanos;
+
+    /**
+     * Construct a new {@link ScheduleIndex}.
+     *
+     * @param courses     The courses to index
+     * @param leadSeconds Number of seconds before its start time at which a course is considered in session
+     */
+    ScheduleIndex(List<Course> courses, int leadSeconds) {
+        this(courses, leadSeconds, System.nanoTime());
+    }
+
+    /**
+     * Construct a new {@link ScheduleIndex}.
+     *
+     * @param courses     The courses to index
+     * @param leadSeconds Number of seconds before its start time at which a course is considered in session
+     * @param builtNanos  {@link System#nanoTime()} at which the courses were loaded
+     */
+    private ScheduleIndex(List<Course> courses, int leadSeconds, long builtNanos) {
+        this.builtNanos = builtNanos;
+        for (Course course : courses) {
+            attributes.put(course.getCrn(), Collections.unmodifiableMap(new HashMap<>(course.toMap())));
+        }
+        for (DayOfWeek dayOfWeek : DayOfWeek.values()) {
+            // Sweep the start and end times in order, tracking which courses are in session after each one.
+            TreeMap<Integer, List<Integer>> starts = new TreeMap<>();
+            TreeMap<Integer, List<Integer>> ends = new TreeMap<>();
+            for (Course course : courses) {
+                WeeklySchedule schedule = course.getSchedule();
+                if (schedule.meetsOn(dayOfWeek)) {
+                    int start = Math.max(0, schedule.getStartSecond(dayOfWeek) - leadSeconds);
+                    int end = schedule.getEndSecond(dayOfWeek);
+                    if (start < end) {
+                        starts.computeIfAbsent(start, key -> new ArrayList<>()).add(course.getCrn());
+                        ends.computeIfAbsent(end, key -> new ArrayList<>()).add(course.getCrn());
+                    }
+                }
+            }
+
+            TreeMap<Integer, int[]> sessions = new TreeMap<>();
+            TreeSet<Integer> active = new TreeSet<>();
+            while (!starts.isEmpty() || !ends.isEmpty()) {
+                int second = Math.min(
+                        starts.isEmpty() ? Integer.MAX_VALUE : starts.firstKey(),
+                        ends.isEmpty() ? Integer.MAX_VALUE : ends.firstKey());
+                if (!ends.isEmpty() && ends.firstKey() == second) {
+                    active.removeAll(ends.pollFirstEntry().getValue());
+                }
+                if (!starts.isEmpty() && starts.firstKey() == second) {
+                    active.addAll(starts.pollFirstEntry().getValue());
+                }
+                sessions.put(second, active.isEmpty() ? NONE : active.stream().mapToInt(Integer::intValue).toArray());
+            }
+
+            int day = dayOfWeek.getValue() - 1;
+            bounds[day] = sessions.keySet().stream().mapToInt(Integer::intValue).toArray();
+            segments[day] = sessions.values().toArray(new int[sessions.size()][]);
+        }
+    }
+
+    /**
+     * Find the courses in session at a given time.
+     *
+     * @param dayOfWeek   The {@link DayOfWeek}
+     * @param secondOfDay Second of the day, as in {@link java.time.LocalTime#toSecondOfDay()}
+     * @return The CRNs of the courses in session, in ascending order. The array is shared and must not be modified.
+     */
+    public int[] inSession(DayOfWeek dayOfWeek, int secondOfDay) {
+        int day = dayOfWeek.getValue() - 1;
+        int i = Arrays.binarySearch(bounds[day], secondOfDay);
+        if (i < 0) {
+            i = -i - 2;
+        }
+        return i >= 0 ? segments[day][i] : NONE;
+    }
+
+    /**
+     * Find the courses in session at a given time.
+     *
+     * @param dateTime The {@link LocalDateTime}
+     * @return The CRNs of the courses in session, in ascending order. The array is shared and must not be modified.
+     */
+    public int[] inSession(LocalDateTime dateTime) {
+        return inSession(dateTime.getDayOfWeek(), dateTime.toLocalTime().toSecondOfDay());
+    }
+
+    /**
+     * Get a course of the index, as it was when the index was built. Each call returns a new {@link Course}, which
+     * belongs to the caller.
+     *
+     * @param crn Course registration number
+     * @return The {@link Course}, or <code>null</code> if it is not in the index
+     */
+    public Course getCourse(int crn) {
+        Map<String, Object> course = attributes.get(crn);
+        return course != null ? new Course().fromMap(course) : null;
+    }
+
+    /**
+     * Get the current index. If it has not been built yet, or is stale, every course is loaded using the current
+     * thread's connection.
+     *
+     * @return The {@link ScheduleIndex}
+     */
+    public static ScheduleIndex get() {
+        return get(System.nanoTime());
+    }
+
+    /**
+     * Get the index at a given time.
+     *
+     * @param nanoTime The current {@link System#nanoTime()}
+     * @return The {@link ScheduleIndex}
+     */
+    static ScheduleIndex get(long nanoTime) {
+        ScheduleIndex index = current;
+        if (index == null || nanoTime - index.builtNanos >= TTL_NANOS) {
+            synchronized (ScheduleIndex.class) {
+                index = current;
+                if (index == null || nanoTime - index.builtNanos >= TTL_NANOS) {
+                    index = new ScheduleIndex(Course.findAll(),
+                            (int) TimeUnit.MINUTES.toSeconds(Constants.SESSION_LEAD_MINUTES), nanoTime);
+                    current = index;
+                }
+            }
+        }
+        return index;
+    }
+
+    /**
+     * Discard the current index, so that it is rebuilt on next use.
+     */
+    static synchronized void invalidate() {
+        current = null;
+    }
+
+}
@@ -0,0 +1,104 @@
+package com.sudicode.nice.database;
+
+import org.javalite.activejdbc.Base;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.format.DateTimeFormatter;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Computes attendance statuses (present, late, absent) for every student in a {@link Course} at once.
+ */
+public class StatusService {
+
+    private static final DateTimeFormatter TIME_FORMAT = DateTimeFormatter.ofPattern("h:mm a");
+
+    /**
+     * Illegal.
+     */
+    private StatusService() {
+    }
+
+    /**
+     * Get the status of every student enrolled in a {@link Course}, using a single query.
+     *
+     * @param course The {@link Course}
+     * @param date   The {@link LocalDate}
+     * @return Map of student ID to "present", "late", "absent", or "no class"
+     * @throws SQLException if a database access error occurs
+     */
+    public static Map<Long, String> getStatuses(Course course, LocalDate date) throws SQLException {
+        return getStatuses(course, date, Long.MIN_VALUE, Long.MAX_VALUE);
+    }
+
+    /**
+     * Get the status of every student enrolled in a {@link Course} whose ID is in a range, such as a page of the
+     * roster, using a single query.
+     *
+     * @param course        The {@link Course}
+     * @param date          The {@link LocalDate}
+     * @param fromStudentId Lowest student ID, inclusive
+     * @param toStudentId   Highest student ID, inclusive
+     * @return Map of student ID to "present", "late", "absent", or "no class"
+     * @throws SQLException if a database access error occurs
+     */
+    public static Map<Long, String> getStatuses(Course course, LocalDate date, long fromStudentId, long toStudentId)
+            throws SQLException {
+        String sql = "SELECT r.studentid, MIN(a.datetime) AS first "
+                + "FROM Registrations r "
+                + "LEFT JOIN Attendances a "
+                + "ON a.studentid = r.studentid AND a.crn = r.crn AND a.datetime >= ? AND a.datetime < ? "
+                + "WHERE r.crn = ? AND r.studentid BETWEEN ? AND ? "
+                + "GROUP BY r.studentid";
+        Map<Long, String> statuses = new HashMap<>();
+        try (PreparedStatement ps = Base.connection().prepareStatement(sql)) {
+            ps.setTimestamp(1, Timestamp.valueOf(date.atStartOfDay()));
+            ps.setTimestamp(2, Timestamp.valueOf(date.plusDays(1).atStartOfDay()));
+            ps.setInt(3, course.getCrn());
+            ps.setLong(4, fromStudentId);
+            ps.setLong(5, toStudentId);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    statuses.put(rs.getLong("studentid"), classify(course, date, rs.getTimestamp("first")));
+                }
+            }
+        }
+        return statuses;
+    }
+
+    /**
+     * Classify a student's first attendance of the day against a {@link Course} schedule.
+     *
+     * @param course    The {@link Course}
+     * @param date      The {@link LocalDate}
+     * @param timestamp Time of the student's first attendance on <code>date</code>, or <code>null</code> if none
+     * @return "present", "late", "absent", or "no class"
+     */
+    static String classify(Course course, LocalDate date, Timestamp timestamp) {
+        WeeklySchedule schedule = course.getSchedule();
+        DayOfWeek dayOfWeek = date.getDayOfWeek();
+        if (!schedule.meetsOn(dayOfWeek)) {
+            return "no class";
+        } else if (timestamp == null) {
+            return "absent";
+        } else {
+            LocalTime attendTime = timestamp.toLocalDateTime().toLocalTime();
+            int attendSecond = attendTime.toSecondOfDay();
+            if (attendSecond > schedule.getEndSecond(dayOfWeek)) {
+                return "absent";
+            } else if (attendSecond > schedule.getStartSecond(dayOfWeek)) {
+                return "late (" + attendTime.format(TIME_FORMAT) + ")";
+            } else {
+                return "present (" + attendTime.format(TIME_FORMAT) + ")";
+            }
+        }
+    }
+
+}
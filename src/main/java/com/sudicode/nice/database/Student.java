@@ -6,14 +6,12 @@ import org.javalite.activejdbc.Model;
 import org.javalite.activejdbc.annotations.IdName;
 import org.javalite.activejdbc.annotations.Table;
 
-import java.sql.Date;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Timestamp;
 import java.time.LocalDate;
-import java.time.LocalTime;
-import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
 import java.util.List;
 
 /**
@@ -24,18 +22,18 @@ import java.util.List;
 @Table("Students")
 public class Student extends Model {
 
-    private int studentId;
+    private long studentId;
     private String firstName;
     private String middleName;
     private String lastName;
     private String email;
 
-    public int getStudentId() {
-        return isFrozen() ? studentId : getInteger("studentid");
+    public long getStudentId() {
+        return isFrozen() ? studentId : getLong("studentid");
     }
 
-    public void setStudentId(int studentId) {
-        setInteger("studentid", studentId);
+    public void setStudentId(long studentId) {
+        setLong("studentid", studentId);
     }
 
     public String getFirstName() {
@@ -75,20 +73,23 @@ public class Student extends Model {
      *
      * @param course The {@link Course}
      * @param date   The {@link LocalDate}
-     * @return "present", "late", or "absent"
+     * @return "present", "late", "absent", or "no class"
      * @throws SQLException if a database access error occurs
+     * @see StatusService#getStatuses(Course, LocalDate)
      */
     public String getStatus(Course course, LocalDate date) throws SQLException {
         // Query the database.
         String sql = "SELECT datetime "
                 + "FROM Attendances "
-                + "WHERE studentid = ? AND crn = ? AND CAST(datetime AS DATE) = ? "
-                + "ORDER BY datetime";
+                + "WHERE studentid = ? AND crn = ? AND datetime >= ? AND datetime < ? "
+                + "ORDER BY datetime "
+                + "LIMIT 1";
         Timestamp timestamp = null;
         try (PreparedStatement ps = Base.connection().prepareStatement(sql)) {
-            ps.setInt(1, getStudentId());
+            ps.setLong(1, getStudentId());
             ps.setInt(2, course.getCrn());
-            ps.setDate(3, Date.valueOf(date));
+            ps.setTimestamp(3, Timestamp.valueOf(date.atStartOfDay()));
+            ps.setTimestamp(4, Timestamp.valueOf(date.plusDays(1).atStartOfDay()));
             ResultSet rs = ps.executeQuery();
             if (rs.next()) {
                 timestamp = rs.getTimestamp("datetime");
@@ -96,22 +97,7 @@ public class Student extends Model {
         }
 
         // Return status.
-        LocalTime courseStart = course.getStart(date.getDayOfWeek());
-        LocalTime courseEnd = course.getEnd(date.getDayOfWeek());
-        if (courseStart == null || courseEnd == null) {
-            return "no class";
-        } else if (timestamp == null) {
-            return "absent";
-        } else {
-            LocalTime attendTime = timestamp.toLocalDateTime().toLocalTime();
-            if (attendTime.isAfter(courseEnd)) {
-                return "absent";
-            } else if (attendTime.isAfter(courseStart)) {
-                return "late (" + attendTime.format(DateTimeFormatter.ofPattern("h:mm a")) + ")";
-            } else {
-                return "present (" + attendTime.format(DateTimeFormatter.ofPattern("h:mm a")) + ")";
-            }
-        }
+        return StatusService.classify(course, date, timestamp);
     }
 
     /**
@@ -123,24 +109,72 @@ public class Student extends Model {
         this.middleName = getMiddleName();
         this.lastName = getLastName();
         this.email = getEmail();
-        delete();
+        try {
+            delete();
+        } finally {
+            StudentCache.invalidate(studentId);
+        }
+        RosterIndex.studentDeleted(studentId);
+    }
+
+    @Override
+    public boolean saveIt() {
+        try {
+            return super.saveIt();
+        } finally {
+            StudentCache.invalidate(getStudentId());
+        }
+    }
+
+    @Override
+    public boolean insert() {
+        try {
+            return super.insert();
+        } finally {
+            StudentCache.invalidate(getStudentId());
+        }
     }
 
     /**
-     * Enroll this student in a {@link Course}.
+     * Enroll this student in a {@link Course}. Does nothing if the student is already enrolled, such as by another
+     * terminal.
      *
      * @param course The {@link Course} to enroll in
      * @throws SQLException if a database access error occurs
      */
     public void enroll(Course course) throws SQLException {
-        String sql = "INSERT INTO Registrations (studentid, crn) VALUES (?, ?)";
+        String sql = "INSERT INTO Registrations (studentid, crn) "
+                + "SELECT studentid, ? FROM Students "
+                + "WHERE studentid = ? "
+                + "AND NOT EXISTS (SELECT 1 FROM Registrations WHERE studentid = ? AND crn = ?)";
         try (PreparedStatement ps = Base.connection().prepareStatement(sql)) {
-            ps.setInt(1, getStudentId());
-            ps.setInt(2, course.getCrn());
-            if (ps.executeUpdate() != 1) {
+            ps.setInt(1, course.getCrn());
+            ps.setLong(2, getStudentId());
+            ps.setLong(3, getStudentId());
+            ps.setInt(4, course.getCrn());
+            if (ps.executeUpdate() != 1 && !isEnrolled(course)) {
                 throw new SQLException("Enroll failed.");
             }
         }
+        RosterIndex.enrolled(course.getCrn(), getStudentId());
+    }
+
+    /**
+     * Check the database for whether this student is enrolled in a {@link Course}.
+     *
+     * @param course The {@link Course}
+     * @return <code>true</code> if the student is enrolled
+     * @throws SQLException if a database access error occurs
+     */
+    private boolean isEnrolled(Course course) throws SQLException {
+        String sql = "SELECT 1 FROM Registrations WHERE studentid = ? AND crn = ?";
+        try (PreparedStatement ps = Base.connection().prepareStatement(sql)) {
+            ps.setLong(1, getStudentId());
+            ps.setInt(2, course.getCrn());
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next();
+            }
+        }
     }
 
     /**
@@ -152,7 +186,7 @@ public class Student extends Model {
     public void attend(Course course) throws SQLException {
         String sql = "INSERT INTO Attendances (studentid, crn) VALUES (?, ?)";
         try (PreparedStatement ps = Base.connection().prepareStatement(sql)) {
-            ps.setInt(1, getStudentId());
+            ps.setLong(1, getStudentId());
             ps.setInt(2, course.getCrn());
             if (ps.executeUpdate() != 1) {
                 throw new SQLException("Enroll failed.");
@@ -174,6 +208,51 @@ public class Student extends Model {
         return findBySQL(sql, crn);
     }
 
+    /**
+     * Obtain the IDs of the students who are enrolled in a course, in ascending order. Much lighter than
+     * {@link #findByCrn(int)}, since no student is loaded.
+     *
+     * @param crn Course registration number
+     * @return The student IDs
+     * @throws SQLException if a database access error occurs
+     */
+    public static long[] findIdsByCrn(int crn) throws SQLException {
+        String sql = "SELECT studentid FROM Registrations WHERE crn = ? ORDER BY studentid";
+        long[] ids = new long[16];
+        int count = 0;
+        try (PreparedStatement ps = Base.connection().prepareStatement(sql)) {
+            ps.setInt(1, crn);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    if (count == ids.length) {
+                        ids = Arrays.copyOf(ids, count * 2);
+                    }
+                    ids[count++] = rs.getLong(1);
+                }
+            }
+        }
+        return Arrays.copyOf(ids, count);
+    }
+
+    /**
+     * Obtain a page of the students who are enrolled in a course, in ascending order of ID. Pages are found by
+     * keyset, seeking to the first ID of the page, so a page deep in a large course costs no more than the first.
+     *
+     * @param crn           Course registration number
+     * @param fromStudentId Lowest student ID of the page
+     * @param limit         Maximum number of students
+     * @return List of students
+     */
+    public static List<Student> findPageByCrn(int crn, long fromStudentId, int limit) {
+        String sql = "SELECT s.studentid, s.firstname, s.middlename, s.lastname, s.email "
+                + "FROM Students s "
+                + "NATURAL JOIN Registrations r "
+                + "WHERE r.crn = ? AND r.studentid >= ? "
+                + "ORDER BY r.studentid "
+                + "LIMIT ?";
+        return findBySQL(sql, crn, fromStudentId, limit);
+    }
+
     @Override
     public String toString() {
         return getFirstName() + " " + getLastName();
@@ -0,0 +1,113 @@
+package com.sudicode.nice.database;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.sudicode.nice.Constants;
+import org.javalite.activejdbc.ModelListener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Size-bounded cache of {@link Student Students} keyed by card UID, placed in front of {@link Student#findById}.
+ * UIDs which do not belong to any student are cached negatively for a short time, so that repeated taps by an
+ * unregistered card do not reach the database. Entries are invalidated by {@link Student#saveIt()},
+ * {@link Student#insert()} and {@link Student#deleteIt()}; since students may also be changed by other terminals
+ * sharing the database, students expire after {@link Constants#STUDENT_CACHE_TTL_MS}, and dialogs which change a
+ * student look them up with {@link #refresh(long)}.
+ */
+public class StudentCache {
+
+    private static final Logger log = LoggerFactory.getLogger(StudentCache.class);
+
+    private static final Cache<Long, Student> students = CacheBuilder.newBuilder()
+            .maximumSize(Constants.STUDENT_CACHE_SIZE)
+            .expireAfterWrite(Constants.STUDENT_CACHE_TTL_MS, TimeUnit.MILLISECONDS)
+            .recordStats()
+            .build();
+    private static final Cache<Long, Boolean> unknown = CacheBuilder.newBuilder()
+            .maximumSize(Constants.STUDENT_CACHE_SIZE)
+            .expireAfterWrite(Constants.STUDENT_CACHE_NEGATIVE_TTL_MS, TimeUnit.MILLISECONDS)
+            .build();
+    private static final AtomicLong negativeHits = new AtomicLong();
+
+    /**
+     * Illegal.
+     */
+    private StudentCache() {
+    }
+
+    /**
+     * Find a student by card UID, querying the database with the current thread's connection on a cache miss.
+     *
+     * @param uid Card UID
+     * @return The {@link Student}, or <code>null</code> if no student has the UID
+     */
+    public static Student get(long uid) {
+        Student student = students.getIfPresent(uid);
+        if (student != null) {
+            return student;
+        }
+        if (unknown.getIfPresent(uid) != null) {
+            negativeHits.incrementAndGet();
+            return null;
+        }
+        student = Student.findById(uid);
+        if (student != null) {
+            students.put(uid, student);
+        } else {
+            unknown.put(uid, Boolean.TRUE);
+        }
+        return student;
+    }
+
+    /**
+     * Find a student by card UID, always querying the database with the current thread's connection, and cache the
+     * result. Used before registering, updating or deleting a student, which must not act on a stale entry.
+     *
+     * @param uid Card UID
+     * @return The {@link Student}, or <code>null</code> if no student has the UID
+     */
+    public static Student refresh(long uid) {
+        invalidate(uid);
+        return get(uid);
+    }
+
+    /**
+     * Load every student into the cache with a single streamed query, using the current thread's connection.
+     */
+    public static void warmUp() {
+        long start = System.nanoTime();
+        Student.findWith((ModelListener<Student>) student -> students.put(student.getStudentId(), student), "1 = 1");
+        log.info("Loaded {} students into cache in {} ms.", students.size(),
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    }
+
+    /**
+     * Discard any cached entry, positive or negative, for a UID.
+     *
+     * @param uid Card UID
+     */
+    static void invalidate(long uid) {
+        students.invalidate(uid);
+        unknown.invalidate(uid);
+    }
+
+    /**
+     * @return Hit, miss and eviction statistics of the student cache
+     */
+    public static CacheStats getStats() {
+        return students.stats();
+    }
+
+    /**
+     * @return Number of lookups answered by the negative cache
+     */
+    public static long getNegativeHitCount() {
+        return negativeHits.get();
+    }
+
+}
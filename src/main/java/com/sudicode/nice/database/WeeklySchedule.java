@@ -0,0 +1,85 @@
+package com.sudicode.nice.database;
+
+import com.sudicode.nice.Constants;
+
+import java.time.DayOfWeek;
+import java.time.LocalTime;
+
+/**
+ * Immutable weekly meeting times of a {@link Course}, stored as seconds of the day so that lookups do not allocate.
+ */
+public final class WeeklySchedule {
+
+    /**
+     * Marks a day on which there is no start or end time.
+     */
+    public static final int NONE = -1;
+
+    private final int[] seconds;
+
+    /**
+     * Construct a new {@link WeeklySchedule}.
+     *
+     * @param seconds Start and end second of the day for each day from Monday to Sunday, in the order
+     *                <code>{mondayStart, mondayEnd, tuesdayStart, ...}</code>, or {@link #NONE}
+     */
+    WeeklySchedule(int[] seconds) {
+        if (seconds.length != 2 * Constants.DAYS_OF_WEEK) {
+            throw new IllegalArgumentException("Expected " + 2 * Constants.DAYS_OF_WEEK + " values");
+        }
+        this.seconds = seconds.clone();
+    }
+
+    /**
+     * @param dayOfWeek The {@link DayOfWeek}
+     * @return <code>true</code> if the course has both a start and an end time on the given day
+     */
+    public boolean meetsOn(DayOfWeek dayOfWeek) {
+        return getStartSecond(dayOfWeek) != NONE && getEndSecond(dayOfWeek) != NONE;
+    }
+
+    /**
+     * @param dayOfWeek   The {@link DayOfWeek}
+     * @param secondOfDay Second of the day, as in {@link LocalTime#toSecondOfDay()}
+     * @return <code>true</code> if the course meets on the given day, and the given time is at or after the start time
+     * and before the end time
+     */
+    public boolean isInSession(DayOfWeek dayOfWeek, int secondOfDay) {
+        return meetsOn(dayOfWeek)
+                && secondOfDay >= getStartSecond(dayOfWeek)
+                && secondOfDay < getEndSecond(dayOfWeek);
+    }
+
+    /**
+     * @param dayOfWeek The {@link DayOfWeek}
+     * @return Start time as a second of the day, or {@link #NONE}
+     */
+    public int getStartSecond(DayOfWeek dayOfWeek) {
+        return seconds[2 * (dayOfWeek.getValue() - 1)];
+    }
+
+    /**
+     * @param dayOfWeek The {@link DayOfWeek}
+     * @return End time as a second of the day, or {@link #NONE}
+     */
+    public int getEndSecond(DayOfWeek dayOfWeek) {
+        return seconds[2 * (dayOfWeek.getValue() - 1) + 1];
+    }
+
+    /**
+     * @param time A {@link LocalTime}, or <code>null</code>
+     * @return The second of the day, or {@link #NONE} if <code>time</code> is <code>null</code>
+     */
+    static int toSecond(LocalTime time) {
+        return time != null ? time.toSecondOfDay() : NONE;
+    }
+
+    /**
+     * @param second A second of the day, or {@link #NONE}
+     * @return The {@link LocalTime}, or <code>null</code> if <code>second</code> is {@link #NONE}
+     */
+    static LocalTime toLocalTime(int second) {
+        return second != NONE ? LocalTime.ofSecondOfDay(second) : null;
+    }
+
+}
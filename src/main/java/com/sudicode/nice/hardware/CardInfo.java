@@ -0,0 +1,64 @@
+package com.sudicode.nice.hardware;
+
+import com.google.common.io.BaseEncoding;
+
+/**
+ * Fields read from a card in a single session by {@link CardReader#readCardInfo(int...)}, for validating the card.
+ */
+public class CardInfo {
+
+    private final long uid;
+    private final byte[] ats;
+    private final byte[][] blocks;
+
+    /**
+     * Construct a new {@link CardInfo}.
+     *
+     * @param uid    The card's UID
+     * @param ats    Historical bytes of the card's answer to select
+     * @param blocks Contents of the data blocks, in the order they were requested
+     */
+    public CardInfo(long uid, byte[] ats, byte[][] blocks) {
+        this.uid = uid;
+        this.ats = ats.clone();
+        this.blocks = new byte[blocks.length][];
+        for (int i = 0; i < blocks.length; i++) {
+            this.blocks[i] = blocks[i].clone();
+        }
+    }
+
+    /**
+     * @return The card's UID
+     */
+    public long getUid() {
+        return uid;
+    }
+
+    /**
+     * @return Historical bytes of the card's answer to select
+     */
+    public byte[] getAts() {
+        return ats.clone();
+    }
+
+    /**
+     * @return Number of data blocks read
+     */
+    public int getBlockCount() {
+        return blocks.length;
+    }
+
+    /**
+     * @param index Index of the block, in the order the blocks were requested
+     * @return Contents of the block
+     */
+    public byte[] getBlock(int index) {
+        return blocks[index].clone();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%08X (ATS %s, %d blocks)", uid, BaseEncoding.base16().encode(ats), blocks.length);
+    }
+
+}
@@ -0,0 +1,25 @@
+package com.sudicode.nice.hardware;
+
+import javax.smartcardio.CardTerminal;
+
+/**
+ * Receives card presence events from a {@link CardMonitor}. Methods are called on the monitor's thread, so they
+ * should return quickly.
+ */
+public interface CardListener {
+
+    /**
+     * Called when a card is placed on a terminal.
+     *
+     * @param terminal The {@link CardTerminal}
+     */
+    void cardInserted(CardTerminal terminal);
+
+    /**
+     * Called when a card is removed from a terminal.
+     *
+     * @param terminal The {@link CardTerminal}
+     */
+    void cardRemoved(CardTerminal terminal);
+
+}
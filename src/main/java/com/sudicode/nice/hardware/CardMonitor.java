@@ -0,0 +1,127 @@
+package com.sudicode.nice.hardware;
+
+import com.sudicode.nice.Constants;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.smartcardio.CardException;
+import javax.smartcardio.CardTerminal;
+import javax.smartcardio.CardTerminals;
+import javax.smartcardio.CardTerminals.State;
+import java.io.Closeable;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.BiConsumer;
+
+/**
+ * Watches every terminal of a {@link CardTerminals} for cards being placed and removed, using
+ * {@link CardTerminals#waitForChange(long)} on a single thread, and publishes the changes to its
+ * {@link CardListener CardListeners}. No thread has to block on, or poll, an individual terminal.
+ */
+public class CardMonitor implements Closeable {
+
+    private static final Logger log = LoggerFactory.getLogger(CardMonitor.class);
+
+    private final CardTerminals terminals;
+    private final List<CardListener> listeners = new CopyOnWriteArrayList<>();
+    private Thread thread;
+
+    /**
+     * Construct a new {@link CardMonitor}.
+     *
+     * @param terminals The {@link CardTerminals} to watch
+     */
+    public CardMonitor(CardTerminals terminals) {
+        this.terminals = terminals;
+    }
+
+    /**
+     * Subscribe to card presence events.
+     *
+     * @param listener The {@link CardListener}
+     */
+    public void subscribe(CardListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Unsubscribe from card presence events.
+     *
+     * @param listener The {@link CardListener}
+     */
+    public void unsubscribe(CardListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Start watching the terminals. Cards which are already present are published as inserted.
+     */
+    public synchronized void start() {
+        if (thread != null) {
+            throw new IllegalStateException("Already started");
+        }
+        thread = new Thread(this::run, "nice-card-monitor");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Stop watching the terminals. The monitor thread notices within {@link Constants#CARD_MONITOR_TIMEOUT_MS}.
+     */
+    @Override
+    public synchronized void close() {
+        if (thread == null) {
+            return;
+        }
+        thread.interrupt();
+        try {
+            thread.join(Constants.SHUTDOWN_TIMEOUT_MS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Publish changes until interrupted. If the terminals cannot be watched, for example because the smart card
+     * service is restarting, try again after {@link Constants#READER_RETRY_MS}.
+     */
+    private void run() {
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                // The first wait returns at once if a card is present, and lists it as inserted.
+                if (terminals.waitForChange(Constants.CARD_MONITOR_TIMEOUT_MS)) {
+                    // Removals first, so that a card swapped between two waits ends its session before the next begins
+                    publish(terminals.list(State.CARD_REMOVAL), CardListener::cardRemoved);
+                    publish(terminals.list(State.CARD_INSERTION), CardListener::cardInserted);
+                }
+            } catch (CardException | IllegalStateException e) {
+                log.warn("Could not watch card terminals", e);
+                try {
+                    Thread.sleep(Constants.READER_RETRY_MS);
+                } catch (InterruptedException ie) {
+                    break;
+                }
+            }
+        }
+        log.debug("Stopped watching card terminals");
+    }
+
+    /**
+     * Publish an event for each terminal to every listener.
+     *
+     * @param changed The terminals whose state changed
+     * @param event   The listener method to call
+     */
+    private void publish(List<CardTerminal> changed, BiConsumer<CardListener, CardTerminal> event) {
+        for (CardTerminal terminal : changed) {
+            for (CardListener listener : listeners) {
+                try {
+                    event.accept(listener, terminal);
+                } catch (RuntimeException e) {
+                    log.error("Card listener failed", e);
+                }
+            }
+        }
+    }
+
+}
@@ -4,13 +4,37 @@ import javax.smartcardio.CardException;
 import javax.smartcardio.CommandAPDU;
 import javax.smartcardio.ResponseAPDU;
 import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * Smart card reader.
  */
 public class CardReader {
 
+    /**
+     * GET DATA command for the UID of the card (PC/SC Part 3).
+     */
+    private static final byte[] GET_UID = {(byte) 0xFF, (byte) 0xCA, (byte) 0x00, (byte) 0x00, (byte) 0x00};
+
+    /**
+     * GET DATA command for the historical bytes of the card's answer to select (PC/SC Part 3).
+     */
+    private static final CommandAPDU GET_ATS = new CommandAPDU(0xFF, 0xCA, 0x01, 0x00, 256);
+
+    /**
+     * Size of a data block returned by READ BINARY, in bytes.
+     */
+    private static final int BLOCK_SIZE = 16;
+
+    /**
+     * Room for the longest response to GET DATA: 256 bytes of data and the status word.
+     */
+    private static final int MAX_RESPONSE_LENGTH = 258;
+
     private final Device device;
+    private final ByteBuffer command = ByteBuffer.wrap(GET_UID).asReadOnlyBuffer();
+    private final ByteBuffer response = ByteBuffer.allocate(MAX_RESPONSE_LENGTH);
 
     /**
      * Construct a new {@link CardReader}.
@@ -22,28 +46,78 @@ public class CardReader {
     }
 
     /**
-     * Access the card reader and wait for a card. Once the card is present, read its UID.
+     * Read the UID of the card on the card reader. The command and response buffers are reused, and the UID is
+     * decoded in place by {@link UidCodec}, so a read allocates nothing unless the {@link Device} does.
      *
      * @return The UID
      * @throws CardException if the operation failed
      */
-    public int readUID() throws CardException {
-        CommandAPDU command = new CommandAPDU(new byte[]{(byte) 0xFF, (byte) 0xCA, (byte) 0x00, (byte) 0x00, (byte) 0x00});
-        ResponseAPDU response = device.sendCommand(command);
+    public synchronized long readUID() throws CardException {
+        command.clear();
+        response.clear();
+        int length = device.sendCommand(command, response);
+        if (length < 2) {
+            throw new CardException("Malformed response");
+        }
 
-        int sw = response.getSW();
-        if (sw != 0x9000) {
+        int sw = ((response.get(length - 2) & 0xFF) << 8) | (response.get(length - 1) & 0xFF);
+        if (sw != Device.SW_SUCCESS) {
             throw new CardException(String.format("Command failed (SW=0x%04X)", sw));
         } else {
-            byte[] data = response.getData();
-            if (data.length < 4) {
-                // Zerofill necessary
-                byte[] newArray = new byte[4];
-                System.arraycopy(data, 0, newArray, 4 - data.length, data.length);
-                data = newArray;
+            return decodeUID(response, length - 2);
+        }
+    }
+
+    /**
+     * Read the UID, the answer to select and some data blocks of the card on the card reader, in a single session.
+     * The reads are sent as one script, which stops at the first failure: cards without an answer to select, such as
+     * MIFARE Classic, fail on the second command. Blocks which need authentication cannot be read.
+     *
+     * @param blocks Numbers of the blocks to read, from 0 to 255
+     * @return The {@link CardInfo}
+     * @throws CommandFailedException if one of the reads was answered with an error status word
+     * @throws CardException          if the operation failed
+     */
+    public CardInfo readCardInfo(int... blocks) throws CardException {
+        List<CommandAPDU> script = new ArrayList<>(2 + blocks.length);
+        script.add(new CommandAPDU(GET_UID));
+        script.add(GET_ATS);
+        for (int block : blocks) {
+            if (block < 0 || block > 0xFF) {
+                throw new IllegalArgumentException("Invalid block number: " + block);
             }
-            return ByteBuffer.wrap(data).getInt();
+            script.add(new CommandAPDU(0xFF, 0xB0, 0x00, block, BLOCK_SIZE));
+        }
+
+        List<ResponseAPDU> responses = device.sendCommands(script);
+        byte[][] data = new byte[blocks.length][];
+        for (int i = 0; i < blocks.length; i++) {
+            data[i] = responses.get(2 + i).getData();
+        }
+        byte[] uid = responses.get(0).getData();
+        return new CardInfo(decodeUID(ByteBuffer.wrap(uid), uid.length), responses.get(1).getData(), data);
+    }
+
+    /**
+     * @param buffer Buffer starting with the UID
+     * @param length Length of the UID, in bytes
+     * @return The UID
+     * @throws CardException if the UID is too long to decode
+     */
+    private static long decodeUID(ByteBuffer buffer, int length) throws CardException {
+        if (length > UidCodec.MAX_LENGTH) {
+            throw new CardException(String.format("Unsupported UID length (%d bytes)", length));
         }
+        return UidCodec.decode(buffer, 0, length);
+    }
+
+    /**
+     * End the session with the card, such as when it has been removed.
+     *
+     * @see Device#disconnect()
+     */
+    public void disconnect() {
+        device.disconnect();
     }
 
 }
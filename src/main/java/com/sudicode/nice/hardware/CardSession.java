@@ -0,0 +1,70 @@
+package com.sudicode.nice.hardware;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Timing of one connection to a card, from connect until the card is removed.
+ */
+public class CardSession {
+
+    private final long connectNanos;
+    private volatile int commandCount;
+    private volatile long transmitNanos;
+    private volatile long maxTransmitNanos;
+
+    /**
+     * Construct a new {@link CardSession}.
+     *
+     * @param connectNanos Time taken to connect to the card, in nanoseconds
+     */
+    CardSession(long connectNanos) {
+        this.connectNanos = connectNanos;
+    }
+
+    /**
+     * Record a transmitted command. Must be called with the device's lock held.
+     *
+     * @param nanos Time taken to transmit the command and receive the response, in nanoseconds
+     */
+    void recordTransmit(long nanos) {
+        commandCount++;
+        transmitNanos += nanos;
+        maxTransmitNanos = Math.max(maxTransmitNanos, nanos);
+    }
+
+    /**
+     * @return Time taken to connect to the card, in nanoseconds
+     */
+    public long getConnectNanos() {
+        return connectNanos;
+    }
+
+    /**
+     * @return Number of commands transmitted during the session
+     */
+    public int getCommandCount() {
+        return commandCount;
+    }
+
+    /**
+     * @return Total time spent transmitting commands, in nanoseconds
+     */
+    public long getTransmitNanos() {
+        return transmitNanos;
+    }
+
+    /**
+     * @return Longest time spent transmitting a single command, in nanoseconds
+     */
+    public long getMaxTransmitNanos() {
+        return maxTransmitNanos;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("connect %d us, %d commands, transmit %d us (max %d us)",
+                TimeUnit.NANOSECONDS.toMicros(connectNanos), commandCount,
+                TimeUnit.NANOSECONDS.toMicros(transmitNanos), TimeUnit.NANOSECONDS.toMicros(maxTransmitNanos));
+    }
+
+}
@@ -9,15 +9,28 @@ import javax.smartcardio.CardException;
 import javax.smartcardio.CardTerminal;
 import javax.smartcardio.CommandAPDU;
 import javax.smartcardio.ResponseAPDU;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
- * {@link Device} that uses a {@link CardTerminal} to transmit {@link CommandAPDU CommandAPDUs}.
+ * {@link Device} that uses a {@link CardTerminal} to transmit {@link CommandAPDU CommandAPDUs} to the card on it. The
+ * connection to a card is kept open and reused for every command until {@link #disconnect()} is called, normally when
+ * the card is removed.
  */
 public class CardTerminalDevice implements Device {
 
     private static final Logger log = LoggerFactory.getLogger(CardTerminalDevice.class);
 
     private final CardTerminal cardTerminal;
+    private final Lock lock = new ReentrantLock();
+
+    private Card card;
+    private CardChannel channel;
+    private volatile CardSession session;
+    private volatile CardSession lastSession;
 
     /**
      * Construct a new {@link CardTerminalDevice}.
@@ -30,14 +43,175 @@ public class CardTerminalDevice implements Device {
 
     @Override
     public ResponseAPDU sendCommand(final CommandAPDU commandAPDU) throws CardException {
-        // Establish a connection with the card
-        log.info("Waiting for a card");
-        cardTerminal.waitForCardPresent(0);
-        Card card = cardTerminal.connect("*");
-        CardChannel channel = card.getBasicChannel();
-
-        // Send command APDU, retrieve response APDU
-        return channel.transmit(commandAPDU);
+        lock();
+        try {
+            return transmitOrReconnect(commandAPDU);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public List<ResponseAPDU> sendCommands(final List<CommandAPDU> commands) throws CardException {
+        lock();
+        try {
+            // Only the first command may open a new session. If the card is removed partway through, the script fails
+            // rather than continuing on whichever card is tapped next.
+            List<ResponseAPDU> responses = new ArrayList<>(commands.size());
+            for (CommandAPDU command : commands) {
+                ResponseAPDU response = responses.isEmpty() ? transmitOrReconnect(command) : transmit(command);
+                responses.add(response);
+                if (response.getSW() != SW_SUCCESS) {
+                    throw new CommandFailedException(responses, commands.size());
+                }
+            }
+            return responses;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int sendCommand(final ByteBuffer command, final ByteBuffer response) throws CardException {
+        lock();
+        try {
+            if (channel != null) {
+                int commandPosition = command.position();
+                int responsePosition = response.position();
+                try {
+                    return transmit(command, response);
+                } catch (CardException e) {
+                    log.debug("Card session is no longer valid, reconnecting", e);
+                    close();
+                    command.position(commandPosition);
+                    response.position(responsePosition);
+                }
+            }
+            connect();
+            return transmit(command, response);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void disconnect() {
+        lock.lock();
+        try {
+            close();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return Timing of the open session, or <code>null</code> if no card is connected
+     */
+    public CardSession getSession() {
+        return session;
+    }
+
+    /**
+     * @return Timing of the most recently closed session, or <code>null</code> if there has been none
+     */
+    public CardSession getLastSession() {
+        return lastSession;
+    }
+
+    /**
+     * Acquire the lock.
+     *
+     * @throws CardException if interrupted while waiting for the lock
+     */
+    private void lock() throws CardException {
+        try {
+            lock.lockInterruptibly();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CardException("Interrupted while waiting for the card terminal");
+        }
+    }
+
+    /**
+     * Establish a connection with the card on the terminal. Must be called with the lock held.
+     *
+     * @throws CardException if no card is present, or the connection could not be established
+     */
+    private void connect() throws CardException {
+        long start = System.nanoTime();
+        card = cardTerminal.connect("*");
+        channel = card.getBasicChannel();
+        session = new CardSession(System.nanoTime() - start);
+    }
+
+    /**
+     * Send a command over the open session, reconnecting if the session is no longer valid or there is none. Must be
+     * called with the lock held.
+     *
+     * @param commandAPDU The {@link CommandAPDU} to send
+     * @return Response APDU
+     * @throws CardException if no card is present, or the command failed
+     */
+    private ResponseAPDU transmitOrReconnect(CommandAPDU commandAPDU) throws CardException {
+        // Reuse the open session. If the card has been removed since, its handle is no longer valid.
+        if (channel != null) {
+            try {
+                return transmit(commandAPDU);
+            } catch (CardException e) {
+                log.debug("Card session is no longer valid, reconnecting", e);
+                close();
+            }
+        }
+        connect();
+        return transmit(commandAPDU);
+    }
+
+    /**
+     * Send a command over the open channel. Must be called with the lock held.
+     *
+     * @param commandAPDU The {@link CommandAPDU} to send
+     * @return Response APDU
+     * @throws CardException if the command failed
+     */
+    private ResponseAPDU transmit(CommandAPDU commandAPDU) throws CardException {
+        long start = System.nanoTime();
+        ResponseAPDU response = channel.transmit(commandAPDU);
+        session.recordTransmit(System.nanoTime() - start);
+        return response;
+    }
+
+    /**
+     * Send a command held in a buffer over the open channel. Must be called with the lock held.
+     *
+     * @param command  The command APDU
+     * @param response Buffer to receive the response APDU
+     * @return Length of the response APDU, in bytes
+     * @throws CardException if the command failed
+     */
+    private int transmit(ByteBuffer command, ByteBuffer response) throws CardException {
+        long start = System.nanoTime();
+        int length = channel.transmit(command, response);
+        session.recordTransmit(System.nanoTime() - start);
+        return length;
+    }
+
+    /**
+     * Disconnect from the card, if connected. Must be called with the lock held.
+     */
+    private void close() {
+        if (card == null) {
+            return;
+        }
+        try {
+            card.disconnect(false);
+        } catch (CardException e) {
+            log.debug("Could not disconnect from card", e);
+        }
+        log.debug("Card session ended: {}", session);
+        lastSession = session;
+        card = null;
+        channel = null;
+        session = null;
     }
 
 }
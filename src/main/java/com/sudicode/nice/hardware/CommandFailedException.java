@@ -0,0 +1,52 @@
+package com.sudicode.nice.hardware;
+
+import com.google.common.collect.ImmutableList;
+
+import javax.smartcardio.CardException;
+import javax.smartcardio.ResponseAPDU;
+import java.util.List;
+
+/**
+ * Thrown when a command in a script sent by {@link Device#sendCommands(List)} is answered with a status word other
+ * than 0x9000. The commands after it are not sent.
+ */
+public class CommandFailedException extends CardException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final ImmutableList<ResponseAPDU> responses;
+
+    /**
+     * Construct a new {@link CommandFailedException}.
+     *
+     * @param responses Responses to the commands which were sent, the last of which is the failure
+     * @param count     Number of commands in the script
+     */
+    public CommandFailedException(List<ResponseAPDU> responses, int count) {
+        super(String.format("Command %d of %d failed (SW=0x%04X)", responses.size(), count,
+                responses.get(responses.size() - 1).getSW()));
+        this.responses = ImmutableList.copyOf(responses);
+    }
+
+    /**
+     * @return Index of the command which failed
+     */
+    public int getIndex() {
+        return responses.size() - 1;
+    }
+
+    /**
+     * @return Status word of the failed command
+     */
+    public int getSW() {
+        return responses.get(getIndex()).getSW();
+    }
+
+    /**
+     * @return Responses to the commands which were sent, the last of which is the failure
+     */
+    public List<ResponseAPDU> getResponses() {
+        return responses;
+    }
+
+}
@@ -3,12 +3,20 @@ package com.sudicode.nice.hardware;
 import javax.smartcardio.CardException;
 import javax.smartcardio.CommandAPDU;
 import javax.smartcardio.ResponseAPDU;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * Device which facilitates communication via APDUs (ISO/IEC 7816-4).
  */
 public interface Device {
 
+    /**
+     * Status word of a successful command.
+     */
+    int SW_SUCCESS = 0x9000;
+
     /**
      * Send a {@link CommandAPDU} and return the response.
      *
@@ -18,4 +26,50 @@ public interface Device {
      */
     ResponseAPDU sendCommand(CommandAPDU commandAPDU) throws CardException;
 
+    /**
+     * Send a command APDU held in a buffer, and write the response APDU, including the status word, into another
+     * buffer. The command buffer's position is advanced to its limit, and the response buffer's position is advanced
+     * past the response. Implementations should override this to avoid allocating; the default implementation
+     * delegates to {@link #sendCommand(CommandAPDU)}.
+     *
+     * @param command  The command APDU, from the buffer's position to its limit
+     * @param response Buffer to receive the response APDU
+     * @return Length of the response APDU, in bytes
+     * @throws CardException if command fails
+     */
+    default int sendCommand(ByteBuffer command, ByteBuffer response) throws CardException {
+        byte[] bytes = sendCommand(new CommandAPDU(command)).getBytes();
+        response.put(bytes);
+        return bytes.length;
+    }
+
+    /**
+     * Send a script of {@link CommandAPDU CommandAPDUs} to the same card, in order, and return every response. The
+     * script stops at the first command which is not answered with status word 0x9000. Implementations should send
+     * the whole script over a single session; the default implementation calls {@link #sendCommand(CommandAPDU)}
+     * for each command.
+     *
+     * @param commands The commands to send
+     * @return Responses, in the order of the commands
+     * @throws CommandFailedException if a command is answered with an error status word
+     * @throws CardException          if a command could not be sent
+     */
+    default List<ResponseAPDU> sendCommands(List<CommandAPDU> commands) throws CardException {
+        List<ResponseAPDU> responses = new ArrayList<>(commands.size());
+        for (CommandAPDU command : commands) {
+            ResponseAPDU response = sendCommand(command);
+            responses.add(response);
+            if (response.getSW() != SW_SUCCESS) {
+                throw new CommandFailedException(responses, commands.size());
+            }
+        }
+        return responses;
+    }
+
+    /**
+     * End the session with the card, if any. The default implementation does nothing.
+     */
+    default void disconnect() {
+    }
+
 }
@@ -0,0 +1,183 @@
+package com.sudicode.nice.hardware;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.sudicode.nice.Constants;
+import com.sudicode.nice.Util;
+import com.sudicode.nice.VirtualThreads;
+import com.sudicode.nice.metrics.TapMetrics;
+import com.sudicode.nice.metrics.TapMetrics.Stage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.smartcardio.CardException;
+import javax.smartcardio.CardTerminal;
+import javax.smartcardio.CardTerminals;
+import javax.smartcardio.TerminalFactory;
+import java.io.Closeable;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reads cards from several terminals at once and merges them into a single stream of {@link Tap Taps} in the order
+ * they were read. A {@link CardMonitor} reports when a card is placed on a terminal; the card is then read on a
+ * short-lived pool thread, or on a virtual thread if they are enabled, so that terminals are read in parallel but no
+ * thread waits on an idle terminal. When the card is removed, its session is ended.
+ */
+public class ReaderManager implements CardListener, Closeable {
+
+    private static final Logger log = LoggerFactory.getLogger(ReaderManager.class);
+
+    private final CardMonitor monitor;
+    private final Map<String, CardReader> readers;
+    private final BlockingQueue<Tap> taps = new LinkedBlockingQueue<>();
+    private final ExecutorService executor;
+
+    /**
+     * Construct a new {@link ReaderManager}.
+     *
+     * @param monitor The {@link CardMonitor} which watches the terminals
+     * @param readers {@link CardReader CardReaders}, keyed by the name of their terminal
+     */
+    public ReaderManager(CardMonitor monitor, Map<String, CardReader> readers) {
+        this.monitor = monitor;
+        this.readers = ImmutableMap.copyOf(readers);
+        this.executor = Util.useVirtualThreads()
+                ? VirtualThreads.newExecutor("nice-reader")
+                : new ThreadPoolExecutor(0, Math.max(1, readers.size()),
+                Constants.CARD_MONITOR_TIMEOUT_MS, TimeUnit.MILLISECONDS, new SynchronousQueue<>(),
+                new ThreadFactoryBuilder().setNameFormat("nice-reader-%d").setDaemon(true).build(),
+                new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    /**
+     * Construct a {@link ReaderManager} which reads from every terminal of a {@link TerminalFactory}. If the terminals
+     * cannot be listed, the manager has no readers.
+     *
+     * @param terminalFactory The {@link TerminalFactory}
+     * @return The {@link ReaderManager}
+     */
+    public static ReaderManager forAllTerminals(TerminalFactory terminalFactory) {
+        CardTerminals terminals = terminalFactory.terminals();
+        ImmutableMap.Builder<String, CardReader> readers = ImmutableMap.builder();
+        try {
+            List<CardTerminal> list = terminals.list();
+            log.info("Available terminals: {}", list);
+            for (CardTerminal terminal : list) {
+                readers.put(terminal.getName(), new CardReader(new CardTerminalDevice(terminal)));
+            }
+        } catch (CardException | RuntimeException e) {
+            log.error("Could not get card readers", e);
+        }
+        return new ReaderManager(new CardMonitor(terminals), readers.build());
+    }
+
+    /**
+     * Start reading from every terminal.
+     */
+    public void start() {
+        if (readers.isEmpty()) {
+            log.warn("No card readers attached");
+            return;
+        }
+        monitor.subscribe(this);
+        monitor.start();
+        log.info("Reading cards from {} terminal(s)", readers.size());
+    }
+
+    /**
+     * Wait for the next card to be tapped on any terminal.
+     *
+     * @return The {@link Tap}
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public Tap take() throws InterruptedException {
+        return taps.take();
+    }
+
+    /**
+     * Wait up to a given time for the next card to be tapped on any terminal.
+     *
+     * @param timeout How long to wait
+     * @param unit    Unit of <code>timeout</code>
+     * @return The {@link Tap}, or <code>null</code> if the time elapsed first
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public Tap poll(long timeout, TimeUnit unit) throws InterruptedException {
+        return taps.poll(timeout, unit);
+    }
+
+    /**
+     * @return Number of terminals being read
+     */
+    public int getReaderCount() {
+        return readers.size();
+    }
+
+    /**
+     * Read the card which was placed on a terminal.
+     *
+     * @param terminal The {@link CardTerminal}
+     */
+    @Override
+    public void cardInserted(CardTerminal terminal) {
+        long detected = System.nanoTime();
+        String name = terminal.getName();
+        CardReader reader = readers.get(name);
+        if (reader == null) {
+            return;
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    long start = TapMetrics.recordSince(Stage.DETECT, name, detected);
+                    long uid = reader.readUID();
+                    long read = TapMetrics.recordSince(Stage.READ, name, start);
+                    taps.add(new Tap(name, uid, Instant.now(), detected, read));
+                } catch (CardException e) {
+                    log.warn("Could not read card on {}", name, e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            log.debug("Ignoring card on {}: shutting down", name);
+        }
+    }
+
+    /**
+     * End the session with the card which was removed from a terminal.
+     *
+     * @param terminal The {@link CardTerminal}
+     */
+    @Override
+    public void cardRemoved(CardTerminal terminal) {
+        CardReader reader = readers.get(terminal.getName());
+        if (reader != null) {
+            reader.disconnect();
+        }
+    }
+
+    /**
+     * Stop reading and release every terminal.
+     */
+    @Override
+    public void close() {
+        monitor.close();
+        monitor.unsubscribe(this);
+        executor.shutdownNow();
+        try {
+            executor.awaitTermination(Constants.SHUTDOWN_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        readers.values().forEach(CardReader::disconnect);
+    }
+
+}
@@ -0,0 +1,287 @@
+package com.sudicode.nice.hardware;
+
+import javax.smartcardio.ATR;
+import javax.smartcardio.Card;
+import javax.smartcardio.CardChannel;
+import javax.smartcardio.CardException;
+import javax.smartcardio.CardTerminal;
+import javax.smartcardio.CommandAPDU;
+import javax.smartcardio.ResponseAPDU;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * {@link CardTerminal} on which cards are placed and removed by calling {@link #place(long)} and {@link #remove()},
+ * for running the tap pipeline without hardware. The simulated card answers the Get UID, Get ATS and Read Binary
+ * commands the way an ACR122U does, and rejects every other command. Every byte of block <i>n</i> of its memory is
+ * <i>n</i>.
+ */
+public class SimulatedCardTerminal extends CardTerminal {
+
+    private static final byte[] ATR_BYTES = {(byte) 0x3B, (byte) 0x80, (byte) 0x80, (byte) 0x01, (byte) 0x01};
+    private static final byte[] ATS_BYTES = {(byte) 0x80};
+    private static final int SW_SUCCESS = 0x9000;
+    private static final int SW_NOT_SUPPORTED = 0x6A81;
+
+    private final String name;
+    private final Object lock;
+    private boolean present;
+    private long uid;
+    private int insertions;
+    private int removals;
+
+    /**
+     * Construct a new {@link SimulatedCardTerminal}.
+     *
+     * @param name Name of the terminal
+     */
+    public SimulatedCardTerminal(String name) {
+        this(name, null);
+    }
+
+    /**
+     * Construct a new {@link SimulatedCardTerminal} which shares a lock with its {@link SimulatedCardTerminals}.
+     *
+     * @param name Name of the terminal
+     * @param lock Object to synchronize on and notify on changes, or <code>null</code> to use the terminal itself
+     */
+    SimulatedCardTerminal(String name, Object lock) {
+        this.name = name;
+        this.lock = lock != null ? lock : this;
+    }
+
+    /**
+     * Place a card on the terminal, removing any card already on it.
+     *
+     * @param uid The card's UID. The card reports it in 4, 7 or 10 bytes, whichever is the shortest that holds it.
+     */
+    public void place(long uid) {
+        synchronized (lock) {
+            if (present) {
+                removals++;
+            }
+            this.uid = uid;
+            present = true;
+            insertions++;
+            lock.notifyAll();
+        }
+    }
+
+    /**
+     * Remove the card from the terminal, if any.
+     */
+    public void remove() {
+        synchronized (lock) {
+            if (present) {
+                present = false;
+                removals++;
+                lock.notifyAll();
+            }
+        }
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public Card connect(String protocol) throws CardException {
+        synchronized (lock) {
+            if (!present) {
+                throw new CardException("No card present");
+            }
+            return new SimulatedCard(uid, insertions);
+        }
+    }
+
+    @Override
+    public boolean isCardPresent() {
+        synchronized (lock) {
+            return present;
+        }
+    }
+
+    @Override
+    public boolean waitForCardPresent(long timeout) throws CardException {
+        return waitFor(true, timeout);
+    }
+
+    @Override
+    public boolean waitForCardAbsent(long timeout) throws CardException {
+        return waitFor(false, timeout);
+    }
+
+    @Override
+    public String toString() {
+        return "SimulatedCardTerminal: " + name;
+    }
+
+    /**
+     * @return Number of times a card has been placed on the terminal
+     */
+    int getInsertions() {
+        synchronized (lock) {
+            return insertions;
+        }
+    }
+
+    /**
+     * @return Number of times a card has been removed from the terminal
+     */
+    int getRemovals() {
+        synchronized (lock) {
+            return removals;
+        }
+    }
+
+    private boolean waitFor(boolean state, long timeout) throws CardException {
+        long deadline = System.currentTimeMillis() + timeout;
+        synchronized (lock) {
+            while (present != state) {
+                long remaining = timeout == 0 ? 0 : deadline - System.currentTimeMillis();
+                if (timeout != 0 && remaining <= 0) {
+                    return false;
+                }
+                try {
+                    lock.wait(remaining);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new CardException("Interrupted while waiting for a card");
+                }
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Card on a {@link SimulatedCardTerminal}. Its handle becomes invalid once the card is removed.
+     */
+    private class SimulatedCard extends Card {
+
+        private final long cardUid;
+        private final int insertion;
+        private final CardChannel channel = new SimulatedChannel(this);
+        private boolean connected = true;
+
+        SimulatedCard(long cardUid, int insertion) {
+            this.cardUid = cardUid;
+            this.insertion = insertion;
+        }
+
+        @Override
+        public ATR getATR() {
+            return new ATR(ATR_BYTES);
+        }
+
+        @Override
+        public String getProtocol() {
+            return "T=1";
+        }
+
+        @Override
+        public CardChannel getBasicChannel() {
+            return channel;
+        }
+
+        @Override
+        public CardChannel openLogicalChannel() throws CardException {
+            throw new CardException("Logical channels are not supported");
+        }
+
+        @Override
+        public void beginExclusive() {
+        }
+
+        @Override
+        public void endExclusive() {
+        }
+
+        @Override
+        public byte[] transmitControlCommand(int controlCode, byte[] command) throws CardException {
+            throw new CardException("Control commands are not supported");
+        }
+
+        @Override
+        public void disconnect(boolean reset) {
+            connected = false;
+        }
+
+        /**
+         * Respond to a command.
+         *
+         * @param command The {@link CommandAPDU}
+         * @return The {@link ResponseAPDU}
+         * @throws CardException if the card has been removed or disconnected
+         */
+        ResponseAPDU respond(CommandAPDU command) throws CardException {
+            synchronized (lock) {
+                if (!connected || !present || insertions != insertion) {
+                    throw new CardException("Card has been removed");
+                }
+            }
+            if (command.getCLA() == 0xFF && command.getINS() == 0xCA && command.getP1() == 0x01) {
+                return new ResponseAPDU(ByteBuffer.allocate(ATS_BYTES.length + 2).put(ATS_BYTES).putShort((short) SW_SUCCESS).array());
+            }
+            if (command.getCLA() == 0xFF && command.getINS() == 0xB0 && command.getP1() == 0x00) {
+                byte[] block = new byte[command.getNe()];
+                Arrays.fill(block, (byte) command.getP2());
+                return new ResponseAPDU(ByteBuffer.allocate(block.length + 2).put(block).putShort((short) SW_SUCCESS).array());
+            }
+            if (command.getCLA() == 0xFF && command.getINS() == 0xCA && command.getP1() == 0x00) {
+                int length = (cardUid >>> 32) == 0 ? 4 : (cardUid >>> 56) == 0 ? 7 : UidCodec.MAX_LENGTH;
+                ByteBuffer answer = ByteBuffer.allocate(length + 2);
+                for (int i = length - 1; i >= 0; i--) {
+                    answer.put(i, (byte) (i >= length - Long.BYTES ? cardUid >>> (8 * (length - 1 - i)) : 0));
+                }
+                answer.putShort(length, (short) SW_SUCCESS);
+                return new ResponseAPDU(answer.array());
+            }
+            return new ResponseAPDU(ByteBuffer.allocate(2).putShort((short) SW_NOT_SUPPORTED).array());
+        }
+
+    }
+
+    /**
+     * Basic channel of a {@link SimulatedCard}.
+     */
+    private static class SimulatedChannel extends CardChannel {
+
+        private final SimulatedCard card;
+
+        SimulatedChannel(SimulatedCard card) {
+            this.card = card;
+        }
+
+        @Override
+        public Card getCard() {
+            return card;
+        }
+
+        @Override
+        public int getChannelNumber() {
+            return 0;
+        }
+
+        @Override
+        public ResponseAPDU transmit(CommandAPDU command) throws CardException {
+            return card.respond(command);
+        }
+
+        @Override
+        public int transmit(ByteBuffer command, ByteBuffer response) throws CardException {
+            byte[] bytes = new byte[command.remaining()];
+            command.get(bytes);
+            byte[] answer = card.respond(new CommandAPDU(bytes)).getBytes();
+            response.put(answer);
+            return answer.length;
+        }
+
+        @Override
+        public void close() {
+            throw new IllegalStateException("Cannot close the basic channel");
+        }
+
+    }
+
+}
@@ -0,0 +1,125 @@
+package com.sudicode.nice.hardware;
+
+import javax.smartcardio.CardException;
+import javax.smartcardio.CardTerminal;
+import javax.smartcardio.CardTerminals;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * {@link CardTerminals} made of {@link SimulatedCardTerminal SimulatedCardTerminals}, so that a {@link CardMonitor}
+ * and a {@link ReaderManager} can run without hardware. Every placement and removal is reported by
+ * {@link #waitForChange(long)}, even if the card is placed and removed again before the wait.
+ */
+public class SimulatedCardTerminals extends CardTerminals {
+
+    private final Object lock = new Object();
+    private final List<SimulatedCardTerminal> terminals = new ArrayList<>();
+    private final int[] seenInsertions;
+    private final int[] seenRemovals;
+    private final List<CardTerminal> inserted = new ArrayList<>();
+    private final List<CardTerminal> removed = new ArrayList<>();
+
+    /**
+     * Construct a new {@link SimulatedCardTerminals}.
+     *
+     * @param names Names of the terminals
+     */
+    public SimulatedCardTerminals(String... names) {
+        for (String name : names) {
+            terminals.add(new SimulatedCardTerminal(name, lock));
+        }
+        seenInsertions = new int[names.length];
+        seenRemovals = new int[names.length];
+    }
+
+    @Override
+    public List<CardTerminal> list(State state) {
+        synchronized (lock) {
+            List<CardTerminal> result = new ArrayList<>();
+            switch (state) {
+                case CARD_INSERTION:
+                    return new ArrayList<>(inserted);
+                case CARD_REMOVAL:
+                    return new ArrayList<>(removed);
+                default:
+                    for (SimulatedCardTerminal terminal : terminals) {
+                        boolean present = terminal.isCardPresent();
+                        if (state == State.ALL || (state == State.CARD_PRESENT) == present) {
+                            result.add(terminal);
+                        }
+                    }
+                    return result;
+            }
+        }
+    }
+
+    @Override
+    public boolean waitForChange(long timeout) throws CardException {
+        long deadline = System.currentTimeMillis() + timeout;
+        synchronized (lock) {
+            while (!changed()) {
+                long remaining = timeout == 0 ? 0 : deadline - System.currentTimeMillis();
+                if (timeout != 0 && remaining <= 0) {
+                    inserted.clear();
+                    removed.clear();
+                    return false;
+                }
+                try {
+                    lock.wait(remaining);
+                } catch (InterruptedException e) {
+                    // Like the PC/SC implementation, return rather than throw, leaving the interrupt status set.
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+            }
+            inserted.clear();
+            removed.clear();
+            for (int i = 0; i < terminals.size(); i++) {
+                SimulatedCardTerminal terminal = terminals.get(i);
+                if (terminal.getInsertions() != seenInsertions[i]) {
+                    inserted.add(terminal);
+                    seenInsertions[i] = terminal.getInsertions();
+                }
+                if (terminal.getRemovals() != seenRemovals[i]) {
+                    removed.add(terminal);
+                    seenRemovals[i] = terminal.getRemovals();
+                }
+            }
+            return true;
+        }
+    }
+
+    /**
+     * @param name Name of the terminal
+     * @return The {@link SimulatedCardTerminal}, or <code>null</code> if there is none with the name
+     */
+    @Override
+    public SimulatedCardTerminal getTerminal(String name) {
+        for (SimulatedCardTerminal terminal : terminals) {
+            if (terminal.getName().equals(name)) {
+                return terminal;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return Every terminal
+     */
+    public List<SimulatedCardTerminal> getTerminals() {
+        return Collections.unmodifiableList(terminals);
+    }
+
+    private boolean changed() {
+        for (int i = 0; i < terminals.size(); i++) {
+            SimulatedCardTerminal terminal = terminals.get(i);
+            if (terminal.getInsertions() != seenInsertions[i] || terminal.getRemovals() != seenRemovals[i]) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+}
@@ -0,0 +1,84 @@
+package com.sudicode.nice.hardware;
+
+import java.time.Instant;
+
+/**
+ * A card tapped on one of the terminals of a {@link ReaderManager}.
+ */
+public class Tap {
+
+    private final String terminal;
+    private final long uid;
+    private final Instant time;
+    private final long detectedNanos;
+    private final long readNanos;
+
+    /**
+     * Construct a new {@link Tap}, detected now.
+     *
+     * @param terminal Name of the terminal the card was tapped on
+     * @param uid      The card's UID
+     * @param time     When the card was read
+     */
+    public Tap(String terminal, long uid, Instant time) {
+        this(terminal, uid, time, System.nanoTime(), System.nanoTime());
+    }
+
+    /**
+     * Construct a new {@link Tap}.
+     *
+     * @param terminal      Name of the terminal the card was tapped on
+     * @param uid           The card's UID
+     * @param time          When the card was read
+     * @param detectedNanos When the card was detected, as in {@link System#nanoTime()}
+     * @param readNanos     When the card was read, as in {@link System#nanoTime()}
+     */
+    public Tap(String terminal, long uid, Instant time, long detectedNanos, long readNanos) {
+        this.terminal = terminal;
+        this.uid = uid;
+        this.time = time;
+        this.detectedNanos = detectedNanos;
+        this.readNanos = readNanos;
+    }
+
+    /**
+     * @return Name of the terminal the card was tapped on
+     */
+    public String getTerminal() {
+        return terminal;
+    }
+
+    /**
+     * @return The card's UID
+     */
+    public long getUid() {
+        return uid;
+    }
+
+    /**
+     * @return When the card was read
+     */
+    public Instant getTime() {
+        return time;
+    }
+
+    /**
+     * @return When the card was detected, as in {@link System#nanoTime()}
+     */
+    public long getDetectedNanos() {
+        return detectedNanos;
+    }
+
+    /**
+     * @return When the card was read, as in {@link System#nanoTime()}
+     */
+    public long getReadNanos() {
+        return readNanos;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%08X on %s at %s", uid, terminal, time);
+    }
+
+}
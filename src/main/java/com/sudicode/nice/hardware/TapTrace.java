@@ -0,0 +1,229 @@
+package com.sudicode.nice.hardware;
+
+import com.google.common.collect.ImmutableList;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Recorded or generated sequence of taps, which can be replayed onto {@link SimulatedCardTerminals} with its original
+ * timing or faster. In text form, each line is <code>offsetMillis,terminal,uid</code>, where the offset is measured
+ * from the start of the trace.
+ */
+public class TapTrace {
+
+    /**
+     * One tap in a {@link TapTrace}.
+     */
+    public static class Event {
+
+        private final long offsetMillis;
+        private final String terminal;
+        private final long uid;
+
+        /**
+         * Construct a new {@link Event}.
+         *
+         * @param offsetMillis Time of the tap, in milliseconds from the start of the trace
+         * @param terminal     Name of the terminal
+         * @param uid          The card's UID
+         */
+        public Event(long offsetMillis, String terminal, long uid) {
+            this.offsetMillis = offsetMillis;
+            this.terminal = terminal;
+            this.uid = uid;
+        }
+
+        /**
+         * @return Time of the tap, in milliseconds from the start of the trace
+         */
+        public long getOffsetMillis() {
+            return offsetMillis;
+        }
+
+        /**
+         * @return Name of the terminal
+         */
+        public String getTerminal() {
+            return terminal;
+        }
+
+        /**
+         * @return The card's UID
+         */
+        public long getUid() {
+            return uid;
+        }
+
+    }
+
+    private final List<Event> events;
+
+    /**
+     * Construct a new {@link TapTrace}.
+     *
+     * @param events The taps, in any order
+     */
+    public TapTrace(List<Event> events) {
+        List<Event> sorted = new ArrayList<>(events);
+        sorted.sort(Comparator.comparingLong(Event::getOffsetMillis));
+        this.events = ImmutableList.copyOf(sorted);
+    }
+
+    /**
+     * Record a trace from {@link Tap Taps}, such as those taken from a {@link ReaderManager}.
+     *
+     * @param taps The taps
+     * @return The {@link TapTrace}
+     */
+    public static TapTrace of(List<Tap> taps) {
+        Instant start = taps.stream().map(Tap::getTime).min(Comparator.naturalOrder()).orElse(Instant.EPOCH);
+        List<Event> events = new ArrayList<>();
+        for (Tap tap : taps) {
+            events.add(new Event(Duration.between(start, tap.getTime()).toMillis(), tap.getTerminal(), tap.getUid()));
+        }
+        return new TapTrace(events);
+    }
+
+    /**
+     * Generate a trace in which students from a roster tap in at random, at a steady average rate, on random
+     * terminals.
+     *
+     * @param uids      UIDs of the students' cards
+     * @param terminals Names of the terminals
+     * @param taps      Number of taps
+     * @param perMinute Average number of taps per minute
+     * @param seed      Seed for the random number generator
+     * @return The {@link TapTrace}
+     */
+    public static TapTrace synthetic(long[] uids, String[] terminals, int taps, int perMinute, long seed) {
+        Random random = new Random(seed);
+        double meanGapMillis = TimeUnit.MINUTES.toMillis(1) / (double) perMinute;
+        List<Event> events = new ArrayList<>(taps);
+        double offset = 0;
+        for (int i = 0; i < taps; i++) {
+            offset += -Math.log(1 - random.nextDouble()) * meanGapMillis;
+            events.add(new Event((long) offset, terminals[random.nextInt(terminals.length)],
+                    uids[random.nextInt(uids.length)]));
+        }
+        return new TapTrace(events);
+    }
+
+    /**
+     * Read a trace in text form.
+     *
+     * @param reader The {@link Reader}
+     * @return The {@link TapTrace}
+     * @throws IOException if an I/O error occurs, or a line is malformed
+     */
+    public static TapTrace read(Reader reader) throws IOException {
+        List<Event> events = new ArrayList<>();
+        BufferedReader in = new BufferedReader(reader);
+        String line;
+        while ((line = in.readLine()) != null) {
+            if (line.trim().isEmpty()) {
+                continue;
+            }
+            String[] fields = line.split(",");
+            if (fields.length != 3) {
+                throw new IOException("Malformed tap: " + line);
+            }
+            try {
+                events.add(new Event(Long.parseLong(fields[0].trim()), fields[1].trim(), Long.parseLong(fields[2].trim())));
+            } catch (NumberFormatException e) {
+                throw new IOException("Malformed tap: " + line, e);
+            }
+        }
+        return new TapTrace(events);
+    }
+
+    /**
+     * Write the trace in text form.
+     *
+     * @param writer The {@link Writer}
+     * @throws IOException if an I/O error occurs
+     */
+    public void write(Writer writer) throws IOException {
+        for (Event event : events) {
+            writer.write(event.getOffsetMillis() + "," + event.getTerminal() + "," + event.getUid());
+            writer.write(System.lineSeparator());
+        }
+        writer.flush();
+    }
+
+    /**
+     * @return The taps, ordered by time
+     */
+    public List<Event> getEvents() {
+        return events;
+    }
+
+    /**
+     * @return Names of the terminals which appear in the trace
+     */
+    public String[] getTerminalNames() {
+        return events.stream().map(Event::getTerminal).distinct().toArray(String[]::new);
+    }
+
+    /**
+     * Replay the trace on the calling thread. Each card is placed on its terminal at its time, divided by
+     * <code>speedup</code>, and removed <code>holdMillis</code> later, or when the next card is placed on the same
+     * terminal.
+     *
+     * @param terminals  The {@link SimulatedCardTerminals}
+     * @param speedup    How many times faster than recorded to replay, e.g. <code>1</code> for the original timing
+     * @param holdMillis How long each card stays on the terminal
+     * @throws InterruptedException if interrupted while replaying
+     */
+    public void replay(SimulatedCardTerminals terminals, double speedup, long holdMillis) throws InterruptedException {
+        long start = System.nanoTime();
+        List<SimulatedCardTerminal> holding = new ArrayList<>();
+        List<Long> removeAt = new ArrayList<>();
+        for (Event event : events) {
+            long placeAt = start + (long) (TimeUnit.MILLISECONDS.toNanos(event.getOffsetMillis()) / speedup);
+
+            // Remove cards whose time is up before this one is placed
+            while (!holding.isEmpty() && removeAt.get(0) <= placeAt) {
+                sleepUntil(removeAt.remove(0));
+                holding.remove(0).remove();
+            }
+            sleepUntil(placeAt);
+
+            SimulatedCardTerminal terminal = terminals.getTerminal(event.getTerminal());
+            if (terminal == null) {
+                throw new IllegalArgumentException("No terminal named " + event.getTerminal());
+            }
+            int index = holding.indexOf(terminal);
+            if (index >= 0) {
+                holding.remove(index);
+                removeAt.remove(index);
+            }
+            terminal.place(event.getUid());
+            holding.add(terminal);
+            removeAt.add(System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(holdMillis));
+        }
+        while (!holding.isEmpty()) {
+            sleepUntil(removeAt.remove(0));
+            holding.remove(0).remove();
+        }
+    }
+
+    private static void sleepUntil(long nanoTime) throws InterruptedException {
+        long remaining = nanoTime - System.nanoTime();
+        if (remaining > 0) {
+            TimeUnit.NANOSECONDS.sleep(remaining);
+        } else if (Thread.interrupted()) {
+            throw new InterruptedException();
+        }
+    }
+
+}
@@ -0,0 +1,59 @@
+package com.sudicode.nice.hardware;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Decodes card UIDs into primitive <code>long</code> values without allocating. ISO/IEC 14443 UIDs are 4, 7 or 10
+ * bytes long. UIDs of up to 8 bytes are read as unsigned big-endian numbers, so shorter responses are implicitly
+ * zero-filled. A 10-byte UID does not fit in 64 bits: its last 8 bytes are read as above, and its first 2 bytes are
+ * folded into the top 16 bits with an exclusive or.
+ */
+public final class UidCodec {
+
+    /**
+     * Longest UID which can be decoded, in bytes.
+     */
+    public static final int MAX_LENGTH = 10;
+
+    /**
+     * Illegal.
+     */
+    private UidCodec() {
+    }
+
+    /**
+     * Decode a UID in place. The buffer's position and limit are not changed.
+     *
+     * @param buffer The {@link ByteBuffer} containing the UID
+     * @param offset Index of the first byte of the UID
+     * @param length Length of the UID, in bytes
+     * @return The UID
+     * @throws IllegalArgumentException if the UID is longer than {@link #MAX_LENGTH}
+     */
+    public static long decode(ByteBuffer buffer, int offset, int length) {
+        if (length < 0 || length > MAX_LENGTH) {
+            throw new IllegalArgumentException("Unsupported UID length: " + length);
+        }
+        int folded = Math.max(0, length - Long.BYTES);
+        long uid = 0;
+        for (int i = offset + folded; i < offset + length; i++) {
+            uid = (uid << 8) | (buffer.get(i) & 0xFF);
+        }
+        for (int i = 0; i < folded; i++) {
+            uid ^= (long) (buffer.get(offset + i) & 0xFF) << (Long.SIZE - 8 * (i + 1));
+        }
+        return uid;
+    }
+
+    /**
+     * Find the student ID under which a card with a 7-byte UID was registered before such UIDs were supported, when
+     * only the first 4 bytes of a UID were read.
+     *
+     * @param uid A decoded UID
+     * @return The truncated ID, or <code>-1</code> if the UID is not 7 bytes long
+     */
+    public static long truncatedId(long uid) {
+        return uid > 0xFFFFFFFFL && uid >>> 56 == 0 ? uid >>> 24 : -1;
+    }
+
+}
@@ -0,0 +1,139 @@
+package com.sudicode.nice.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Histogram of latencies in nanoseconds, with log-linear buckets in the style of HdrHistogram: each power of two is
+ * split into 64 linear sub-buckets, so a recorded value is off by at most 1/64 (about 1.6%). Latencies of up to
+ * about 73 minutes are recorded; longer ones are counted as the maximum.
+ * <p>
+ * Recording is lock-free and allocation-free, and may be called from any thread. {@link #snapshot()} is not atomic
+ * with respect to concurrent recording, so a snapshot may miss values recorded while it is taken.
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 6;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int MAX_VALUE_BITS = 42;
+    private static final long MAX_VALUE = (1L << MAX_VALUE_BITS) - 1;
+    private static final int BUCKET_COUNT = index(MAX_VALUE) + 1;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+
+    /**
+     * Record a latency.
+     *
+     * @param nanos The latency, in nanoseconds. Negative values are counted as zero.
+     */
+    public void record(long nanos) {
+        counts.incrementAndGet(index(Math.min(Math.max(nanos, 0), MAX_VALUE)));
+    }
+
+    /**
+     * @return Copy of the counts recorded so far
+     */
+    public Snapshot snapshot() {
+        long[] copy = new long[BUCKET_COUNT];
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            copy[i] = counts.get(i);
+        }
+        return new Snapshot(copy);
+    }
+
+    /**
+     * Discard every recorded value.
+     */
+    public void reset() {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            counts.set(i, 0);
+        }
+    }
+
+    /**
+     * Values below <code>2 * SUB_BUCKETS</code> get a bucket each. Above that, the exponent selects a run of
+     * <code>SUB_BUCKETS</code> buckets, and the bits below the most significant one select a bucket within the run.
+     *
+     * @param value A value from 0 to {@link #MAX_VALUE}
+     * @return Index of the value's bucket
+     */
+    private static int index(long value) {
+        int shift = Math.max(0, Long.SIZE - 1 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS);
+        return (shift << SUB_BUCKET_BITS) + (int) (value >>> shift);
+    }
+
+    /**
+     * @param index Index of a bucket
+     * @return Highest value which falls in the bucket
+     */
+    private static long highestValue(int index) {
+        int shift = Math.max(0, (index >> SUB_BUCKET_BITS) - 1);
+        long mantissa = index - ((long) shift << SUB_BUCKET_BITS);
+        return ((mantissa + 1) << shift) - 1;
+    }
+
+    /**
+     * Counts of a {@link LatencyHistogram} at a point in time.
+     */
+    public static class Snapshot {
+
+        private final long[] counts;
+        private final long count;
+
+        Snapshot(long[] counts) {
+            this.counts = counts;
+            long total = 0;
+            for (long c : counts) {
+                total += c;
+            }
+            this.count = total;
+        }
+
+        /**
+         * @return Number of recorded values
+         */
+        public long getCount() {
+            return count;
+        }
+
+        /**
+         * @param percentile Percentile, from 0 to 100
+         * @return Latency at or below which the given percentage of values fall, in nanoseconds, or 0 if there are
+         * no values
+         */
+        public long getValueAtPercentile(double percentile) {
+            if (count == 0) {
+                return 0;
+            }
+            long rank = Math.max(1, (long) Math.ceil(Math.min(100, Math.max(0, percentile)) / 100 * count));
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= rank) {
+                    return highestValue(i);
+                }
+            }
+            return MAX_VALUE;
+        }
+
+        /**
+         * @return Highest recorded latency, in nanoseconds, or 0 if there are no values
+         */
+        public long getMax() {
+            return getValueAtPercentile(100);
+        }
+
+        /**
+         * @param earlier An earlier snapshot of the same histogram
+         * @return Snapshot of the values recorded since <code>earlier</code>
+         */
+        public Snapshot minus(Snapshot earlier) {
+            long[] difference = new long[counts.length];
+            for (int i = 0; i < counts.length; i++) {
+                difference[i] = Math.max(0, counts[i] - earlier.counts[i]);
+            }
+            return new Snapshot(difference);
+        }
+
+    }
+
+}
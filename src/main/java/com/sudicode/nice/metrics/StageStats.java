@@ -0,0 +1,78 @@
+package com.sudicode.nice.metrics;
+
+import java.beans.ConstructorProperties;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Summary of the latencies recorded for one stage of the tap path, as published over JMX.
+ */
+public class StageStats {
+
+    private final long count;
+    private final long p50Micros;
+    private final long p99Micros;
+    private final long maxMicros;
+
+    /**
+     * Construct a new {@link StageStats}.
+     *
+     * @param count     Number of recorded latencies
+     * @param p50Micros Median latency, in microseconds
+     * @param p99Micros 99th percentile latency, in microseconds
+     * @param maxMicros Highest latency, in microseconds
+     */
+    @ConstructorProperties({"count", "p50Micros", "p99Micros", "maxMicros"})
+    public StageStats(long count, long p50Micros, long p99Micros, long maxMicros) {
+        this.count = count;
+        this.p50Micros = p50Micros;
+        this.p99Micros = p99Micros;
+        this.maxMicros = maxMicros;
+    }
+
+    /**
+     * Summarize a snapshot of a {@link LatencyHistogram}.
+     *
+     * @param snapshot The {@link LatencyHistogram.Snapshot}
+     * @return The {@link StageStats}
+     */
+    public static StageStats of(LatencyHistogram.Snapshot snapshot) {
+        return new StageStats(snapshot.getCount(),
+                TimeUnit.NANOSECONDS.toMicros(snapshot.getValueAtPercentile(50)),
+                TimeUnit.NANOSECONDS.toMicros(snapshot.getValueAtPercentile(99)),
+                TimeUnit.NANOSECONDS.toMicros(snapshot.getMax()));
+    }
+
+    /**
+     * @return Number of recorded latencies
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * @return Median latency, in microseconds
+     */
+    public long getP50Micros() {
+        return p50Micros;
+    }
+
+    /**
+     * @return 99th percentile latency, in microseconds
+     */
+    public long getP99Micros() {
+        return p99Micros;
+    }
+
+    /**
+     * @return Highest latency, in microseconds
+     */
+    public long getMaxMicros() {
+        return maxMicros;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("n=%d p50=%.1fms p99=%.1fms max=%.1fms", count, p50Micros / 1e3, p99Micros / 1e3, maxMicros / 1e3);
+    }
+
+}
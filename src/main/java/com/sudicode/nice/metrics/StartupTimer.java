@@ -0,0 +1,125 @@
+package com.sudicode.nice.metrics;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time taken by each phase of startup. Phases may run concurrently on different threads, so each is recorded with both
+ * its own duration and the time since the JVM started at which it finished; the breakdown is logged once startup is
+ * complete.
+ */
+public class StartupTimer {
+
+    private static final Logger log = LoggerFactory.getLogger(StartupTimer.class);
+
+    /**
+     * {@link System#nanoTime()} at which the JVM started.
+     */
+    private static final long ORIGIN = System.nanoTime()
+            - TimeUnit.MILLISECONDS.toNanos(ManagementFactory.getRuntimeMXBean().getUptime());
+
+    private static final List<Phase> phases = new ArrayList<>();
+
+    /**
+     * A phase of startup.
+     */
+    public static class Phase {
+
+        private final String name;
+        private final long durationNanos;
+        private final long finishedNanos;
+
+        private Phase(String name, long durationNanos, long finishedNanos) {
+            this.name = name;
+            this.durationNanos = durationNanos;
+            this.finishedNanos = finishedNanos;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * @return Time taken by the phase, in milliseconds
+         */
+        public long getDurationMillis() {
+            return TimeUnit.NANOSECONDS.toMillis(durationNanos);
+        }
+
+        /**
+         * @return Time since the JVM started at which the phase finished, in milliseconds
+         */
+        public long getFinishedMillis() {
+            return TimeUnit.NANOSECONDS.toMillis(finishedNanos);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s %d ms (done at %d ms)", name, getDurationMillis(), getFinishedMillis());
+        }
+
+    }
+
+    /**
+     * Illegal.
+     */
+    private StartupTimer() {
+    }
+
+    /**
+     * Record a phase which started at a given time and has just finished.
+     *
+     * @param name       Name of the phase
+     * @param startNanos {@link System#nanoTime()} at which the phase started
+     * @return The current {@link System#nanoTime()}, which may be used as the start of the next phase
+     */
+    public static long recordSince(String name, long startNanos) {
+        long now = System.nanoTime();
+        synchronized (phases) {
+            phases.add(new Phase(name, now - startNanos, now - ORIGIN));
+        }
+        return now;
+    }
+
+    /**
+     * Record a milestone, such as the window being shown, as a phase which started when the JVM did.
+     *
+     * @param name Name of the milestone
+     * @return The current {@link System#nanoTime()}
+     */
+    public static long mark(String name) {
+        return recordSince(name, ORIGIN);
+    }
+
+    /**
+     * @return The phases recorded so far, in the order they finished
+     */
+    public static List<Phase> getPhases() {
+        synchronized (phases) {
+            return new ArrayList<>(phases);
+        }
+    }
+
+    /**
+     * Log the phases recorded so far, and forget them.
+     */
+    public static void log() {
+        List<Phase> recorded;
+        synchronized (phases) {
+            recorded = new ArrayList<>(phases);
+            phases.clear();
+        }
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("Started in %d ms:", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - ORIGIN)));
+        for (Phase phase : recorded) {
+            sb.append(String.format("%n  %s", phase));
+        }
+        log.info(sb.toString());
+    }
+
+}
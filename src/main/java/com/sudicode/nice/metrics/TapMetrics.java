@@ -0,0 +1,372 @@
+package com.sudicode.nice.metrics;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.StandardMBean;
+import java.lang.management.ManagementFactory;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Latency of each stage of the tap path, from the card being detected to the attendance being committed, on all
+ * terminals and on each terminal. Latencies are recorded in {@link LatencyHistogram LatencyHistograms}, so recording
+ * is cheap enough for every tap, and are published over JMX and in a periodic log summary, along with the number of
+ * taps per second through each stage and any registered gauges, such as queue depths, and counters, such as user
+ * interface updates.
+ */
+public class TapMetrics {
+
+    private static final Logger log = LoggerFactory.getLogger(TapMetrics.class);
+
+    /**
+     * A stage of the tap path.
+     */
+    public enum Stage {
+        /**
+         * From the card being detected to its read starting.
+         */
+        DETECT,
+        /**
+         * Reading the card's UID, including connecting to the card.
+         */
+        READ,
+        /**
+         * From the card being read to the tap being taken for processing.
+         */
+        QUEUE,
+        /**
+         * Finding the student who has the card.
+         */
+        LOOKUP,
+        /**
+         * Choosing the course, checking enrollment and dropping repeats.
+         */
+        ROUTE,
+        /**
+         * Recording the attendance.
+         */
+        ATTEND,
+        /**
+         * From the card being detected to the attendance being recorded.
+         */
+        TOTAL,
+        /**
+         * Querying the statuses of the course, or of the student who tapped, and queueing them for the students table.
+         */
+        REFRESH,
+        /**
+         * From a tap being claimed by a dialog to the dialog's callback running.
+         */
+        HANDOFF,
+        /**
+         * The resolve stage of the tap pipeline: waiting in its queue, then looking up and routing the tap.
+         */
+        RESOLVE,
+        /**
+         * The persist stage of the tap pipeline: waiting in its queue, then recording the attendance.
+         */
+        PERSIST,
+        /**
+         * The user interface stage of the tap pipeline: waiting in its queue, then handling the outcome of the tap.
+         */
+        HANDLE
+    }
+
+    private static final String OBJECT_NAME = "com.sudicode.nice:type=TapMetrics";
+    private static final Stage[] STAGES = Stage.values();
+    private static final LatencyHistogram[] all = newHistograms();
+    private static final ConcurrentMap<String, LatencyHistogram[]> byTerminal = new ConcurrentHashMap<>();
+    private static final ConcurrentMap<String, LongSupplier> gauges = new ConcurrentHashMap<>();
+    private static final ConcurrentMap<String, LongSupplier> counters = new ConcurrentHashMap<>();
+
+    private static ScheduledExecutorService logger;
+    private static Map<String, LatencyHistogram.Snapshot[]> lastLogged = new HashMap<>();
+    private static Map<String, Long> lastLoggedCounters = new HashMap<>();
+    private static long lastLoggedNanos = System.nanoTime();
+
+    /**
+     * Illegal.
+     */
+    private TapMetrics() {
+    }
+
+    /**
+     * Record the latency of a stage.
+     *
+     * @param stage    The {@link Stage}
+     * @param terminal Name of the terminal the card was tapped on, or <code>null</code> if unknown
+     * @param nanos    The latency, in nanoseconds
+     */
+    public static void record(Stage stage, String terminal, long nanos) {
+        all[stage.ordinal()].record(nanos);
+        if (terminal != null) {
+            LatencyHistogram[] histograms = byTerminal.get(terminal);
+            if (histograms == null) {
+                histograms = byTerminal.computeIfAbsent(terminal, key -> newHistograms());
+            }
+            histograms[stage.ordinal()].record(nanos);
+        }
+    }
+
+    /**
+     * Record the latency of a stage which started at a given time and has just ended.
+     *
+     * @param stage     The {@link Stage}
+     * @param terminal  Name of the terminal the card was tapped on, or <code>null</code> if unknown
+     * @param startNanos When the stage started, as in {@link System#nanoTime()}
+     * @return The current time, as in {@link System#nanoTime()}, for timing the next stage
+     */
+    public static long recordSince(Stage stage, String terminal, long startNanos) {
+        long now = System.nanoTime();
+        record(stage, terminal, now - startNanos);
+        return now;
+    }
+
+    /**
+     * @param stage The {@link Stage}
+     * @return Latencies of the stage on all terminals
+     */
+    public static LatencyHistogram.Snapshot snapshot(Stage stage) {
+        return all[stage.ordinal()].snapshot();
+    }
+
+    /**
+     * @param stage    The {@link Stage}
+     * @param terminal Name of the terminal
+     * @return Latencies of the stage on the terminal, or <code>null</code> if no tap on it has been recorded
+     */
+    public static LatencyHistogram.Snapshot snapshot(Stage stage, String terminal) {
+        LatencyHistogram[] histograms = byTerminal.get(terminal);
+        return histograms == null ? null : histograms[stage.ordinal()].snapshot();
+    }
+
+    /**
+     * Discard every recorded latency.
+     */
+    public static synchronized void reset() {
+        for (LatencyHistogram histogram : all) {
+            histogram.reset();
+        }
+        byTerminal.clear();
+        lastLogged.clear();
+        lastLoggedNanos = System.nanoTime();
+    }
+
+    /**
+     * Publish a gauge, such as the depth of a queue, replacing any gauge of the same name.
+     *
+     * @param name  Name of the gauge
+     * @param gauge Supplies the current value of the gauge. Called from the JMX and logging threads.
+     */
+    public static void registerGauge(String name, LongSupplier gauge) {
+        gauges.put(name, gauge);
+    }
+
+    /**
+     * Stop publishing a gauge.
+     *
+     * @param name Name of the gauge
+     */
+    public static void unregisterGauge(String name) {
+        gauges.remove(name);
+    }
+
+    /**
+     * @return Current value of every gauge, keyed by name
+     */
+    public static Map<String, Long> readGauges() {
+        Map<String, Long> values = new TreeMap<>();
+        gauges.forEach((name, gauge) -> values.put(name, gauge.getAsLong()));
+        return values;
+    }
+
+    /**
+     * Publish a counter, which only ever goes up, replacing any counter of the same name. Its total is published over
+     * JMX, and its rate per second in the log summary.
+     *
+     * @param name    Name of the counter
+     * @param counter Supplies the current total of the counter. Called from the JMX and logging threads.
+     */
+    public static void registerCounter(String name, LongSupplier counter) {
+        counters.put(name, counter);
+    }
+
+    /**
+     * Stop publishing a counter.
+     *
+     * @param name Name of the counter
+     */
+    public static void unregisterCounter(String name) {
+        counters.remove(name);
+    }
+
+    /**
+     * @return Current total of every counter, keyed by name
+     */
+    public static Map<String, Long> readCounters() {
+        Map<String, Long> values = new TreeMap<>();
+        counters.forEach((name, counter) -> values.put(name, counter.getAsLong()));
+        return values;
+    }
+
+    /**
+     * Publish the metrics over JMX, if they are not published already.
+     */
+    public static void register() {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            if (!server.isRegistered(name)) {
+                server.registerMBean(new StandardMBean(new Bean(), TapMetricsMXBean.class, true), name);
+            }
+        } catch (JMException e) {
+            log.warn("Could not publish tap metrics over JMX", e);
+        }
+    }
+
+    /**
+     * Log a summary of the latencies recorded during each period, on a background thread.
+     *
+     * @param period Length of the period
+     * @param unit   Unit of <code>period</code>
+     */
+    public static synchronized void startLogging(long period, TimeUnit unit) {
+        if (logger != null || period <= 0) {
+            return;
+        }
+        logger = Executors.newSingleThreadScheduledExecutor(
+                new ThreadFactoryBuilder().setNameFormat("nice-metrics").setDaemon(true).build());
+        logger.scheduleAtFixedRate(TapMetrics::logSummary, period, period, unit);
+    }
+
+    /**
+     * Stop logging, and log a summary of the latencies recorded since the last one.
+     */
+    public static synchronized void stopLogging() {
+        if (logger != null) {
+            logger.shutdownNow();
+            logger = null;
+            logSummary();
+        }
+    }
+
+    /**
+     * Log the latencies recorded since the last summary: one line for all terminals, then one for each terminal
+     * which had taps. The gauges are logged on a line of their own.
+     */
+    static synchronized void logSummary() {
+        long now = System.nanoTime();
+        double seconds = Math.max(1, now - lastLoggedNanos) / 1e9;
+        lastLoggedNanos = now;
+        if (!gauges.isEmpty()) {
+            log.info("Tap gauges: {}", readGauges());
+        }
+        if (!counters.isEmpty()) {
+            Map<String, Long> totals = readCounters();
+            StringBuilder rates = new StringBuilder();
+            totals.forEach((name, total) -> rates.append(rates.length() == 0 ? "" : ", ").append(name)
+                    .append(String.format(" %.2f/s", (total - lastLoggedCounters.getOrDefault(name, 0L)) / seconds)));
+            lastLoggedCounters = totals;
+            log.info("Tap counters: {}", rates);
+        }
+        String total = summarize(null, all, seconds);
+        if (total.isEmpty()) {
+            return;
+        }
+        log.info("Tap latency: {}", total);
+        for (Map.Entry<String, LatencyHistogram[]> entry : new TreeMap<>(byTerminal).entrySet()) {
+            String line = summarize(entry.getKey(), entry.getValue(), seconds);
+            if (!line.isEmpty()) {
+                log.info("Tap latency on {}: {}", entry.getKey(), line);
+            }
+        }
+    }
+
+    /**
+     * @param terminal   Name of the terminal, or <code>null</code> for all terminals
+     * @param histograms Histograms of the terminal
+     * @param seconds    Length of the interval since the last summary, in seconds
+     * @return Summary of every stage with latencies recorded since the last summary, or an empty string if none
+     */
+    private static String summarize(String terminal, LatencyHistogram[] histograms, double seconds) {
+        LatencyHistogram.Snapshot[] previous = lastLogged.get(terminal);
+        LatencyHistogram.Snapshot[] current = new LatencyHistogram.Snapshot[STAGES.length];
+        StringBuilder summary = new StringBuilder();
+        for (Stage stage : STAGES) {
+            current[stage.ordinal()] = histograms[stage.ordinal()].snapshot();
+            LatencyHistogram.Snapshot interval = previous == null
+                    ? current[stage.ordinal()]
+                    : current[stage.ordinal()].minus(previous[stage.ordinal()]);
+            if (interval.getCount() > 0) {
+                summary.append(summary.length() == 0 ? "" : ", ").append(stage).append(' ').append(StageStats.of(interval))
+                        .append(String.format(" (%.2f/s)", interval.getCount() / seconds));
+            }
+        }
+        lastLogged.put(terminal, current);
+        return summary.toString();
+    }
+
+    private static LatencyHistogram[] newHistograms() {
+        LatencyHistogram[] histograms = new LatencyHistogram[STAGES.length];
+        for (int i = 0; i < histograms.length; i++) {
+            histograms[i] = new LatencyHistogram();
+        }
+        return histograms;
+    }
+
+    private static Map<String, StageStats> stats(LatencyHistogram[] histograms) {
+        Map<String, StageStats> stats = new LinkedHashMap<>();
+        for (Stage stage : STAGES) {
+            stats.put(stage.name(), StageStats.of(histograms[stage.ordinal()].snapshot()));
+        }
+        return stats;
+    }
+
+    /**
+     * Publishes {@link TapMetrics} over JMX.
+     */
+    private static class Bean implements TapMetricsMXBean {
+
+        @Override
+        public Map<String, StageStats> getStages() {
+            return stats(all);
+        }
+
+        @Override
+        public Map<String, Map<String, StageStats>> getTerminals() {
+            Map<String, Map<String, StageStats>> terminals = new TreeMap<>();
+            byTerminal.forEach((terminal, histograms) -> terminals.put(terminal, stats(histograms)));
+            return terminals;
+        }
+
+        @Override
+        public Map<String, Long> getGauges() {
+            return readGauges();
+        }
+
+        @Override
+        public Map<String, Long> getCounters() {
+            return readCounters();
+        }
+
+        @Override
+        public void reset() {
+            TapMetrics.reset();
+        }
+
+    }
+
+}
@@ -0,0 +1,35 @@
+package com.sudicode.nice.metrics;
+
+import java.util.Map;
+
+/**
+ * Management interface of {@link TapMetrics}, published over JMX as <code>com.sudicode.nice:type=TapMetrics</code>.
+ */
+public interface TapMetricsMXBean {
+
+    /**
+     * @return Latencies of every stage on all terminals, keyed by stage
+     */
+    Map<String, StageStats> getStages();
+
+    /**
+     * @return Latencies of every stage, keyed by terminal and then by stage
+     */
+    Map<String, Map<String, StageStats>> getTerminals();
+
+    /**
+     * @return Current value of every gauge, such as queue depths, keyed by name
+     */
+    Map<String, Long> getGauges();
+
+    /**
+     * @return Current total of every counter, such as user interface updates, keyed by name
+     */
+    Map<String, Long> getCounters();
+
+    /**
+     * Discard every recorded latency.
+     */
+    void reset();
+
+}
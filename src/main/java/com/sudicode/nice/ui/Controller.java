@@ -1,50 +1,64 @@
 package com.sudicode.nice.ui;
 
 import com.diffplug.common.base.Errors;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.sudicode.nice.Constants;
+import com.sudicode.nice.TapDeduplicator;
+import com.sudicode.nice.TapPipeline;
+import com.sudicode.nice.TapProcessor;
 import com.sudicode.nice.Util;
+import com.sudicode.nice.database.AttendanceJournal;
+import com.sudicode.nice.database.AttendanceReport;
 import com.sudicode.nice.database.Course;
+import com.sudicode.nice.database.Migrations;
+import com.sudicode.nice.database.StatusService;
 import com.sudicode.nice.database.Student;
-import com.sudicode.nice.hardware.CardReader;
-import com.sudicode.nice.hardware.CardTerminalDevice;
-import com.sudicode.nice.hardware.DisabledCardTerminal;
+import com.sudicode.nice.database.StudentCache;
+import com.sudicode.nice.hardware.ReaderManager;
+import com.sudicode.nice.hardware.Tap;
+import com.sudicode.nice.metrics.StartupTimer;
+import com.sudicode.nice.metrics.TapMetrics;
+import com.sudicode.nice.metrics.TapMetrics.Stage;
+import javafx.animation.PauseTransition;
 import javafx.application.Platform;
-import javafx.beans.property.SimpleStringProperty;
 import javafx.collections.FXCollections;
 import javafx.fxml.FXML;
 import javafx.fxml.Initializable;
 import javafx.scene.control.ButtonType;
 import javafx.scene.control.ComboBox;
+import javafx.scene.control.Menu;
 import javafx.scene.control.TableColumn;
 import javafx.scene.control.TableView;
-import javafx.scene.control.cell.PropertyValueFactory;
 import javafx.scene.control.cell.TextFieldTableCell;
 import javafx.scene.layout.BorderPane;
 import javafx.scene.text.Font;
 import javafx.scene.text.Text;
 import javafx.scene.text.TextAlignment;
-import org.apache.commons.lang3.StringUtils;
+import javafx.util.Duration;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import javax.smartcardio.CardException;
-import javax.smartcardio.CardTerminal;
 import javax.smartcardio.TerminalFactory;
 import java.awt.Desktop;
+import java.io.IOException;
 import java.net.URL;
-import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.sql.SQLException;
 import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.ResourceBundle;
-
-import static org.awaitility.Awaitility.await;
-import static org.awaitility.Duration.FOREVER;
-import static org.hamcrest.Matchers.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
 
 /**
  * FXML controller class.
@@ -53,78 +67,279 @@ public class Controller implements Initializable {
 
     private static final Logger log = LoggerFactory.getLogger(Controller.class);
 
-    private CardTerminal cardTerminal;
-    private CardReader cardReader;
+    /**
+     * Time to wait before loading the students again, if the background workers were too busy to load them.
+     */
+    private static final Duration ROSTER_RETRY_DELAY = Duration.seconds(1);
+
+    private volatile ReaderManager readers;
+    private volatile TapProcessor tapProcessor;
+    private volatile TapPipeline tapPipeline;
+    private volatile AttendanceJournal journal;
 
     @FXML
     private BorderPane window;
     @FXML
-    private TableView<Student> studentsTable;
+    private Menu studentMenu;
     @FXML
-    private TableColumn<Student, String> idCol;
+    private Menu courseMenu;
     @FXML
-    private TableColumn<Student, String> lastNameCol;
+    private TableView<StudentRow> studentsTable;
     @FXML
-    private TableColumn<Student, String> firstNameCol;
+    private TableColumn<StudentRow, Number> idCol;
     @FXML
-    private TableColumn<Student, String> middleNameCol;
+    private TableColumn<StudentRow, String> lastNameCol;
     @FXML
-    private TableColumn<Student, String> statusCol;
+    private TableColumn<StudentRow, String> firstNameCol;
+    @FXML
+    private TableColumn<StudentRow, String> middleNameCol;
+    @FXML
+    private TableColumn<StudentRow, String> statusCol;
     @FXML
     private ComboBox<Course> courseSelect;
 
+    private volatile Course selectedCourse;
     private Text placeholder;
+    private Future<?> rosterLoad;
+    private long rosterGeneration;
+    private PagedRoster roster;
+    private final StatusCoalescer statusUpdates = new StatusCoalescer(Platform::runLater, this::showStatuses);
 
     /**
-     * Initalize dependencies here, since the {@link Controller} cannot be instantiated by Guice.
+     * Set up the window, then discover the card terminals, connect to the database and open the attendance journal
+     * concurrently in the background, so that the window shows straight away. The courses are shown as soon as they
+     * are loaded; cards are read once all three are ready.
      */
-    public Controller() {
-        cardTerminal = getCardTerminal();
-        cardReader = new CardReader(new CardTerminalDevice(cardTerminal));
-    }
-
     @Override
     public void initialize(URL location, ResourceBundle resources) {
-        // Open database connection
-        Util.openDbConnection();
-
-        // Initialize choice box.
-        courseSelect.setItems(FXCollections.observableArrayList(Course.findAll()));
-
         // Initialize students table.
-        placeholder = new Text("Create or select a course to begin.");
+        placeholder = new Text("Connecting to database...");
         placeholder.setFont(Font.font(Constants.PLACEHOLDER_SIZE));
         placeholder.wrappingWidthProperty().bind(window.widthProperty());
         placeholder.setTextAlignment(TextAlignment.CENTER);
         studentsTable.setPlaceholder(placeholder);
-        courseSelect.getSelectionModel().selectedItemProperty().addListener((x, y, z) -> loadStudents());
-
-        // Listen for cards.
-        Util.submitBackgroundTask(Errors.dialog().wrap(() -> {
-            while (!Thread.interrupted()) {
-                // Wait until a valid course is selected.
-                await().atMost(FOREVER).until(this::getSelectedCourse, is(notNullValue()));
-
-                // Get UID.
-                int uid = cardReader.readUID();
-                Optional<Student> oStudent = Optional.ofNullable(Student.findById(uid));
-
-                // Get selected course.
-                Course course = getSelectedCourse();
-                if (course == null) continue;
-
-                // Either mark student's attendance, enroll the student, or register the student.
-                if (oStudent.isPresent() && studentsTable.getItems().contains(oStudent.get())) {
-                    oStudent.get().attend(course);
-                    Platform.runLater(() -> studentsTable.refresh());
-                } else if (oStudent.isPresent()) {
-                    Platform.runLater(() -> enrollStudent(oStudent.get(), course));
-                } else {
-                    Platform.runLater(() -> addStudent(uid, course));
+        initializeColumns();
+        courseSelect.getSelectionModel().selectedItemProperty().addListener((x, y, z) -> {
+            selectedCourse = z;
+            loadStudents();
+        });
+
+        // Disable whatever needs the database until it is connected
+        setDatabaseControlsDisabled(true);
+
+        // Publish tap latencies
+        TapMetrics.register();
+        statusUpdates.registerMetrics();
+        TapMetrics.startLogging(Constants.METRICS_LOG_INTERVAL_MS, TimeUnit.MILLISECONDS);
+
+        // Start up in the background
+        ExecutorService startup = Executors.newFixedThreadPool(3,
+                new ThreadFactoryBuilder().setNameFormat("nice-startup-%d").setDaemon(true).build());
+        CompletableFuture<ReaderManager> terminals = CompletableFuture.supplyAsync(this::discoverTerminals, startup);
+        CompletableFuture<AttendanceJournal> journalOpened = CompletableFuture.supplyAsync(this::openJournal, startup);
+        CompletableFuture<List<Course>> courses = CompletableFuture.supplyAsync(this::connectAndLoadCourses, startup);
+        startup.shutdown();
+        courses.whenComplete((loaded, e) -> Platform.runLater(() -> showCourses(loaded, e)));
+        CompletableFuture.allOf(terminals, journalOpened, courses).whenComplete((x, e) -> {
+            if (e == null) {
+                try {
+                    startReadingCards(terminals.join(), journalOpened.join());
+                } catch (RuntimeException failure) {
+                    log.error("Could not start reading cards", failure);
+                    Platform.runLater(() -> DialogFactory.showThrowableDialog(failure));
                 }
-                cardTerminal.waitForCardAbsent(0);
+            } else {
+                log.error("Not reading cards, since startup failed", e);
+                closeUnused(terminals, journalOpened);
             }
-        }));
+            StartupTimer.log();
+        });
+    }
+
+    /**
+     * Close the terminals and the attendance journal, whichever were opened, when startup has failed and cards will
+     * not be read. Runs on a startup thread.
+     *
+     * @param terminals     The discovered terminals
+     * @param journalOpened The opened journal
+     */
+    private static void closeUnused(CompletableFuture<ReaderManager> terminals,
+                                    CompletableFuture<AttendanceJournal> journalOpened) {
+        terminals.thenAccept(ReaderManager::close);
+        journalOpened.thenAccept(unused -> {
+            if (unused != null) {
+                try {
+                    unused.close();
+                } catch (IOException e) {
+                    log.warn("Could not close attendance journal", e);
+                }
+            }
+        });
+    }
+
+    /**
+     * Find every card terminal. Runs on a startup thread.
+     *
+     * @return A {@link ReaderManager} for the terminals
+     */
+    private ReaderManager discoverTerminals() {
+        long start = System.nanoTime();
+        ReaderManager discovered = ReaderManager.forAllTerminals(TerminalFactory.getDefault());
+        StartupTimer.recordSince("terminals", start);
+        return discovered;
+    }
+
+    /**
+     * Open the attendance journal. Runs on a startup thread.
+     *
+     * @return The {@link AttendanceJournal}, or <code>null</code> if it could not be opened
+     */
+    private AttendanceJournal openJournal() {
+        long start = System.nanoTime();
+        try {
+            return AttendanceJournal.open(Constants.JOURNAL_PATH, Constants.JOURNAL_CAPACITY);
+        } catch (IOException e) {
+            log.error("Could not open attendance journal, attendance will be written directly", e);
+            return null;
+        } finally {
+            StartupTimer.recordSince("journal", start);
+        }
+    }
+
+    /**
+     * Connect to the database, bring the schema up to date and load the courses. Runs on a startup thread.
+     *
+     * @return The courses
+     * @throws CompletionException if the schema could not be brought up to date
+     */
+    private List<Course> connectAndLoadCourses() {
+        long start = System.nanoTime();
+        Util.openDbConnection();
+        try {
+            start = StartupTimer.recordSince("database", start);
+            try {
+                Migrations.migrate();
+            } catch (SQLException | IOException e) {
+                // The schema is unknown, so nothing else may use the database
+                throw new CompletionException(e);
+            }
+            start = StartupTimer.recordSince("migrations", start);
+            List<Course> courses = new ArrayList<>(Course.findAll());
+            StartupTimer.recordSince("courses", start);
+            return courses;
+        } finally {
+            Util.closeDbConnection();
+        }
+    }
+
+    /**
+     * Show the courses once they are loaded, and enable whatever needs the database. Must be called from the user
+     * interface thread.
+     *
+     * @param courses The courses, or <code>null</code> if they could not be loaded
+     * @param failure Why the courses could not be loaded, or <code>null</code> if they were
+     */
+    private void showCourses(List<Course> courses, Throwable failure) {
+        if (failure != null) {
+            placeholder.setText("Could not open database.");
+            DialogFactory.showThrowableDialog(failure instanceof CompletionException ? failure.getCause() : failure);
+            return;
+        }
+
+        // The database is reachable by now, so this is quick
+        Util.openHeldDbConnection();
+        courseSelect.setItems(FXCollections.observableArrayList(courses));
+        placeholder.setText("Create or select a course to begin.");
+        setDatabaseControlsDisabled(false);
+        StartupTimer.mark("courses shown");
+
+        // Warm up the student cache, unless the background workers are already too busy
+        try {
+            Util.submitBackgroundTask(Errors.log().wrap(StudentCache::warmUp));
+        } catch (RejectedExecutionException e) {
+            log.warn("Not warming up the student cache", e);
+        }
+    }
+
+    /**
+     * Start replaying the journal into the database, and start listening for cards on every terminal. Runs on a
+     * startup thread.
+     *
+     * @param readers The {@link ReaderManager}
+     * @param journal The {@link AttendanceJournal}, or <code>null</code> if attendance is to be written directly
+     */
+    private void startReadingCards(ReaderManager readers, AttendanceJournal journal) {
+        long start = System.nanoTime();
+
+        // Publish both straight away, so that they are closed on quitting even if a later step fails
+        this.journal = journal;
+        this.readers = readers;
+        if (journal != null) {
+            journal.startDrainer(Util.getDataSource(), seq -> reloadStatuses());
+        }
+        tapProcessor = new TapProcessor(journal, new TapDeduplicator(Constants.TAP_DEDUPE_WINDOW_MS, TimeUnit.MILLISECONDS));
+        tapPipeline = new TapPipeline(readers, tapProcessor, Util.getHeldDataSource(), new TapHandler(),
+                Constants.TAP_QUEUE_CAPACITY, Constants.TAP_BACKPRESSURE);
+        tapPipeline.start();
+        readers.start();
+        StartupTimer.recordSince("card readers", start);
+    }
+
+    /**
+     * @param disabled <code>true</code> to disable the course selector and the menus which need the database
+     */
+    private void setDatabaseControlsDisabled(boolean disabled) {
+        courseSelect.setDisable(disabled);
+        studentMenu.setDisable(disabled);
+        courseMenu.setDisable(disabled);
+    }
+
+    /**
+     * Hands taps to dialogs, then updates the students table or asks the instructor to enroll or register the
+     * student.
+     */
+    private class TapHandler implements TapPipeline.Handler {
+
+        @Override
+        public boolean claim(Tap tap) {
+            return DialogFactory.claimTap(tap.getUid());
+        }
+
+        @Override
+        public Course getSelectedCourse() {
+            return selectedCourse;
+        }
+
+        @Override
+        public void handle(Tap tap, TapProcessor.Result result) throws SQLException {
+            long uid = tap.getUid();
+            Course course = result.getCourse();
+            switch (result.getOutcome()) {
+                case ATTENDED:
+                    updateStatus(result.getStudent(), course);
+                    break;
+                case NOT_ENROLLED:
+                    Platform.runLater(() -> enrollStudent(result.getStudent(), course));
+                    break;
+                case UNREGISTERED:
+                    Platform.runLater(() -> addStudent(uid, course));
+                    break;
+                case REPEATED:
+                    log.debug("Ignoring repeated tap of card {} for {}.", uid, course);
+                    break;
+                case NO_COURSE:
+                    log.info("Ignoring card {}: no course is selected or in session.", uid);
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        @Override
+        public void failed(Tap tap, Exception e) {
+            Errors.dialog().accept(e);
+        }
+
     }
 
     /**
@@ -133,7 +348,7 @@ public class Controller implements Initializable {
      *
      * @param studentId The new student's ID
      */
-    private void addStudent(int studentId) {
+    private void addStudent(long studentId) {
         addStudent(studentId, null);
     }
 
@@ -144,7 +359,7 @@ public class Controller implements Initializable {
      * @param studentId The new student's ID
      * @param course    Course to immediately enroll in
      */
-    private void addStudent(int studentId, Course course) {
+    private void addStudent(long studentId, Course course) {
         // Ask the instructor if they wish to add a new student.
         if (DialogFactory.getAddStudentDialog().showAndWait().orElse(null) == ButtonType.OK) {
             Student newStudent = new Student();
@@ -153,7 +368,10 @@ public class Controller implements Initializable {
                 s.insert();
                 if (course != null) {
                     s.enroll(course);
-                    studentsTable.getItems().add(s);
+                    if (isSelected(course)) {
+                        addRow(s);
+                        reloadStatuses();
+                    }
                 }
             }));
         }
@@ -169,7 +387,10 @@ public class Controller implements Initializable {
         if (DialogFactory.getEnrollStudentDialog(student, course).showAndWait().orElse(null) == ButtonType.OK) {
             try {
                 student.enroll(course);
-                studentsTable.getItems().add(student);
+                if (isSelected(course)) {
+                    addRow(student);
+                    reloadStatuses();
+                }
             } catch (SQLException e) {
                 DialogFactory.showThrowableDialog(e);
             }
@@ -177,57 +398,219 @@ public class Controller implements Initializable {
     }
 
     /**
-     * Loads students into the students table.
+     * Bind the columns of the students table to {@link StudentRow} properties, and save edited names in the
+     * background. Rows which have not been loaded yet cannot be edited.
      */
-    private void loadStudents() {
-        // Get selected course.
-        Course selected = getSelectedCourse();
-
-        // Initialize table.
-        idCol.setCellValueFactory(new PropertyValueFactory<>("studentId"));
+    private void initializeColumns() {
+        idCol.setCellValueFactory(param -> param.getValue().studentIdProperty());
 
         lastNameCol.setCellFactory(TextFieldTableCell.forTableColumn());
-        lastNameCol.setCellValueFactory(new PropertyValueFactory<>("lastName"));
+        lastNameCol.setCellValueFactory(param -> param.getValue().lastNameProperty());
         lastNameCol.setOnEditCommit(edit -> {
-            Student student = edit.getRowValue();
-            student.setLastName(edit.getNewValue());
-            student.saveIt();
+            StudentRow row = edit.getRowValue();
+            if (row.getStudent() == null) {
+                return;
+            }
+            row.lastNameProperty().set(edit.getNewValue());
+            row.getStudent().setLastName(edit.getNewValue());
+            saveInBackground(row.getStudent());
         });
 
         firstNameCol.setCellFactory(TextFieldTableCell.forTableColumn());
-        firstNameCol.setCellValueFactory(new PropertyValueFactory<>("firstName"));
+        firstNameCol.setCellValueFactory(param -> param.getValue().firstNameProperty());
         firstNameCol.setOnEditCommit(edit -> {
-            Student student = edit.getRowValue();
-            student.setFirstName(edit.getNewValue());
-            student.saveIt();
+            StudentRow row = edit.getRowValue();
+            if (row.getStudent() == null) {
+                return;
+            }
+            row.firstNameProperty().set(edit.getNewValue());
+            row.getStudent().setFirstName(edit.getNewValue());
+            saveInBackground(row.getStudent());
         });
 
         middleNameCol.setCellFactory(TextFieldTableCell.forTableColumn());
-        middleNameCol.setCellValueFactory(new PropertyValueFactory<>("middleName"));
+        middleNameCol.setCellValueFactory(param -> param.getValue().middleNameProperty());
         middleNameCol.setOnEditCommit(edit -> {
-            Student student = edit.getRowValue();
-            student.setMiddleName(edit.getNewValue());
-            student.saveIt();
-        });
-
-        statusCol.setCellValueFactory(param -> {
-            try {
-                return new SimpleStringProperty(param.getValue().getStatus(selected, LocalDate.now()));
-            } catch (SQLException e) {
-                DialogFactory.showThrowableDialog(e);
-                return new SimpleStringProperty();
+            StudentRow row = edit.getRowValue();
+            if (row.getStudent() == null) {
+                return;
             }
+            row.middleNameProperty().set(edit.getNewValue());
+            row.getStudent().setMiddleName(edit.getNewValue());
+            saveInBackground(row.getStudent());
         });
 
+        statusCol.setCellValueFactory(param -> param.getValue().statusProperty());
+    }
+
+    /**
+     * Loads students into the students table. Only the IDs of the students are loaded up front, in the background,
+     * while a loading placeholder is shown; their rows are then loaded a page at a time as they are scrolled into view.
+     * A load which is still running when another course is selected is cancelled, and its IDs are discarded. If the
+     * background workers are too busy to load the IDs, they are loaded again shortly, unless another course is selected
+     * in the meantime.
+     */
+    private void loadStudents() {
+        // Get selected course.
+        Course selected = getSelectedCourse();
+
+        // Cancel the previous load, if any.
+        long generation = ++rosterGeneration;
+        if (rosterLoad != null) {
+            rosterLoad.cancel(true);
+            rosterLoad = null;
+        }
+        if (roster != null) {
+            roster.dispose();
+            roster = null;
+        }
+
         // Populate table.
+        statusUpdates.clear();
+        studentsTable.setItems(FXCollections.observableArrayList());
         if (selected == null) {
             placeholder.setText("Create or select a course to begin.");
-            studentsTable.getItems().clear();
-        } else {
-            placeholder.setText(String.format("Tap student ID card to enroll them in %s.", selected));
-            int crn = getSelectedCourse().getCrn();
-            studentsTable.setItems(FXCollections.observableList(Student.findByCrn(crn)));
+            return;
+        }
+        placeholder.setText(String.format("Loading students of %s...", selected));
+        try {
+            rosterLoad = submitRosterLoad(selected, generation);
+        } catch (RejectedExecutionException e) {
+            log.warn("Could not load students of {}, retrying", selected, e);
+            placeholder.setText(String.format("Too busy to load students of %s, retrying...", selected));
+            PauseTransition retry = new PauseTransition(ROSTER_RETRY_DELAY);
+            retry.setOnFinished(event -> {
+                if (generation == rosterGeneration) {
+                    loadStudents();
+                }
+            });
+            retry.play();
+        }
+    }
+
+    /**
+     * Load the IDs of the students of a course in the background, then show them if the course is still selected.
+     *
+     * @param selected   The selected {@link Course}
+     * @param generation The roster generation at which the load was requested
+     * @return The {@link Future} of the load
+     * @throws RejectedExecutionException if the background workers are too busy to load the IDs
+     */
+    private Future<?> submitRosterLoad(Course selected, long generation) {
+        return Util.submitBackgroundTask(Errors.dialog().wrap(() -> {
+            long[] ids = Student.findIdsByCrn(selected.getCrn());
+            Platform.runLater(() -> {
+                if (generation == rosterGeneration) {
+                    rosterLoad = null;
+                    roster = new PagedRoster(ids, Constants.ROSTER_PAGE_SIZE, Constants.ROSTER_MAX_PAGES,
+                            (from, limit) -> StudentRow.loadPage(selected, LocalDate.now(), from, limit),
+                            Util::submitBackgroundTask, Platform::runLater);
+                    studentsTable.setItems(roster);
+                    placeholder.setText(String.format("Tap student ID card to enroll them in %s.", selected));
+                }
+            });
+        }));
+    }
+
+    /**
+     * Add a row for a student who has just been enrolled in the selected course. Must be called from the user
+     * interface thread.
+     *
+     * @param student The {@link Student}
+     */
+    private void addRow(Student student) {
+        if (roster != null) {
+            roster.addStudent(student.getStudentId());
+        }
+    }
+
+    /**
+     * Save a student whose row was edited, in the background.
+     *
+     * @param student The {@link Student}
+     */
+    private void saveInBackground(Student student) {
+        submitOrShow(Errors.dialog().wrap(student::saveIt));
+    }
+
+    /**
+     * Recompute the statuses of the selected course in the background. May be called from any thread. If the
+     * background workers are too busy, the statuses are left as they are until the next reload.
+     */
+    private void reloadStatuses() {
+        Course course = selectedCourse;
+        if (course != null) {
+            try {
+                Util.submitBackgroundTask(Errors.dialog().wrap(() -> updateStatuses(course)));
+            } catch (RejectedExecutionException e) {
+                log.warn("Could not reload statuses of {}", course, e);
+            }
+        }
+    }
+
+    /**
+     * Run a task in the background, showing an error dialog if the background workers are too busy to accept it. Must
+     * be called from the user interface thread.
+     *
+     * @param task The task
+     */
+    private static void submitOrShow(Runnable task) {
+        try {
+            Util.submitBackgroundTask(task);
+        } catch (RejectedExecutionException e) {
+            DialogFactory.showThrowableDialog(e);
+        }
+    }
+
+    /**
+     * Recompute the statuses of a course, then queue them to be shown if the course is still selected. Must be called
+     * from a background thread.
+     *
+     * @param course The {@link Course}
+     * @throws SQLException if a database access error occurs
+     */
+    private void updateStatuses(Course course) throws SQLException {
+        long start = System.nanoTime();
+        statusUpdates.post(course.getCrn(), StatusService.getStatuses(course, LocalDate.now()));
+        TapMetrics.recordSince(Stage.REFRESH, null, start);
+    }
+
+    /**
+     * Recompute the status of a student who has just tapped, then queue it to be shown if the course is still
+     * selected. Must be called from a background thread.
+     *
+     * @param student The {@link Student}
+     * @param course  The {@link Course}
+     * @throws SQLException if a database access error occurs
+     */
+    private void updateStatus(Student student, Course course) throws SQLException {
+        long start = System.nanoTime();
+        statusUpdates.post(course.getCrn(), student.getStudentId(), student.getStatus(course, LocalDate.now()));
+        TapMetrics.recordSince(Stage.REFRESH, null, start);
+    }
+
+    /**
+     * Show statuses in the students table, if their course is selected. Only the cells of students whose status
+     * changed are redrawn. Must be called from the user interface thread.
+     *
+     * @param crn     CRN of the course
+     * @param updated Statuses, keyed by student ID
+     * @return Number of students whose status changed
+     */
+    private int showStatuses(int crn, Map<Long, String> updated) {
+        Course selected = getSelectedCourse();
+        if (selected == null || selected.getCrn() != crn) {
+            return 0;
         }
+        int changed = 0;
+        for (Map.Entry<Long, String> entry : updated.entrySet()) {
+            StudentRow row = roster != null ? roster.find(entry.getKey()) : null;
+            if (row != null && !Objects.equals(row.statusProperty().get(), entry.getValue())) {
+                row.statusProperty().set(entry.getValue());
+                changed++;
+            }
+        }
+        return changed;
     }
 
     /**
@@ -235,8 +618,8 @@ public class Controller implements Initializable {
      */
     public void updateStudent() {
         courseSelect.getSelectionModel().clearSelection();
-        DialogFactory.showAsyncWaitForCardDialog(cardReader, Errors.dialog().wrap(uid -> {
-            Optional<Student> oStudent = Optional.ofNullable(Student.findById(uid));
+        DialogFactory.showAsyncWaitForCardDialog(Errors.dialog().wrap(uid -> {
+            Optional<Student> oStudent = Optional.ofNullable(StudentCache.refresh(uid));
             if (oStudent.isPresent()) {
                 Optional<Student> result = DialogFactory.showStudentDialog(oStudent.get());
                 if (result.isPresent()) {
@@ -255,8 +638,8 @@ public class Controller implements Initializable {
      */
     public void deleteStudent() {
         courseSelect.getSelectionModel().clearSelection();
-        DialogFactory.showAsyncWaitForCardDialog(cardReader, Errors.dialog().wrap(uid -> {
-            Optional<Student> oStudent = Optional.ofNullable(Student.findById(uid));
+        DialogFactory.showAsyncWaitForCardDialog(Errors.dialog().wrap(uid -> {
+            Optional<Student> oStudent = Optional.ofNullable(StudentCache.refresh(uid));
             if (oStudent.isPresent()) {
                 DialogFactory.getDeleteStudentDialog(oStudent.get()).showAndWait().ifPresent(Errors.dialog().wrap(buttonType -> {
                     Student student = oStudent.get();
@@ -295,7 +678,7 @@ public class Controller implements Initializable {
                 c.saveIt();
                 courseSelect.getItems().set(index, c);
                 DialogFactory.showObjectUpdatedDialog(c);
-                studentsTable.refresh();
+                reloadStatuses();
             }));
         }
     }
@@ -324,21 +707,27 @@ public class Controller implements Initializable {
      * @return Selected student
      */
     private Student getSelectedStudent() {
-        return studentsTable.getSelectionModel().getSelectedItem();
+        StudentRow row = studentsTable.getSelectionModel().getSelectedItem();
+        return row != null ? row.getStudent() : null;
     }
 
     /**
-     * @return Selected student index
+     * Must be called from the user interface thread. Other threads read {@link #selectedCourse}, which mirrors the
+     * selection.
+     *
+     * @return Selected course
      */
-    private int getSelectedStudentIndex() {
-        return studentsTable.getSelectionModel().getSelectedIndex();
+    private Course getSelectedCourse() {
+        return courseSelect.getSelectionModel().getSelectedItem();
     }
 
     /**
-     * @return Selected course
+     * @param course The {@link Course}
+     * @return <code>true</code> if the course is the selected course
      */
-    private Course getSelectedCourse() {
-        return courseSelect.getSelectionModel().getSelectedItem();
+    private boolean isSelected(Course course) {
+        Course selected = getSelectedCourse();
+        return selected != null && selected.getCrn().equals(course.getCrn());
     }
 
     /**
@@ -352,27 +741,29 @@ public class Controller implements Initializable {
      * Terminate the application.
      */
     public void quit() {
-        Util.closeDbConnection();
-        Platform.exit();
-    }
+        log.info("Student cache: {}, {} negative hits.", StudentCache.getStats(), StudentCache.getNegativeHitCount());
+        if (tapProcessor != null) {
+            TapDeduplicator deduplicator = tapProcessor.getDeduplicator();
+            log.info("Taps: {} accepted, {} repeats ignored.", deduplicator.getAcceptedCount(), deduplicator.getSuppressedCount());
+        }
+        TapMetrics.stopLogging();
 
-    /**
-     * Get card reader.
-     *
-     * @return The {@link CardTerminal}
-     */
-    private CardTerminal getCardTerminal() {
-        try {
-            TerminalFactory terminalFactory = TerminalFactory.getDefault();
-            List<CardTerminal> terminals = terminalFactory.terminals().list();
-            log.info("Available terminals: {}", terminals);
-            CardTerminal cardTerminal = terminals.get(0);
-            log.info("Commands will be sent to {}", cardTerminal.getName());
-            return cardTerminal;
-        } catch (CardException | RuntimeException e) {
-            log.error("Could not get card reader", e);
-            return new DisabledCardTerminal();
+        // Stop taps at their source, then let those in flight reach the journal before closing it
+        if (readers != null) {
+            readers.close();
+        }
+        if (tapPipeline != null) {
+            tapPipeline.close();
         }
+        if (journal != null) {
+            try {
+                journal.close();
+            } catch (IOException e) {
+                log.warn("Could not close attendance journal", e);
+            }
+        }
+        Util.shutdown();
+        Platform.exit();
     }
 
     /**
@@ -386,33 +777,14 @@ public class Controller implements Initializable {
             return;
         }
 
-        DialogFactory.showDateDialog().ifPresent(Errors.dialog().wrap(from -> {
-            // Build date array
-            List<LocalDate> dates = new ArrayList<>();
-            for (LocalDate date = from; !date.isAfter(LocalDate.now()); date = date.plusDays(1)) {
-                if (course.getStart(date.getDayOfWeek()) != null && course.getEnd(date.getDayOfWeek()) != null) {
-                    dates.add(date);
-                }
-            }
-
-            // Build CSV string
-            StringBuilder csv = new StringBuilder();
-            csv.append(',').append(StringUtils.join(dates, ',')).append(System.lineSeparator());
-            for (Student student : studentsTable.getItems()) {
-                csv.append(student).append(',');
-                for (LocalDate date : dates) {
-                    csv.append(student.getStatus(course, date)).append(',');
-                }
-                csv.append(System.lineSeparator());
-            }
-
+        DialogFactory.showDateDialog().ifPresent(from -> submitOrShow(Errors.dialog().wrap(() -> {
             // Export CSV file
             Path csvFile = Files.createTempFile(null, ".csv");
-            Files.write(csvFile, csv.toString().getBytes(StandardCharsets.UTF_8));
+            AttendanceReport.export(course, from, LocalDate.now(), csvFile);
 
             // Open in default application (e.g. Microsoft Excel)
             Desktop.getDesktop().open(csvFile.toFile());
-        }));
+        })));
     }
 
     /**
@@ -420,8 +792,8 @@ public class Controller implements Initializable {
      */
     public void registerStudent() {
         courseSelect.getSelectionModel().clearSelection();
-        DialogFactory.showAsyncWaitForCardDialog(cardReader, integer -> {
-            Student student = Student.findById(integer);
+        DialogFactory.showAsyncWaitForCardDialog(integer -> {
+            Student student = StudentCache.refresh(integer);
             if (student != null) {
                 DialogFactory.showAlreadyRegisteredDialog(student);
             } else {
@@ -451,7 +823,9 @@ public class Controller implements Initializable {
         // Drop student
         try {
             course.drop(student);
-            studentsTable.getItems().remove(getSelectedStudentIndex());
+            if (roster != null) {
+                roster.removeStudent(student.getStudentId());
+            }
         } catch (SQLException e) {
             DialogFactory.showThrowableDialog(e);
         }
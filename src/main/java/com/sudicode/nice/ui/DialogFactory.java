@@ -1,11 +1,9 @@
 package com.sudicode.nice.ui;
 
-import com.diffplug.common.base.Errors;
 import com.sudicode.nice.Constants;
-import com.sudicode.nice.Util;
 import com.sudicode.nice.database.Course;
 import com.sudicode.nice.database.Student;
-import com.sudicode.nice.hardware.CardReader;
+import com.sudicode.nice.metrics.TapMetrics;
 import javafx.application.Platform;
 import javafx.beans.value.ChangeListener;
 import javafx.geometry.Insets;
@@ -39,6 +37,7 @@ import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Consumer;
 
 import static org.apache.commons.text.WordUtils.capitalizeFully;
@@ -51,6 +50,8 @@ public class DialogFactory {
     private static final Logger log = LoggerFactory.getLogger(DialogFactory.class);
     private static final IntegerValidator intValidator = IntegerValidator.getInstance();
 
+    private static final AtomicReference<Consumer<Long>> cardClaim = new AtomicReference<>();
+
     /**
      * Illegal.
      */
@@ -163,27 +164,50 @@ public class DialogFactory {
 
     /**
      * Show a dialog which requests the instructor to tap a student's card. If the dialog is closed before a card is
-     * tapped, do nothing. When a card is tapped, close the dialog and then call the callback with the card's UID
-     * as input.
+     * tapped, stop waiting for the card and do nothing. When a card is tapped, close the dialog and then call the
+     * callback with the card's UID as input. Taps are delivered to the dialog by {@link #claimTap(long)}.
      *
-     * @param cardReader The {@link CardReader} to use
-     * @param callback   A {@link Consumer} which is given the UID of the card
+     * @param callback A {@link Consumer} which is given the UID of the card
      */
-    public static void showAsyncWaitForCardDialog(CardReader cardReader, Consumer<Integer> callback) {
+    public static void showAsyncWaitForCardDialog(Consumer<Long> callback) {
         Dialog<Student> dialog = newDialog();
         dialog.setTitle("Tap Card");
         dialog.setHeaderText("Please tap the student's card.");
         dialog.setContentText("Waiting for card...");
         dialog.getDialogPane().getButtonTypes().add(ButtonType.CANCEL);
         dialog.setResultConverter(buttonType -> null);
-        dialog.show();
-        Util.submitBackgroundTask(Errors.dialog().wrap(() -> {
-            int uid = cardReader.readUID();
-            if (dialog.isShowing()) {
-                Platform.runLater(dialog::close);
-                Platform.runLater(() -> callback.accept(uid));
+        Consumer<Long> claim = uid -> {
+            long claimed = System.nanoTime();
+            Platform.runLater(() -> {
+                TapMetrics.recordSince(TapMetrics.Stage.HANDOFF, null, claimed);
+                if (dialog.isShowing()) {
+                    dialog.close();
+                    callback.accept(uid);
+                }
+            });
+        };
+        dialog.setOnHidden(event -> {
+            if (cardClaim.compareAndSet(claim, null)) {
+                log.info("Stopped waiting for card.");
             }
-        }));
+        });
+        cardClaim.set(claim);
+        dialog.show();
+    }
+
+    /**
+     * Give a tapped card to the dialog shown by {@link #showAsyncWaitForCardDialog(Consumer)}, if one is waiting.
+     *
+     * @param uid The card's UID
+     * @return <code>true</code> if a dialog was waiting for the card, in which case the tap belongs to it
+     */
+    public static boolean claimTap(long uid) {
+        Consumer<Long> claim = cardClaim.getAndSet(null);
+        if (claim == null) {
+            return false;
+        }
+        claim.accept(uid);
+        return true;
     }
 
     /**
@@ -300,7 +324,7 @@ public class DialogFactory {
 
             // Create check box. When enabled, enable the time range. Otherwise, disable it.
             CheckBox cb = new CheckBox(capitalizeFully(dayOfWeek.toString()));
-            cb.setSelected(course.getStart(dayOfWeek) != null && course.getEnd(dayOfWeek) != null);
+            cb.setSelected(course.getSchedule().meetsOn(dayOfWeek));
             from.disableProperty().bind(cb.selectedProperty().not());
             to.disableProperty().bind(cb.selectedProperty().not());
 
@@ -3,6 +3,7 @@ package com.sudicode.nice.ui;
 import com.diffplug.common.base.DurianPlugins;
 import com.diffplug.common.base.Errors.Plugins.Dialog;
 import com.sudicode.nice.Constants;
+import com.sudicode.nice.metrics.StartupTimer;
 import javafx.application.Application;
 import javafx.application.Platform;
 import javafx.fxml.FXMLLoader;
@@ -26,13 +27,17 @@ public class Main extends Application {
 
     @Override
     public void start(Stage primaryStage) throws Exception {
+        long start = System.nanoTime();
         Parent root = FXMLLoader.load(getClass().getResource("AttendanceTaker.fxml"));
+        start = StartupTimer.recordSince("fxml", start);
         Scene scene = new Scene(root, Constants.WINDOW_WIDTH, Constants.WINDOW_HEIGHT);
         scene.getStylesheets().add(Constants.STYLESHEET_URL);
         primaryStage.setTitle("NICE Attendance Taker");
         primaryStage.setScene(scene);
         primaryStage.getIcons().add(new Image(Constants.ICON_URL));
         primaryStage.show();
+        StartupTimer.recordSince("stylesheet and window", start);
+        StartupTimer.mark("window shown");
     }
 
 }
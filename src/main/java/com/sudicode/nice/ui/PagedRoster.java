@@ -0,0 +1,352 @@
+package com.sudicode.nice.ui;
+
+import javafx.collections.ObservableListBase;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * The students of a course, as a list which loads its rows a page at a time. Only the sorted student IDs are held in
+ * full; the rows of a page are loaded in the background the first time one of them is shown, starting from the first
+ * ID of the page, and a placeholder is shown until they arrive. The page after the one being shown, in the direction
+ * of scrolling, is loaded ahead of time.
+ * <p>
+ * At most <code>maxPages</code> pages are kept; the least recently shown page is discarded to make room. Must only be
+ * used on the user interface thread.
+ */
+class PagedRoster extends ObservableListBase<StudentRow> {
+
+    /**
+     * Loads the rows of a page. Called on a background thread.
+     */
+    @FunctionalInterface
+    interface PageSource {
+
+        /**
+         * @param fromStudentId Lowest student ID of the page
+         * @param limit         Maximum number of rows
+         * @return The rows, in ascending order of student ID
+         * @throws Exception if the rows could not be loaded
+         */
+        List<StudentRow> load(long fromStudentId, int limit) throws Exception;
+
+    }
+
+    /**
+     * Number of pages which may be loading at once. Further pages wait, the most recently requested first.
+     */
+    static final int MAX_LOADS = 2;
+
+    private static final Logger log = LoggerFactory.getLogger(PagedRoster.class);
+
+    /**
+     * The rows of a page. Holds placeholders until the page has loaded.
+     */
+    private static class Page {
+
+        private final StudentRow[] rows;
+        private boolean loaded;
+
+        private Page(StudentRow[] rows) {
+            this.rows = rows;
+        }
+
+    }
+
+    private final int pageSize;
+    private final PageSource source;
+    private final Executor backgroundExecutor;
+    private final Executor uiExecutor;
+    private final Map<Integer, Page> pages;
+    private final Deque<Integer> waiting = new ArrayDeque<>();
+
+    private long[] ids;
+    private int loading;
+    private int lastPage;
+    private boolean disposed;
+
+    /**
+     * Construct a new {@link PagedRoster}.
+     *
+     * @param ids                IDs of the students, in ascending order
+     * @param pageSize           Number of rows in a page
+     * @param maxPages           Number of pages to keep, at least 4: the two pages which may be on screen, and one
+     *                           ahead of them in each direction
+     * @param source             The {@link PageSource}
+     * @param backgroundExecutor Runs page loads in the background
+     * @param uiExecutor         Runs tasks on the user interface thread, such as <code>Platform::runLater</code>
+     */
+    PagedRoster(long[] ids, int pageSize, int maxPages, PageSource source, Executor backgroundExecutor,
+                Executor uiExecutor) {
+        if (pageSize < 1 || maxPages < 4) {
+            throw new IllegalArgumentException(String.format("Invalid page size %d or page count %d", pageSize, maxPages));
+        }
+        this.ids = ids;
+        this.pageSize = pageSize;
+        this.source = source;
+        this.backgroundExecutor = backgroundExecutor;
+        this.uiExecutor = uiExecutor;
+        this.pages = new LinkedHashMap<Integer, Page>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, Page> eldest) {
+                return size() > maxPages;
+            }
+        };
+    }
+
+    @Override
+    public StudentRow get(int index) {
+        if (index < 0 || index >= ids.length) {
+            throw new IndexOutOfBoundsException(String.format("Index %d, size %d", index, ids.length));
+        }
+        int page = index / pageSize;
+        int ahead = page < lastPage ? page - 1 : page + 1;
+        lastPage = page;
+        if (ahead >= 0 && ahead * pageSize < ids.length) {
+            request(ahead);
+        }
+        return request(page).rows[index % pageSize];
+    }
+
+    @Override
+    public int size() {
+        return ids.length;
+    }
+
+    /**
+     * Find the row of a student, without loading it.
+     *
+     * @param studentId The student's ID
+     * @return The row, which may be a placeholder, or <code>null</code> if the student is not in the list or their page
+     * is not held
+     */
+    StudentRow find(long studentId) {
+        int index = Arrays.binarySearch(ids, studentId);
+        if (index < 0) {
+            return null;
+        }
+        Page page = peek(index / pageSize);
+        return page != null ? page.rows[index % pageSize] : null;
+    }
+
+    /**
+     * Add a student who has just been enrolled. The pages from theirs onwards are discarded, since their rows have
+     * moved.
+     *
+     * @param studentId The student's ID
+     */
+    void addStudent(long studentId) {
+        int index = Arrays.binarySearch(ids, studentId);
+        if (index >= 0) {
+            return;
+        }
+        index = -index - 1;
+        long[] added = new long[ids.length + 1];
+        System.arraycopy(ids, 0, added, 0, index);
+        added[index] = studentId;
+        System.arraycopy(ids, index, added, index + 1, ids.length - index);
+        ids = added;
+        discardFrom(index / pageSize);
+        beginChange();
+        nextAdd(index, index + 1);
+        endChange();
+    }
+
+    /**
+     * Remove a student who has just been dropped. The pages from theirs onwards are discarded, since their rows have
+     * moved.
+     *
+     * @param studentId The student's ID
+     */
+    void removeStudent(long studentId) {
+        int index = Arrays.binarySearch(ids, studentId);
+        if (index < 0) {
+            return;
+        }
+        StudentRow removed = find(studentId);
+        long[] remaining = new long[ids.length - 1];
+        System.arraycopy(ids, 0, remaining, 0, index);
+        System.arraycopy(ids, index + 1, remaining, index, ids.length - index - 1);
+        ids = remaining;
+        discardFrom(index / pageSize);
+        beginChange();
+        nextRemove(index, removed != null ? removed : new StudentRow(studentId));
+        endChange();
+    }
+
+    /**
+     * Stop loading pages, such as when another course is selected. Pages which are still loading are discarded when
+     * they arrive.
+     */
+    void dispose() {
+        disposed = true;
+        waiting.clear();
+        pages.clear();
+    }
+
+    /**
+     * @return Number of pages held, whether loaded or not
+     */
+    int getPageCount() {
+        return pages.size();
+    }
+
+    /**
+     * @return Number of pages being loaded
+     */
+    int getLoadingCount() {
+        return loading;
+    }
+
+    /**
+     * Get a page, marking it as the most recently shown, and request it if it is not held.
+     *
+     * @param page Index of the page
+     * @return The page, which may not have loaded yet
+     */
+    private Page request(int page) {
+        Page held = pages.get(page);
+        if (held != null) {
+            return held;
+        }
+        int from = page * pageSize;
+        int to = Math.min(from + pageSize, ids.length);
+        StudentRow[] placeholders = new StudentRow[to - from];
+        for (int i = from; i < to; i++) {
+            placeholders[i - from] = new StudentRow(ids[i]);
+        }
+        Page created = new Page(placeholders);
+        pages.put(page, created);
+        waiting.remove(page);
+        waiting.addFirst(page);
+        pump();
+        return created;
+    }
+
+    /**
+     * Start loading waiting pages, up to {@link #MAX_LOADS} at once. Pages which were discarded while waiting are
+     * skipped.
+     */
+    private void pump() {
+        while (!disposed && loading < MAX_LOADS && !waiting.isEmpty()) {
+            int page = waiting.pollFirst();
+            Page target = peek(page);
+            if (target != null && !target.loaded) {
+                load(page, target);
+            }
+        }
+    }
+
+    /**
+     * Load a page in the background, then show its rows.
+     *
+     * @param page   Index of the page
+     * @param target The page
+     */
+    private void load(int page, Page target) {
+        long fromStudentId = target.rows[0].getStudentId();
+        int limit = target.rows.length;
+        loading++;
+        try {
+            backgroundExecutor.execute(() -> {
+                List<StudentRow> rows;
+                try {
+                    rows = source.load(fromStudentId, limit);
+                } catch (InterruptedException e) {
+                    rows = null;
+                } catch (Exception e) {
+                    log.warn("Could not load students from {}", fromStudentId, e);
+                    rows = null;
+                }
+                List<StudentRow> loaded = rows;
+                uiExecutor.execute(() -> install(page, target, loaded));
+            });
+        } catch (RejectedExecutionException e) {
+            // Forget the page, so that it is requested again when shown
+            loading--;
+            pages.remove(page);
+        }
+    }
+
+    /**
+     * Replace the placeholders of a page with its loaded rows. Runs on the user interface thread.
+     *
+     * @param page   Index of the page
+     * @param target The page
+     * @param loaded The loaded rows, or <code>null</code> if loading failed or was interrupted
+     */
+    private void install(int page, Page target, List<StudentRow> loaded) {
+        loading--;
+        if (disposed || peek(page) != target) {
+            pump();
+            return;
+        }
+        if (loaded == null || loaded.isEmpty()) {
+            // Forget the page, so that it is requested again when shown
+            pages.remove(page);
+            pump();
+            return;
+        }
+        Map<Long, StudentRow> byId = new LinkedHashMap<>();
+        loaded.forEach(row -> byId.put(row.getStudentId(), row));
+        int from = page * pageSize;
+        int replaced = 0;
+        beginChange();
+        for (int i = 0; i < target.rows.length; i++) {
+            StudentRow placeholder = target.rows[i];
+            StudentRow row = byId.get(placeholder.getStudentId());
+            if (row != null) {
+                // A status shown while the page was loading is newer than the loaded one
+                if (placeholder.statusProperty().get() != null) {
+                    row.statusProperty().set(placeholder.statusProperty().get());
+                }
+                target.rows[i] = row;
+                replaced++;
+                nextSet(from + i, placeholder);
+            }
+        }
+        target.loaded = true;
+        endChange();
+        log.debug("Loaded {} of {} students from {}.", replaced, target.rows.length, target.rows[0].getStudentId());
+        pump();
+    }
+
+    /**
+     * Discard the pages from a page onwards.
+     *
+     * @param page Index of the first page to discard
+     */
+    private void discardFrom(int page) {
+        Iterator<Integer> it = pages.keySet().iterator();
+        while (it.hasNext()) {
+            if (it.next() >= page) {
+                it.remove();
+            }
+        }
+    }
+
+    /**
+     * Get a page without marking it as shown.
+     *
+     * @param page Index of the page
+     * @return The page, or <code>null</code> if it is not held
+     */
+    private Page peek(int page) {
+        for (Map.Entry<Integer, Page> entry : pages.entrySet()) {
+            if (entry.getKey() == page) {
+                return entry.getValue();
+            }
+        }
+        return null;
+    }
+
+}
@@ -0,0 +1,160 @@
+package com.sudicode.nice.ui;
+
+import com.sudicode.nice.metrics.TapMetrics;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Batches status updates from background threads into as few user interface updates as possible. The first update
+ * after a flush schedules one on the user interface thread; updates which arrive before it runs are merged into the
+ * same batch, a later status of a student replacing an earlier one. During a rush of taps, the table is therefore
+ * updated at most once per pulse, however many taps arrive.
+ * <p>
+ * Updates are tagged with the CRN of their course. An update for a different course than the pending batch
+ * replaces the batch, since the statuses of the old course will not be shown.
+ */
+class StatusCoalescer {
+
+    /**
+     * Shows a batch of statuses. Called on the user interface thread.
+     */
+    @FunctionalInterface
+    interface Sink {
+
+        /**
+         * @param crn      CRN of the course
+         * @param statuses Statuses, keyed by student ID
+         * @return Number of rows whose status changed
+         */
+        int show(int crn, Map<Long, String> statuses);
+
+    }
+
+    private final Executor uiExecutor;
+    private final Sink sink;
+    private final AtomicLong posts = new AtomicLong();
+    private final AtomicLong rowUpdates = new AtomicLong();
+
+    private int pendingCrn;
+    private Map<Long, String> pending = new HashMap<>();
+    private boolean scheduled;
+
+    /**
+     * Construct a new {@link StatusCoalescer}.
+     *
+     * @param uiExecutor Runs tasks on the user interface thread, such as <code>Platform::runLater</code>
+     * @param sink       The {@link Sink}
+     */
+    StatusCoalescer(Executor uiExecutor, Sink sink) {
+        this.uiExecutor = uiExecutor;
+        this.sink = sink;
+    }
+
+    /**
+     * Queue the status of one student. May be called from any thread.
+     *
+     * @param crn       CRN of the course
+     * @param studentId The student's ID
+     * @param status    The status
+     */
+    void post(int crn, long studentId, String status) {
+        boolean schedule;
+        synchronized (this) {
+            schedule = prepare(crn);
+            pending.put(studentId, status);
+        }
+        if (schedule) {
+            schedule();
+        }
+    }
+
+    /**
+     * Queue the statuses of every student of a course. May be called from any thread.
+     *
+     * @param crn      CRN of the course
+     * @param statuses Statuses, keyed by student ID
+     */
+    void post(int crn, Map<Long, String> statuses) {
+        boolean schedule;
+        synchronized (this) {
+            schedule = prepare(crn);
+            pending.putAll(statuses);
+        }
+        if (schedule) {
+            schedule();
+        }
+    }
+
+    /**
+     * Discard the pending batch, such as when another course is selected.
+     */
+    synchronized void clear() {
+        pending.clear();
+    }
+
+    /**
+     * @return Number of batches posted to the user interface thread
+     */
+    long getPostCount() {
+        return posts.get();
+    }
+
+    /**
+     * @return Number of rows whose status changed
+     */
+    long getRowUpdateCount() {
+        return rowUpdates.get();
+    }
+
+    /**
+     * Publish the number of posts and row updates as {@link TapMetrics} counters.
+     */
+    void registerMetrics() {
+        TapMetrics.registerCounter("ui.runLaterPosts", posts::get);
+        TapMetrics.registerCounter("ui.rowUpdates", rowUpdates::get);
+    }
+
+    /**
+     * Must be called with the lock held.
+     *
+     * @param crn CRN of the course of the update about to be added
+     * @return <code>true</code> if a flush needs to be scheduled
+     */
+    private boolean prepare(int crn) {
+        if (crn != pendingCrn) {
+            pending.clear();
+            pendingCrn = crn;
+        }
+        if (scheduled) {
+            return false;
+        }
+        scheduled = true;
+        return true;
+    }
+
+    private void schedule() {
+        posts.incrementAndGet();
+        uiExecutor.execute(this::flush);
+    }
+
+    /**
+     * Show the pending batch. Runs on the user interface thread.
+     */
+    private void flush() {
+        int crn;
+        Map<Long, String> batch;
+        synchronized (this) {
+            crn = pendingCrn;
+            batch = pending;
+            pending = new HashMap<>();
+            scheduled = false;
+        }
+        if (!batch.isEmpty()) {
+            rowUpdates.addAndGet(sink.show(crn, batch));
+        }
+    }
+
+}
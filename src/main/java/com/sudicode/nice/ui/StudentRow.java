@@ -0,0 +1,124 @@
+package com.sudicode.nice.ui;
+
+import com.sudicode.nice.database.Course;
+import com.sudicode.nice.database.StatusService;
+import com.sudicode.nice.database.Student;
+import javafx.beans.property.ReadOnlyLongProperty;
+import javafx.beans.property.ReadOnlyLongWrapper;
+import javafx.beans.property.SimpleStringProperty;
+import javafx.beans.property.StringProperty;
+
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A row of the students table. Holds a copy of a {@link Student}'s fields and status in JavaFX properties, so that
+ * rendering the table never touches the database. Rows are loaded on a background thread; after that, their
+ * properties may only be changed on the user interface thread.
+ */
+public class StudentRow {
+
+    private final Student student;
+    private final ReadOnlyLongWrapper studentId;
+    private final StringProperty lastName;
+    private final StringProperty firstName;
+    private final StringProperty middleName;
+    private final StringProperty status;
+
+    /**
+     * Construct a new {@link StudentRow}.
+     *
+     * @param student The {@link Student}
+     * @param status  The student's status, or <code>null</code> if not known yet
+     */
+    public StudentRow(Student student, String status) {
+        this.student = student;
+        this.studentId = new ReadOnlyLongWrapper(this, "studentId", student.getStudentId());
+        this.lastName = new SimpleStringProperty(this, "lastName", student.getLastName());
+        this.firstName = new SimpleStringProperty(this, "firstName", student.getFirstName());
+        this.middleName = new SimpleStringProperty(this, "middleName", student.getMiddleName());
+        this.status = new SimpleStringProperty(this, "status", status);
+    }
+
+    /**
+     * Construct a placeholder for a row which has not been loaded yet. Its names are empty and it has no
+     * {@link Student}.
+     *
+     * @param studentId The student's ID
+     */
+    public StudentRow(long studentId) {
+        this.student = null;
+        this.studentId = new ReadOnlyLongWrapper(this, "studentId", studentId);
+        this.lastName = new SimpleStringProperty(this, "lastName");
+        this.firstName = new SimpleStringProperty(this, "firstName");
+        this.middleName = new SimpleStringProperty(this, "middleName");
+        this.status = new SimpleStringProperty(this, "status");
+    }
+
+    /**
+     * Load the rows of a page of the students enrolled in a {@link Course}, with their statuses. Uses the current
+     * thread's database connection.
+     *
+     * @param course        The {@link Course}
+     * @param date          The date of the statuses
+     * @param fromStudentId Lowest student ID of the page
+     * @param limit         Maximum number of rows
+     * @return The rows, in ascending order of student ID
+     * @throws SQLException         if a database access error occurs
+     * @throws InterruptedException if the thread was interrupted, such as by cancelling the load. The statuses are not
+     *                              queried once the thread has been interrupted.
+     */
+    public static List<StudentRow> loadPage(Course course, LocalDate date, long fromStudentId, int limit)
+            throws SQLException, InterruptedException {
+        // Copy the lazy list, so that the page is queried here rather than on first access
+        List<Student> students = new ArrayList<>(Student.findPageByCrn(course.getCrn(), fromStudentId, limit));
+        if (Thread.interrupted()) {
+            throw new InterruptedException();
+        }
+        if (students.isEmpty()) {
+            return new ArrayList<>();
+        }
+        long toStudentId = students.get(students.size() - 1).getStudentId();
+        Map<Long, String> statuses = StatusService.getStatuses(course, date, fromStudentId, toStudentId);
+        List<StudentRow> rows = new ArrayList<>(students.size());
+        for (Student student : students) {
+            rows.add(new StudentRow(student, statuses.get(student.getStudentId())));
+        }
+        return rows;
+    }
+
+    /**
+     * @return The {@link Student} which the row was loaded from, or <code>null</code> if the row is a placeholder
+     */
+    public Student getStudent() {
+        return student;
+    }
+
+    public long getStudentId() {
+        return studentId.get();
+    }
+
+    public ReadOnlyLongProperty studentIdProperty() {
+        return studentId.getReadOnlyProperty();
+    }
+
+    public StringProperty lastNameProperty() {
+        return lastName;
+    }
+
+    public StringProperty firstNameProperty() {
+        return firstName;
+    }
+
+    public StringProperty middleNameProperty() {
+        return middleName;
+    }
+
+    public StringProperty statusProperty() {
+        return status;
+    }
+
+}
@@ -0,0 +1,35 @@
+package com.sudicode.nice;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Creates virtual threads. This is the version for Java 21 and later; see the version in <code>src/main/java</code>
+ * for older runtimes.
+ */
+public final class VirtualThreads {
+
+    /**
+     * Illegal.
+     */
+    private VirtualThreads() {
+    }
+
+    /**
+     * @return <code>true</code> if virtual threads are supported
+     */
+    public static boolean isSupported() {
+        return true;
+    }
+
+    /**
+     * Create an {@link ExecutorService} which runs each task on a new virtual thread.
+     *
+     * @param name Prefix of the thread names
+     * @return The {@link ExecutorService}
+     */
+    public static ExecutorService newExecutor(String name) {
+        return Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name(name + "-", 0).factory());
+    }
+
+}
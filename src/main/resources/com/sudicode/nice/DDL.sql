@@ -1,3 +1,5 @@
+DROP TABLE IF EXISTS `SchemaVersions`;
+DROP TABLE IF EXISTS `JournalCheckpoints`;
 DROP TABLE IF EXISTS `Attendances`;
 CREATE TABLE `Attendances` (
   `attendanceid` INT(11)       NOT NULL AUTO_INCREMENT,
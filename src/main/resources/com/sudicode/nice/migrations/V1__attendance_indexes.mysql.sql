@@ -0,0 +1,12 @@
+SET @sql = (SELECT IF(COUNT(*) = 0, 'CREATE INDEX `attendances_crn_studentid_datetime` ON `Attendances` (`crn`, `studentid`, `datetime`)', 'DO 0')
+            FROM information_schema.STATISTICS
+            WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'Attendances' AND INDEX_NAME = 'attendances_crn_studentid_datetime');
+PREPARE stmt FROM @sql;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+SET @sql = (SELECT IF(COUNT(*) = 0, 'CREATE INDEX `registrations_crn_studentid` ON `Registrations` (`crn`, `studentid`)', 'DO 0')
+            FROM information_schema.STATISTICS
+            WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'Registrations' AND INDEX_NAME = 'registrations_crn_studentid');
+PREPARE stmt FROM @sql;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
@@ -0,0 +1,2 @@
+CREATE INDEX `attendances_crn_studentid_datetime` ON `Attendances` (`crn`, `studentid`, `datetime`);
+CREATE INDEX `registrations_crn_studentid` ON `Registrations` (`crn`, `studentid`);
@@ -0,0 +1,5 @@
+CREATE TABLE IF NOT EXISTS `JournalCheckpoints` (
+  `journalid` CHAR(36) NOT NULL,
+  `seq`       BIGINT   NOT NULL,
+  PRIMARY KEY (`journalid`)
+);
@@ -0,0 +1,30 @@
+SET @sql = (SELECT IF(COUNT(*) > 0, 'ALTER TABLE `Registrations` DROP FOREIGN KEY `studentid_fk`', 'DO 0')
+            FROM information_schema.TABLE_CONSTRAINTS
+            WHERE CONSTRAINT_SCHEMA = DATABASE() AND TABLE_NAME = 'Registrations' AND CONSTRAINT_NAME = 'studentid_fk');
+PREPARE stmt FROM @sql;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+SET @sql = (SELECT IF(COUNT(*) > 0, 'ALTER TABLE `Attendances` DROP FOREIGN KEY `studentid_fk2`', 'DO 0')
+            FROM information_schema.TABLE_CONSTRAINTS
+            WHERE CONSTRAINT_SCHEMA = DATABASE() AND TABLE_NAME = 'Attendances' AND CONSTRAINT_NAME = 'studentid_fk2');
+PREPARE stmt FROM @sql;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+ALTER TABLE `Students` MODIFY `studentid` BIGINT NOT NULL;
+ALTER TABLE `Registrations` MODIFY `studentid` BIGINT NOT NULL;
+ALTER TABLE `Attendances` MODIFY `studentid` BIGINT NOT NULL;
+UPDATE `Students` SET `studentid` = `studentid` + 4294967296 WHERE `studentid` < 0;
+UPDATE `Registrations` SET `studentid` = `studentid` + 4294967296 WHERE `studentid` < 0;
+UPDATE `Attendances` SET `studentid` = `studentid` + 4294967296 WHERE `studentid` < 0;
+SET @sql = (SELECT IF(COUNT(*) = 0, 'ALTER TABLE `Attendances` ADD CONSTRAINT `studentid_fk2` FOREIGN KEY (`studentid`) REFERENCES `Students` (`studentid`) ON DELETE CASCADE ON UPDATE CASCADE', 'DO 0')
+            FROM information_schema.TABLE_CONSTRAINTS
+            WHERE CONSTRAINT_SCHEMA = DATABASE() AND TABLE_NAME = 'Attendances' AND CONSTRAINT_NAME = 'studentid_fk2');
+PREPARE stmt FROM @sql;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+SET @sql = (SELECT IF(COUNT(*) = 0, 'ALTER TABLE `Registrations` ADD CONSTRAINT `studentid_fk` FOREIGN KEY (`studentid`) REFERENCES `Students` (`studentid`) ON DELETE CASCADE ON UPDATE CASCADE', 'DO 0')
+            FROM information_schema.TABLE_CONSTRAINTS
+            WHERE CONSTRAINT_SCHEMA = DATABASE() AND TABLE_NAME = 'Registrations' AND CONSTRAINT_NAME = 'studentid_fk');
+PREPARE stmt FROM @sql;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
@@ -0,0 +1,12 @@
+ALTER TABLE `Registrations` DROP CONSTRAINT `studentid_fk`;
+ALTER TABLE `Attendances` DROP CONSTRAINT `studentid_fk2`;
+ALTER TABLE `Students` ALTER COLUMN `studentid` BIGINT NOT NULL;
+ALTER TABLE `Registrations` ALTER COLUMN `studentid` BIGINT NOT NULL;
+ALTER TABLE `Attendances` ALTER COLUMN `studentid` BIGINT NOT NULL;
+UPDATE `Students` SET `studentid` = `studentid` + 4294967296 WHERE `studentid` < 0;
+UPDATE `Registrations` SET `studentid` = `studentid` + 4294967296 WHERE `studentid` < 0;
+UPDATE `Attendances` SET `studentid` = `studentid` + 4294967296 WHERE `studentid` < 0;
+ALTER TABLE `Attendances`
+  ADD CONSTRAINT `studentid_fk2` FOREIGN KEY (`studentid`) REFERENCES `Students` (`studentid`) ON DELETE CASCADE ON UPDATE CASCADE;
+ALTER TABLE `Registrations`
+  ADD CONSTRAINT `studentid_fk` FOREIGN KEY (`studentid`) REFERENCES `Students` (`studentid`) ON DELETE CASCADE ON UPDATE CASCADE;
@@ -0,0 +1,69 @@
+package com.sudicode.nice;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for {@link TapDeduplicator}.
+ */
+public class TapDeduplicatorTest {
+
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    @Test
+    public void testWindow() throws Exception {
+        TapDeduplicator deduplicator = new TapDeduplicator(60, TimeUnit.SECONDS);
+        long start = System.nanoTime();
+        assertTrue(deduplicator.accept(1, 100, start));
+        assertFalse(deduplicator.accept(1, 100, start + SECOND));
+        assertFalse(deduplicator.accept(1, 100, start + 59 * SECOND));
+
+        // Other cards and other courses have their own windows
+        assertTrue(deduplicator.accept(2, 100, start + SECOND));
+        assertTrue(deduplicator.accept(1, 101, start + SECOND));
+
+        // Repeats do not extend the window
+        assertTrue(deduplicator.accept(1, 100, start + 60 * SECOND));
+        assertEquals(4, deduplicator.getAcceptedCount());
+        assertEquals(2, deduplicator.getSuppressedCount());
+    }
+
+    @Test
+    public void testRelease() throws Exception {
+        TapDeduplicator deduplicator = new TapDeduplicator(60, TimeUnit.SECONDS);
+        long start = System.nanoTime();
+        assertTrue(deduplicator.accept(1, 100, start));
+        deduplicator.release(1, 100, start + SECOND);
+        assertTrue(deduplicator.accept(1, 100, start + 2 * SECOND));
+        assertFalse(deduplicator.accept(1, 100, start + 3 * SECOND));
+        assertEquals(1, deduplicator.getTrackedCount());
+    }
+
+    @Test
+    public void testLongUids() throws Exception {
+        // These two (UID, CRN) pairs shared a key when both were folded into one long
+        TapDeduplicator deduplicator = new TapDeduplicator(60, TimeUnit.SECONDS);
+        long start = System.nanoTime();
+        long uid = 0x0004_1234_5678_9ABCL;
+        assertTrue(deduplicator.accept(uid, 1, start));
+        assertTrue(deduplicator.accept(uid ^ (3L << 32), 2, start));
+    }
+
+    @Test
+    public void testPurge() throws Exception {
+        TapDeduplicator deduplicator = new TapDeduplicator(1, TimeUnit.SECONDS);
+        long start = System.nanoTime();
+        for (int uid = 0; uid < 100_000; uid++) {
+            assertTrue(deduplicator.accept(uid, 100, start + uid * (SECOND / 1000)));
+        }
+
+        // Only windows from about the last second are still tracked
+        assertTrue(deduplicator.getTrackedCount() < 5_000);
+    }
+
+}
@@ -0,0 +1,209 @@
+package com.sudicode.nice;
+
+import com.google.common.collect.ImmutableMap;
+import com.sudicode.nice.TapProcessor.Outcome;
+import com.sudicode.nice.TapProcessor.Result;
+import com.sudicode.nice.database.Course;
+import com.sudicode.nice.database.Student;
+import com.sudicode.nice.hardware.CardMonitor;
+import com.sudicode.nice.hardware.CardReader;
+import com.sudicode.nice.hardware.CardTerminalDevice;
+import com.sudicode.nice.hardware.ReaderManager;
+import com.sudicode.nice.hardware.SimulatedCardTerminal;
+import com.sudicode.nice.hardware.SimulatedCardTerminals;
+import com.sudicode.nice.hardware.Tap;
+import com.sudicode.nice.hardware.TapTrace;
+import com.sudicode.nice.metrics.TapMetrics;
+import com.sudicode.nice.metrics.TapMetrics.Stage;
+import org.h2.jdbcx.JdbcDataSource;
+import org.javalite.activejdbc.Base;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for {@link TapPipeline}.
+ */
+public class TapPipelineTest {
+
+    private static AtomicInteger counter;
+    private static JdbcDataSource dataSource;
+
+    private Course course;
+    private SimulatedCardTerminals terminals;
+    private ReaderManager readers;
+    private TapPipeline pipeline;
+
+    @BeforeClass
+    public static void setUpBeforeClass() throws Exception {
+        counter = new AtomicInteger(6000);
+        TestUtil.openDbConnection();
+        dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:nicedb;TRACE_LEVEL_FILE=4");
+    }
+
+    @AfterClass
+    public static void tearDownAfterClass() throws Exception {
+        TestUtil.closeDbConnection();
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        course = new Course();
+        course.setCrn(counter.incrementAndGet());
+        course.insert();
+        terminals = new SimulatedCardTerminals("door-1", "door-2");
+        ImmutableMap.Builder<String, CardReader> builder = ImmutableMap.builder();
+        for (SimulatedCardTerminal terminal : terminals.getTerminals()) {
+            builder.put(terminal.getName(), new CardReader(new CardTerminalDevice(terminal)));
+        }
+        readers = new ReaderManager(new CardMonitor(terminals), builder.build());
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        readers.close();
+        if (pipeline != null) {
+            pipeline.close();
+        }
+    }
+
+    /**
+     * Every tap read comes out of the pipeline once, and accepted taps are recorded exactly once.
+     */
+    @Test
+    public void testBurst() throws Exception {
+        long[] uids = new long[50];
+        for (int i = 0; i < uids.length; i++) {
+            uids[i] = newEnrolledStudent().getStudentId();
+        }
+        TapTrace trace = TapTrace.synthetic(uids, new String[]{"door-1", "door-2"}, 150, 3_000, 42);
+        RecordingHandler handler = new RecordingHandler();
+        long resolved = TapMetrics.snapshot(Stage.RESOLVE).getCount();
+        pipeline = new TapPipeline(readers, newProcessor(), dataSource, handler, 4, TapPipeline.Backpressure.BLOCK);
+        pipeline.start();
+        readers.start();
+
+        trace.replay(terminals, 1, 10);
+        await(() -> handler.handled.get() == handler.claimed.get());
+
+        int taps = handler.claimed.get();
+        assertTrue(taps > trace.getEvents().size() * 0.9);
+        int attended = handler.outcomes.getOrDefault(Outcome.ATTENDED, 0);
+        assertEquals(taps, attended + handler.outcomes.getOrDefault(Outcome.REPEATED, 0));
+        assertEquals(attended, Base.count("Attendances", "crn = ?", course.getCrn()).intValue());
+        assertEquals(0, pipeline.getDroppedCount());
+        assertTrue(TapMetrics.snapshot(Stage.RESOLVE).getCount() >= resolved + taps);
+        assertEquals(0L, (long) TapMetrics.readGauges().get("pipeline.resolve.depth"));
+    }
+
+    /**
+     * While the resolve stage is stuck, its queue fills up and the reader stage drops further taps.
+     */
+    @Test
+    public void testDrop() throws Exception {
+        CountDownLatch stuck = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        RecordingHandler handler = new RecordingHandler() {
+            @Override
+            public Course getSelectedCourse() {
+                stuck.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return super.getSelectedCourse();
+            }
+        };
+        pipeline = new TapPipeline(readers, newProcessor(), dataSource, handler, 1, TapPipeline.Backpressure.DROP);
+        pipeline.start();
+        readers.start();
+
+        SimulatedCardTerminal door = terminals.getTerminal("door-1");
+        for (int i = 0; i < 5; i++) {
+            int claimed = i + 1;
+            door.place(newEnrolledStudent().getStudentId());
+            await(() -> handler.claimed.get() >= claimed);
+            door.remove();
+            if (i == 0) {
+                assertTrue(stuck.await(5, TimeUnit.SECONDS));
+            }
+        }
+
+        // One tap is being resolved, one is queued, and the rest were dropped
+        assertEquals(3, pipeline.getDroppedCount());
+        assertEquals(1, pipeline.getQueueDepths()[0]);
+        release.countDown();
+        await(() -> handler.handled.get() == 2);
+        assertEquals(2, (int) handler.outcomes.get(Outcome.ATTENDED));
+    }
+
+    private TapProcessor newProcessor() {
+        return new TapProcessor(null, new TapDeduplicator(1, TimeUnit.MINUTES));
+    }
+
+    private Student newEnrolledStudent() throws Exception {
+        Student student = new Student();
+        student.setStudentId(counter.incrementAndGet());
+        student.setFirstName("Test");
+        student.setLastName("Student");
+        student.insert();
+        student.enroll(course);
+        return student;
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (!condition.getAsBoolean()) {
+            assertTrue("Timed out", System.nanoTime() < deadline);
+            Thread.sleep(5);
+        }
+    }
+
+    /**
+     * Counts the taps going into and coming out of the pipeline.
+     */
+    private class RecordingHandler implements TapPipeline.Handler {
+
+        final AtomicInteger claimed = new AtomicInteger();
+        final AtomicInteger handled = new AtomicInteger();
+        final Map<Outcome, Integer> outcomes = new ConcurrentHashMap<>();
+
+        @Override
+        public boolean claim(Tap tap) {
+            claimed.incrementAndGet();
+            return false;
+        }
+
+        @Override
+        public Course getSelectedCourse() {
+            return course;
+        }
+
+        @Override
+        public void handle(Tap tap, Result result) {
+            outcomes.merge(result.getOutcome(), 1, Integer::sum);
+            handled.incrementAndGet();
+        }
+
+        @Override
+        public void failed(Tap tap, Exception e) {
+            throw new AssertionError(e);
+        }
+
+    }
+
+}
@@ -0,0 +1,185 @@
+package com.sudicode.nice;
+
+import com.google.common.collect.ImmutableMap;
+import com.sudicode.nice.TapProcessor.Outcome;
+import com.sudicode.nice.database.Course;
+import com.sudicode.nice.database.RosterIndex;
+import com.sudicode.nice.database.Student;
+import com.sudicode.nice.hardware.CardMonitor;
+import com.sudicode.nice.hardware.CardReader;
+import com.sudicode.nice.hardware.CardTerminalDevice;
+import com.sudicode.nice.hardware.ReaderManager;
+import com.sudicode.nice.hardware.SimulatedCardTerminal;
+import com.sudicode.nice.hardware.SimulatedCardTerminals;
+import com.sudicode.nice.hardware.Tap;
+import com.sudicode.nice.hardware.TapTrace;
+import com.sudicode.nice.metrics.TapMetrics;
+import com.sudicode.nice.metrics.TapMetrics.Stage;
+import org.javalite.activejdbc.Base;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.sql.SQLException;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Unit tests for {@link TapProcessor}.
+ */
+public class TapProcessorTest {
+
+    private static final Logger log = LoggerFactory.getLogger(TapProcessorTest.class);
+
+    private static final long SEVEN_BYTE_UID = 0x04000000000000L;
+
+    private static AtomicInteger counter;
+
+    private Course course;
+    private TapProcessor tapProcessor;
+
+    @BeforeClass
+    public static void setUpBeforeClass() throws Exception {
+        counter = new AtomicInteger(5000);
+        TestUtil.openDbConnection();
+    }
+
+    @AfterClass
+    public static void tearDownAfterClass() throws Exception {
+        TestUtil.closeDbConnection();
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        course = new Course();
+        course.setCrn(counter.incrementAndGet());
+        course.insert();
+        tapProcessor = new TapProcessor(null, new TapDeduplicator(1, TimeUnit.MINUTES));
+    }
+
+    @Test
+    public void testOutcomes() throws Exception {
+        Student student = newStudent();
+        assertEquals(Outcome.UNREGISTERED, tapProcessor.process(counter.incrementAndGet(), course).getOutcome());
+        assertEquals(Outcome.NOT_ENROLLED, tapProcessor.process(student.getStudentId(), course).getOutcome());
+
+        student.enroll(course);
+        assertEquals(Outcome.ATTENDED, tapProcessor.process(student.getStudentId(), course).getOutcome());
+        assertEquals(Outcome.REPEATED, tapProcessor.process(student.getStudentId(), course).getOutcome());
+        assertEquals(1, Base.count("Attendances", "crn = ?", course.getCrn()).intValue());
+    }
+
+    @Test
+    public void testRetapAfterFailedRecord() throws Exception {
+        Student student = newStudent();
+        student.enroll(course);
+        assertTrue(RosterIndex.isEnrolled(course.getCrn(), student.getStudentId()));
+
+        // Attendance cannot be recorded for a course which no longer exists
+        Base.exec("DELETE FROM Courses WHERE crn = ?", course.getCrn());
+        for (int i = 0; i < 2; i++) {
+            try {
+                tapProcessor.process(student.getStudentId(), course);
+                fail("Expected the attendance to fail");
+            } catch (SQLException | RuntimeException expected) {
+                // The retap is not dropped as a repeat, but fails again
+            }
+        }
+        assertEquals(0, tapProcessor.getDeduplicator().getSuppressedCount());
+    }
+
+    /**
+     * Replay a burst of taps on simulated terminals through the whole tap path: monitor, readers, lookup and attend.
+     * Half of the cards have 7-byte UIDs.
+     */
+    @Test
+    public void testSimulatedBurst() throws Exception {
+        long[] uids = new long[200];
+        for (int i = 0; i < uids.length; i++) {
+            Student student = i % 2 == 0 ? newStudent() : newStudent(SEVEN_BYTE_UID | counter.incrementAndGet());
+            student.enroll(course);
+            uids[i] = student.getStudentId();
+        }
+
+        // The trace survives a round trip through its text form
+        String[] doors = {"door-1", "door-2", "door-3"};
+        TapTrace generated = TapTrace.synthetic(uids, doors, 300, 3_000, 1234);
+        StringWriter text = new StringWriter();
+        generated.write(text);
+        TapTrace trace = TapTrace.read(new StringReader(text.toString()));
+        assertEquals(generated.getEvents().size(), trace.getEvents().size());
+
+        SimulatedCardTerminals terminals = new SimulatedCardTerminals(doors);
+        ImmutableMap.Builder<String, CardReader> readers = ImmutableMap.builder();
+        for (SimulatedCardTerminal terminal : terminals.getTerminals()) {
+            readers.put(terminal.getName(), new CardReader(new CardTerminalDevice(terminal)));
+        }
+        ReaderManager manager = new ReaderManager(new CardMonitor(terminals), readers.build());
+        ExecutorService replayer = Executors.newSingleThreadExecutor();
+        Map<Outcome, Integer> outcomes = new EnumMap<>(Outcome.class);
+        int taps = 0;
+        long start = System.nanoTime();
+        manager.start();
+        try {
+            Future<?> replay = replayer.submit(() -> {
+                trace.replay(terminals, 1, 10);
+                return null;
+            });
+            Tap tap;
+            while ((tap = manager.poll(500, TimeUnit.MILLISECONDS)) != null || !replay.isDone()) {
+                if (tap != null) {
+                    outcomes.merge(tapProcessor.process(tap, course).getOutcome(), 1, Integer::sum);
+                    taps++;
+                }
+            }
+            replay.get();
+        } finally {
+            manager.close();
+            replayer.shutdownNow();
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        log.info("Processed {} of {} taps in {} s ({} taps/s): {}", taps, trace.getEvents().size(),
+                String.format("%.2f", seconds), String.format("%.0f", taps / seconds), outcomes);
+
+        // A card swapped out before it could be read is lost, as on real hardware, but nearly all taps get through.
+        assertTrue(taps > trace.getEvents().size() * 0.9);
+        int attended = outcomes.getOrDefault(Outcome.ATTENDED, 0);
+        assertEquals(taps, attended + outcomes.getOrDefault(Outcome.REPEATED, 0));
+        assertEquals(attended, Base.count("Attendances", "crn = ?", course.getCrn()).intValue());
+
+        // Every tap's latency was recorded against the door it was tapped on
+        long recorded = 0;
+        for (String door : doors) {
+            recorded += TapMetrics.snapshot(Stage.LOOKUP, door).getCount();
+        }
+        assertTrue(recorded >= taps);
+    }
+
+    private static Student newStudent() {
+        return newStudent(counter.incrementAndGet());
+    }
+
+    private static Student newStudent(long studentId) {
+        Student student = new Student();
+        student.setStudentId(studentId);
+        student.setFirstName("Test");
+        student.setLastName("Student");
+        student.insert();
+        return student;
+    }
+
+}
@@ -2,6 +2,7 @@ package com.sudicode.nice;
 
 import com.google.common.base.Joiner;
 import com.sudicode.nice.database.Course;
+import com.sudicode.nice.database.Migrations;
 import org.h2.Driver;
 import org.javalite.activejdbc.Base;
 
@@ -34,6 +35,7 @@ public class TestUtil {
                 stmt.execute(sql);
             }
         }
+        Migrations.migrate();
     }
 
     /**
@@ -0,0 +1,197 @@
+package com.sudicode.nice;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.javalite.activejdbc.Base;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Unit tests for {@link WorkerPool}.
+ */
+public class WorkerPoolTest {
+
+    private WorkerPool workers;
+
+    @Before
+    public void setUp() throws Exception {
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:workers");
+        workers = new WorkerPool("test-worker", dataSource, 1, 1);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        workers.shutdown(5, SECONDS);
+    }
+
+    @Test
+    public void testConnectionPerTask() throws Exception {
+        AtomicReference<Connection> first = new AtomicReference<>();
+        AtomicReference<String> threadName = new AtomicReference<>();
+        AtomicBoolean attachedAfter = new AtomicBoolean(true);
+        workers.submit(() -> {
+            threadName.set(Thread.currentThread().getName());
+            first.set(Base.connection());
+        }).get(5, SECONDS);
+        workers.submit(() -> attachedAfter.set(Base.hasConnection())).get(5, SECONDS);
+        assertTrue(threadName.get().startsWith("test-worker-"));
+        assertTrue(first.get().isClosed());
+        assertTrue(attachedAfter.get());
+    }
+
+    @Test
+    public void testFailureIsReported() throws Exception {
+        Future<?> task = workers.submit(() -> {
+            throw new IllegalStateException("Failed on purpose");
+        });
+        try {
+            task.get(5, SECONDS);
+            fail("Expected ExecutionException");
+        } catch (ExecutionException expected) {
+            assertTrue(expected.getCause() instanceof IllegalStateException);
+        }
+
+        // The worker survives, and the next task gets a connection
+        AtomicBoolean attached = new AtomicBoolean();
+        workers.submit(() -> attached.set(Base.hasConnection())).get(5, SECONDS);
+        assertTrue(attached.get());
+    }
+
+    @Test
+    public void testRejection() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch started = new CountDownLatch(1);
+        workers.submit(() -> {
+            started.countDown();
+            awaitQuietly(release);
+        });
+        started.await(5, SECONDS);
+        workers.submit(() -> {
+        });
+        try {
+            workers.submit(() -> {
+            });
+            fail("Expected RejectedExecutionException");
+        } catch (RejectedExecutionException expected) {
+            // Queue is full
+        } finally {
+            release.countDown();
+        }
+    }
+
+    @Test
+    public void testCancellation() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch stopped = new CountDownLatch(1);
+        AtomicBoolean interrupted = new AtomicBoolean();
+        Future<?> task = workers.submit(() -> {
+            started.countDown();
+            try {
+                Thread.sleep(SECONDS.toMillis(30));
+            } catch (InterruptedException e) {
+                interrupted.set(true);
+            } finally {
+                stopped.countDown();
+            }
+        });
+        started.await(5, SECONDS);
+        task.cancel(true);
+        assertTrue(stopped.await(5, SECONDS));
+        assertTrue(interrupted.get());
+    }
+
+    @Test
+    public void testShutdown() throws Exception {
+        workers.submit(() -> {
+        }).get(5, SECONDS);
+        assertTrue(workers.shutdown(5, SECONDS));
+        try {
+            workers.submit(() -> {
+            });
+            fail("Expected RejectedExecutionException");
+        } catch (RejectedExecutionException expected) {
+            assertFalse(expected.getMessage().isEmpty());
+        }
+    }
+
+    /**
+     * A pool which runs each task on its own thread lets only as many tasks hold a connection as it has permits, and
+     * returns each connection when its task ends.
+     */
+    @Test
+    public void testPerTaskPermits() throws Exception {
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:workers");
+        ExecutorService executor = Executors.newCachedThreadPool();
+        WorkerPool perTask = new WorkerPool(dataSource, executor, 2, 2);
+        try {
+            CountDownLatch release = new CountDownLatch(1);
+            CountDownLatch started = new CountDownLatch(2);
+            AtomicInteger holding = new AtomicInteger();
+            AtomicInteger maxHolding = new AtomicInteger();
+            List<Future<?>> tasks = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                tasks.add(perTask.submit(() -> {
+                    assertTrue(Base.hasConnection());
+                    maxHolding.accumulateAndGet(holding.incrementAndGet(), Math::max);
+                    started.countDown();
+                    awaitQuietly(release);
+                    holding.decrementAndGet();
+                }));
+            }
+            assertTrue(started.await(5, SECONDS));
+            assertEquals(2, perTask.getActiveCount());
+            try {
+                perTask.submit(() -> {
+                });
+                fail("Expected RejectedExecutionException");
+            } catch (RejectedExecutionException expected) {
+                // Two tasks hold connections and two are waiting
+            }
+
+            release.countDown();
+            for (Future<?> task : tasks) {
+                task.get(5, SECONDS);
+            }
+            assertEquals(2, maxHolding.get());
+            assertEquals(0, perTask.getActiveCount());
+            assertEquals(0, perTask.getQueuedCount());
+        } finally {
+            assertTrue(perTask.shutdown(5, SECONDS));
+        }
+    }
+
+    /**
+     * Wait for a latch, ignoring interruption.
+     *
+     * @param latch The {@link CountDownLatch}
+     */
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await(5, SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+}
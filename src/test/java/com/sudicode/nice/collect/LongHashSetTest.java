@@ -0,0 +1,63 @@
+package com.sudicode.nice.collect;
+
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for {@link LongHashSet}.
+ */
+public class LongHashSetTest {
+
+    @Test
+    public void testAddContainsRemove() throws Exception {
+        LongHashSet set = new LongHashSet();
+        assertTrue(set.add(42));
+        assertFalse(set.add(42));
+        assertTrue(set.add(0));
+        assertTrue(set.add(-1));
+        assertEquals(3, set.size());
+        assertTrue(set.contains(42));
+        assertTrue(set.contains(0));
+        assertTrue(set.contains(-1));
+        assertFalse(set.contains(7));
+        assertTrue(set.add(0x04A1B2C3D4E5F6L));
+        assertFalse(set.contains(0xA1B2C3D4E5F6L));
+
+        assertTrue(set.remove(0));
+        assertFalse(set.remove(0));
+        assertTrue(set.remove(42));
+        assertFalse(set.contains(42));
+        assertEquals(2, set.size());
+
+        set.clear();
+        assertEquals(0, set.size());
+        assertFalse(set.contains(-1));
+    }
+
+    @Test
+    public void testAgainstHashSet() throws Exception {
+        Random random = new Random(1234);
+        LongHashSet set = new LongHashSet();
+        Set<Long> expected = new HashSet<>();
+        for (int i = 0; i < 100_000; i++) {
+            long value = (random.nextInt(2_000) - 1_000) * 0x100000001L;
+            if (random.nextBoolean()) {
+                assertEquals(expected.add(value), set.add(value));
+            } else {
+                assertEquals(expected.remove(value), set.remove(value));
+            }
+        }
+        assertEquals(expected.size(), set.size());
+        for (int i = -1_000; i < 1_000; i++) {
+            assertEquals(expected.contains(i * 0x100000001L), set.contains(i * 0x100000001L));
+        }
+    }
+
+}
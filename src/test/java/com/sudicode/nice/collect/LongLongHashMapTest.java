@@ -0,0 +1,66 @@
+package com.sudicode.nice.collect;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for {@link LongLongHashMap}.
+ */
+public class LongLongHashMapTest {
+
+    @Test
+    public void testPutGet() throws Exception {
+        LongLongHashMap map = new LongLongHashMap();
+        map.put(42, 1);
+        map.put(42, 2);
+        map.put(0, 3);
+        map.put(-1L << 40, 4);
+        assertEquals(3, map.size());
+        assertEquals(2, map.get(42, -1));
+        assertEquals(3, map.get(0, -1));
+        assertEquals(4, map.get(-1L << 40, -1));
+        assertEquals(-1, map.get(7, -1));
+        assertTrue(map.containsKey(0));
+        assertFalse(map.containsKey(7));
+
+        map.clear();
+        assertEquals(0, map.size());
+        assertFalse(map.containsKey(0));
+        assertFalse(map.containsKey(42));
+    }
+
+    @Test
+    public void testRemoveIf() throws Exception {
+        Random random = new Random(1234);
+        LongLongHashMap map = new LongLongHashMap();
+        Map<Long, Long> expected = new HashMap<>();
+        for (int i = 0; i < 100_000; i++) {
+            long key = random.nextInt(20_000) - 10_000;
+            long value = random.nextLong();
+            map.put(key, value);
+            expected.put(key, value);
+        }
+        assertEquals(expected.size(), map.size());
+
+        int removed = map.removeIf((key, value) -> value < 0);
+        int expectedRemoved = expected.size();
+        expected.values().removeIf(value -> value < 0);
+        expectedRemoved -= expected.size();
+        assertEquals(expectedRemoved, removed);
+        assertEquals(expected.size(), map.size());
+        for (long key = -10_000; key < 10_000; key++) {
+            assertEquals(expected.containsKey(key), map.containsKey(key));
+            if (expected.containsKey(key)) {
+                assertEquals((long) expected.get(key), map.get(key, 0));
+            }
+        }
+    }
+
+}
@@ -0,0 +1,78 @@
+package com.sudicode.nice.collect;
+
+import org.junit.Test;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for {@link SpscRingBuffer}.
+ */
+public class SpscRingBufferTest {
+
+    @Test
+    public void testOfferAndPoll() throws Exception {
+        SpscRingBuffer<Integer> buffer = new SpscRingBuffer<>(3);
+        assertEquals(4, buffer.capacity());
+        assertNull(buffer.poll());
+
+        // Wrap around the end of the buffer several times
+        for (int round = 0; round < 3; round++) {
+            for (int i = 0; i < 4; i++) {
+                assertTrue(buffer.offer(i));
+            }
+            assertFalse(buffer.offer(4));
+            assertEquals(4, buffer.size());
+            for (int i = 0; i < 4; i++) {
+                assertEquals(i, (int) buffer.poll());
+            }
+            assertNull(buffer.poll());
+            assertEquals(0, buffer.size());
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidCapacity() throws Exception {
+        new SpscRingBuffer<>(0);
+    }
+
+    /**
+     * A producer which outpaces its consumer is held back by {@link SpscRingBuffer#put(Object)}, and every element
+     * arrives once, in order.
+     */
+    @Test
+    public void testPutAndTake() throws Exception {
+        SpscRingBuffer<Long> buffer = new SpscRingBuffer<>(8);
+        ExecutorService producer = Executors.newSingleThreadExecutor();
+        int count = 100_000;
+        try {
+            Future<?> produced = producer.submit(() -> {
+                for (long i = 0; i < count; i++) {
+                    buffer.put(i);
+                }
+                return null;
+            });
+            for (long i = 0; i < count; i++) {
+                assertEquals(i, (long) buffer.take());
+            }
+            produced.get(10, TimeUnit.SECONDS);
+            assertNull(buffer.poll());
+        } finally {
+            producer.shutdownNow();
+        }
+    }
+
+    @Test(expected = InterruptedException.class)
+    public void testTakeInterrupted() throws Exception {
+        Thread.currentThread().interrupt();
+        new SpscRingBuffer<>(1).take();
+    }
+
+}
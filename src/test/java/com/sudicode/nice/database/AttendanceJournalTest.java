@@ -0,0 +1,244 @@
+package com.sudicode.nice.database;
+
+import com.sudicode.nice.TestUtil;
+import org.h2.jdbcx.JdbcDataSource;
+import org.javalite.activejdbc.Base;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Unit tests for {@link AttendanceJournal}.
+ */
+public class AttendanceJournalTest {
+
+    private static JdbcDataSource dataSource;
+
+    private Path path;
+    private Course course;
+    private Student student;
+
+    @BeforeClass
+    public static void setUpBeforeClass() throws Exception {
+        TestUtil.openDbConnection();
+        dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:nicedb");
+    }
+
+    @AfterClass
+    public static void tearDownAfterClass() throws Exception {
+        TestUtil.closeDbConnection();
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        path = Files.createTempFile("attendance", ".journal");
+        Files.delete(path);
+        Base.exec("DELETE FROM Attendances");
+
+        course = Course.findById(1);
+        student = Student.findById(1);
+        if (course == null) {
+            course = new Course();
+            course.setCrn(1);
+            course.insert();
+            student = new Student();
+            student.setStudentId(1);
+            student.insert();
+        }
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        Files.deleteIfExists(path);
+    }
+
+    @Test
+    public void testAppendAndDrain() throws Exception {
+        LocalDateTime tapTime = LocalDateTime.of(2017, 9, 1, 9, 30);
+        AtomicLong drained = new AtomicLong();
+        try (AttendanceJournal journal = AttendanceJournal.open(path, 16)) {
+            journal.startDrainer(dataSource, drained::set);
+            long seq = journal.append(student.getStudentId(), course.getCrn(), Timestamp.valueOf(tapTime).getTime());
+            awaitDrained(journal);
+            assertEquals(seq, drained.get());
+        }
+        assertEquals(1L, (long) Base.count("Attendances"));
+        Timestamp stored = (Timestamp) Base.firstCell("SELECT datetime FROM Attendances");
+        assertEquals(tapTime, stored.toLocalDateTime());
+    }
+
+    @Test
+    public void testReplayExactlyOnceAfterRestart() throws Exception {
+        // Journal some taps while the database is "down".
+        try (AttendanceJournal journal = AttendanceJournal.open(path, 16)) {
+            for (int i = 0; i < 3; i++) {
+                journal.append(student.getStudentId(), course.getCrn());
+            }
+            assertEquals(3, journal.getPendingCount());
+        }
+        assertEquals(0L, (long) Base.count("Attendances"));
+
+        // Restart and replay.
+        try (AttendanceJournal journal = AttendanceJournal.open(path, 16)) {
+            assertEquals(3, journal.getPendingCount());
+            journal.startDrainer(dataSource, seq -> {
+            });
+            awaitDrained(journal);
+        }
+        assertEquals(3L, (long) Base.count("Attendances"));
+
+        // Restart again. Nothing is replayed twice.
+        try (AttendanceJournal journal = AttendanceJournal.open(path, 16)) {
+            journal.startDrainer(dataSource, seq -> {
+            });
+            journal.append(student.getStudentId(), course.getCrn());
+            awaitDrained(journal);
+        }
+        assertEquals(4L, (long) Base.count("Attendances"));
+    }
+
+    @Test
+    public void testRejectedRecordIsDropped() throws Exception {
+        Student deleted = new Student();
+        deleted.setStudentId(8001);
+        deleted.insert();
+        try (AttendanceJournal journal = AttendanceJournal.open(path, 16)) {
+            journal.append(deleted.getStudentId(), course.getCrn());
+            journal.append(student.getStudentId(), course.getCrn());
+
+            // The student is deleted before their tap reaches the database
+            deleted.deleteIt();
+            journal.startDrainer(dataSource, seq -> {
+            });
+            awaitDrained(journal);
+
+            // Later taps still drain
+            journal.append(student.getStudentId(), course.getCrn());
+            awaitDrained(journal);
+        }
+        assertEquals(2L, (long) Base.count("Attendances", "studentid = ?", student.getStudentId()));
+        assertEquals(0L, (long) Base.count("Attendances", "studentid = ?", 8001));
+    }
+
+    @Test
+    public void testWrapAround() throws Exception {
+        try (AttendanceJournal journal = AttendanceJournal.open(path, 4)) {
+            journal.startDrainer(dataSource, seq -> {
+            });
+            for (int i = 0; i < 10; i++) {
+                journal.append(student.getStudentId(), course.getCrn());
+                awaitDrained(journal);
+            }
+        }
+        assertEquals(10L, (long) Base.count("Attendances"));
+    }
+
+    @Test
+    public void testReopenAfterWrapWithoutDatabase() throws Exception {
+        try (AttendanceJournal journal = AttendanceJournal.open(path, 4)) {
+            journal.startDrainer(dataSource, seq -> {
+            });
+            for (int i = 0; i < 6; i++) {
+                journal.append(student.getStudentId(), course.getCrn());
+                awaitDrained(journal);
+            }
+        }
+
+        // Without a drainer, the free slots are known from the header alone.
+        try (AttendanceJournal journal = AttendanceJournal.open(path, 4)) {
+            assertEquals(0, journal.getPendingCount());
+            for (int i = 0; i < 4; i++) {
+                journal.append(student.getStudentId(), course.getCrn());
+            }
+            assertEquals(4, journal.getPendingCount());
+        }
+    }
+
+    @Test
+    public void testFull() throws Exception {
+        try (AttendanceJournal journal = AttendanceJournal.open(path, 2)) {
+            journal.append(student.getStudentId(), course.getCrn());
+            journal.append(student.getStudentId(), course.getCrn());
+            try {
+                journal.append(student.getStudentId(), course.getCrn());
+                fail("Expected IOException");
+            } catch (IOException expected) {
+                assertTrue(expected.getMessage().contains("full"));
+            }
+        }
+    }
+
+    @Test
+    public void testUpgradeIntIds() throws Exception {
+        // A card whose 4-byte UID was stored as a negative int before student IDs were widened.
+        long uid = 0xBAADF00DL;
+        if (Student.findById(uid) == null) {
+            Student wide = new Student();
+            wide.setStudentId(uid);
+            wide.insert();
+        }
+
+        // Write a journal in the old format, holding one undrained tap.
+        ByteBuffer file = ByteBuffer.allocate(32 + 4 * 32);
+        UUID uuid = UUID.randomUUID();
+        file.putInt(0, 0x4E494345).putInt(4, 1).putLong(8, uuid.getMostSignificantBits()).putLong(16, uuid.getLeastSignificantBits());
+        file.putLong(32, 1).putInt(40, (int) uid).putInt(44, course.getCrn()).putLong(48, System.currentTimeMillis());
+        CRC32 crc = new CRC32();
+        crc.update(file.array(), 32, 24);
+        file.putInt(56, (int) crc.getValue());
+        Files.write(path, file.array());
+
+        try (AttendanceJournal journal = AttendanceJournal.open(path, 4)) {
+            assertEquals(1, journal.getPendingCount());
+            journal.startDrainer(dataSource, seq -> {
+            });
+            journal.append(uid, course.getCrn());
+            awaitDrained(journal);
+        }
+        assertEquals(2L, (long) Base.count("Attendances", "studentid = ?", uid));
+
+        // The upgraded journal reopens without replaying anything twice.
+        try (AttendanceJournal journal = AttendanceJournal.open(path, 4)) {
+            journal.startDrainer(dataSource, seq -> {
+            });
+            journal.append(uid, course.getCrn());
+            awaitDrained(journal);
+        }
+        assertEquals(3L, (long) Base.count("Attendances", "studentid = ?", uid));
+    }
+
+    /**
+     * Wait until every acknowledged tap has been drained.
+     *
+     * @param journal The {@link AttendanceJournal}
+     * @throws InterruptedException if interrupted while waiting
+     */
+    private static void awaitDrained(AttendanceJournal journal) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (journal.getPendingCount() > 0) {
+            if (System.nanoTime() > deadline) {
+                fail("Journal was not drained");
+            }
+            Thread.sleep(10);
+        }
+    }
+
+}
@@ -0,0 +1,119 @@
+package com.sudicode.nice.database;
+
+import com.sudicode.nice.TestUtil;
+import org.javalite.activejdbc.Base;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Unit tests for {@link AttendanceReport}.
+ */
+public class AttendanceReportTest {
+
+    @BeforeClass
+    public static void setUpBeforeClass() throws Exception {
+        TestUtil.openDbConnection();
+    }
+
+    @AfterClass
+    public static void tearDownAfterClass() throws Exception {
+        TestUtil.closeDbConnection();
+    }
+
+    @Test
+    public void testExport() throws Exception {
+        LocalDate today = LocalDate.now();
+        Course course = new Course();
+        course.setCrn(1);
+        course.insert();
+        TestUtil.setScheduleForEachDay(course, LocalTime.of(9, 0), LocalTime.of(10, 0));
+
+        Student alice = newStudent(1, "Alice", "Smith");
+        Student bob = newStudent(2, "Bob", "Jones, Jr.");
+        alice.enroll(course);
+        bob.enroll(course);
+
+        attend(alice, course, today.minusDays(2).atTime(8, 55));
+        attend(alice, course, today.minusDays(2).atTime(9, 30));
+        attend(alice, course, today.minusDays(1).atTime(9, 5));
+        attend(bob, course, today.atTime(11, 0));
+        attend(bob, course, today.minusDays(3).atTime(8, 0));
+
+        Path csvFile = Files.createTempFile(null, ".csv");
+        try {
+            AttendanceReport.export(course, today.minusDays(2), today, csvFile);
+            List<String> lines = Files.readAllLines(csvFile, StandardCharsets.UTF_8);
+            assertEquals(3, lines.size());
+            assertEquals(String.format(",%s,%s,%s", today.minusDays(2), today.minusDays(1), today), lines.get(0));
+            assertEquals("Alice Smith,present (8:55 AM),late (9:05 AM),absent,", lines.get(1));
+            assertEquals("\"Bob Jones, Jr.\",absent,absent,absent,", lines.get(2));
+        } finally {
+            Files.delete(csvFile);
+        }
+    }
+
+    @Test
+    public void testExportEmptyRange() throws Exception {
+        LocalDate today = LocalDate.now();
+        Course course = new Course();
+        course.setCrn(2);
+        course.insert();
+        TestUtil.setScheduleForEachDay(course, LocalTime.of(9, 0), LocalTime.of(10, 0));
+        Student carol = newStudent(3, "Carol", "White");
+        carol.enroll(course);
+        attend(carol, course, today.atTime(9, 0));
+
+        Path csvFile = Files.createTempFile(null, ".csv");
+        try {
+            AttendanceReport.export(course, today.plusDays(7), today, csvFile);
+            List<String> lines = Files.readAllLines(csvFile, StandardCharsets.UTF_8);
+            assertEquals(2, lines.size());
+            assertEquals("", lines.get(0));
+            assertEquals("Carol White,", lines.get(1));
+        } finally {
+            Files.delete(csvFile);
+        }
+    }
+
+    /**
+     * Insert a new {@link Student}.
+     *
+     * @param studentId Student ID
+     * @param firstName First name
+     * @param lastName  Last name
+     * @return The {@link Student}
+     */
+    private static Student newStudent(int studentId, String firstName, String lastName) {
+        Student student = new Student();
+        student.setStudentId(studentId);
+        student.setFirstName(firstName);
+        student.setLastName(lastName);
+        student.insert();
+        return student;
+    }
+
+    /**
+     * Insert an attendance at the given time.
+     *
+     * @param student  The {@link Student}
+     * @param course   The {@link Course}
+     * @param dateTime Time of attendance
+     */
+    private static void attend(Student student, Course course, LocalDateTime dateTime) {
+        Base.exec("INSERT INTO Attendances (studentid, crn, datetime) VALUES (?, ?, ?)",
+                student.getStudentId(), course.getCrn(), Timestamp.valueOf(dateTime));
+    }
+
+}
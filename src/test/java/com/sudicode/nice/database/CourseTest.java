@@ -11,6 +11,9 @@ import java.time.LocalTime;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 
 /**
  * Unit tests for {@link Course}.
@@ -64,4 +67,27 @@ public class CourseTest {
         }
     }
 
+    @Test
+    public void testSchedule() throws Exception {
+        course.setStart(DayOfWeek.MONDAY, LocalTime.of(9, 0));
+        course.setEnd(DayOfWeek.MONDAY, LocalTime.of(10, 15));
+        course.saveIt();
+
+        // Schedule must be rebuilt from the loaded attributes
+        Course loaded = Course.findById(course.getCrn());
+        WeeklySchedule schedule = loaded.getSchedule();
+        assertTrue(schedule.meetsOn(DayOfWeek.MONDAY));
+        assertFalse(schedule.meetsOn(DayOfWeek.TUESDAY));
+        assertNull(loaded.getStart(DayOfWeek.TUESDAY));
+        assertEquals(LocalTime.of(9, 0).toSecondOfDay(), schedule.getStartSecond(DayOfWeek.MONDAY));
+        assertTrue(schedule.isInSession(DayOfWeek.MONDAY, LocalTime.of(9, 0).toSecondOfDay()));
+        assertTrue(schedule.isInSession(DayOfWeek.MONDAY, LocalTime.of(10, 14, 59).toSecondOfDay()));
+        assertFalse(schedule.isInSession(DayOfWeek.MONDAY, LocalTime.of(10, 15).toSecondOfDay()));
+        assertFalse(schedule.isInSession(DayOfWeek.TUESDAY, LocalTime.of(9, 30).toSecondOfDay()));
+
+        // Schedule must follow changes to the times
+        loaded.setStart(DayOfWeek.MONDAY, null);
+        assertFalse(loaded.getSchedule().meetsOn(DayOfWeek.MONDAY));
+    }
+
 }
@@ -0,0 +1,74 @@
+package com.sudicode.nice.database;
+
+import com.sudicode.nice.TestUtil;
+import org.javalite.activejdbc.Base;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.sql.ResultSet;
+import java.sql.Types;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for {@link Migrations}.
+ */
+public class MigrationsTest {
+
+    @BeforeClass
+    public static void setUpBeforeClass() throws Exception {
+        TestUtil.openDbConnection();
+    }
+
+    @AfterClass
+    public static void tearDownAfterClass() throws Exception {
+        TestUtil.closeDbConnection();
+    }
+
+    @Test
+    public void testMigrate() throws Exception {
+        assertEquals(1L, (long) Base.count("SchemaVersions", "version = ?", 1));
+        assertTrue(indexNames("ATTENDANCES").contains("ATTENDANCES_CRN_STUDENTID_DATETIME"));
+        assertTrue(indexNames("REGISTRATIONS").contains("REGISTRATIONS_CRN_STUDENTID"));
+    }
+
+    @Test
+    public void testLongStudentIds() throws Exception {
+        for (String table : new String[]{"STUDENTS", "REGISTRATIONS", "ATTENDANCES"}) {
+            try (ResultSet rs = Base.connection().getMetaData().getColumns(null, null, table, "STUDENTID")) {
+                assertTrue(rs.next());
+                assertEquals(Types.BIGINT, rs.getInt("DATA_TYPE"));
+            }
+        }
+    }
+
+    @Test
+    public void testMigrateTwice() throws Exception {
+        Long before = Base.count("SchemaVersions");
+        Migrations.migrate();
+        assertEquals(before, Base.count("SchemaVersions"));
+    }
+
+    /**
+     * Get the names of the indexes on a table.
+     *
+     * @param table Table name
+     * @return Upper-case index names
+     * @throws Exception if the metadata cannot be read
+     */
+    private static Set<String> indexNames(String table) throws Exception {
+        Set<String> names = new HashSet<>();
+        try (ResultSet rs = Base.connection().getMetaData().getIndexInfo(null, null, table, false, false)) {
+            while (rs.next()) {
+                names.add(rs.getString("INDEX_NAME").toUpperCase(Locale.ROOT));
+            }
+        }
+        return names;
+    }
+
+}
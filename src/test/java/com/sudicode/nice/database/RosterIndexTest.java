@@ -0,0 +1,93 @@
+package com.sudicode.nice.database;
+
+import com.sudicode.nice.Constants;
+import com.sudicode.nice.TestUtil;
+import org.javalite.activejdbc.Base;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for {@link RosterIndex}.
+ */
+public class RosterIndexTest {
+
+    private static AtomicInteger counter;
+
+    private Student student;
+    private Course course;
+
+    @BeforeClass
+    public static void setUpBeforeClass() throws Exception {
+        counter = new AtomicInteger(2000);
+        TestUtil.openDbConnection();
+    }
+
+    @AfterClass
+    public static void tearDownAfterClass() throws Exception {
+        TestUtil.closeDbConnection();
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        student = new Student();
+        student.setStudentId(counter.incrementAndGet());
+        student.insert();
+
+        course = new Course();
+        course.setCrn(counter.incrementAndGet());
+        course.insert();
+    }
+
+    @Test
+    public void testLoad() throws Exception {
+        student.enroll(course);
+        assertTrue(RosterIndex.isEnrolled(course.getCrn(), student.getStudentId()));
+    }
+
+    @Test
+    public void testEnrollAndDrop() throws Exception {
+        assertFalse(RosterIndex.isEnrolled(course.getCrn(), student.getStudentId()));
+        student.enroll(course);
+        assertTrue(RosterIndex.isEnrolled(course.getCrn(), student.getStudentId()));
+        course.drop(student);
+        assertFalse(RosterIndex.isEnrolled(course.getCrn(), student.getStudentId()));
+    }
+
+    @Test
+    public void testDeleteStudent() throws Exception {
+        student.enroll(course);
+        assertTrue(RosterIndex.isEnrolled(course.getCrn(), student.getStudentId()));
+        student.deleteIt();
+        assertFalse(RosterIndex.isEnrolled(course.getCrn(), student.getStudentId()));
+    }
+
+    @Test
+    public void testEnrollTwice() throws Exception {
+        student.enroll(course);
+        student.enroll(course);
+        assertTrue(RosterIndex.isEnrolled(course.getCrn(), student.getStudentId()));
+        assertEquals(1L, Base.count("Registrations", "crn = ?", course.getCrn()).longValue());
+    }
+
+    @Test
+    public void testEnrolledElsewhere() throws Exception {
+        long now = System.nanoTime();
+        assertFalse(RosterIndex.isEnrolled(course.getCrn(), student.getStudentId(), now));
+
+        // Another terminal enrolls the student, which this process only sees once the roster is stale
+        Base.exec("INSERT INTO Registrations (studentid, crn) VALUES (?, ?)", student.getStudentId(), course.getCrn());
+        assertFalse(RosterIndex.isEnrolled(course.getCrn(), student.getStudentId(), now));
+        long stale = now + TimeUnit.MILLISECONDS.toNanos(Constants.ROSTER_INDEX_TTL_MS);
+        assertTrue(RosterIndex.isEnrolled(course.getCrn(), student.getStudentId(), stale));
+    }
+
+}
@@ -0,0 +1,111 @@
+package com.sudicode.nice.database;
+
+import com.sudicode.nice.Constants;
+import com.sudicode.nice.TestUtil;
+import org.javalite.activejdbc.Base;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.sql.Time;
+import java.time.DayOfWeek;
+import java.time.LocalTime;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+/**
+ * Unit tests for {@link ScheduleIndex}.
+ */
+public class ScheduleIndexTest {
+
+    private static AtomicInteger counter;
+
+    @BeforeClass
+    public static void setUpBeforeClass() throws Exception {
+        counter = new AtomicInteger(4000);
+        TestUtil.openDbConnection();
+    }
+
+    @AfterClass
+    public static void tearDownAfterClass() throws Exception {
+        TestUtil.closeDbConnection();
+    }
+
+    @Test
+    public void testInSession() throws Exception {
+        Course first = newCourse(DayOfWeek.MONDAY, LocalTime.of(9, 0), LocalTime.of(10, 0));
+        Course second = newCourse(DayOfWeek.MONDAY, LocalTime.of(10, 0), LocalTime.of(11, 0));
+        Course evening = newCourse(DayOfWeek.MONDAY, LocalTime.of(18, 0), LocalTime.of(20, 0));
+        ScheduleIndex index = new ScheduleIndex(Arrays.asList(first, second, evening), 600);
+
+        // Before, between and after meetings
+        assertInSession(index, DayOfWeek.MONDAY, LocalTime.of(8, 49, 59));
+        assertInSession(index, DayOfWeek.MONDAY, LocalTime.of(12, 0));
+        assertInSession(index, DayOfWeek.MONDAY, LocalTime.of(20, 0));
+        assertInSession(index, DayOfWeek.TUESDAY, LocalTime.of(9, 30));
+
+        // Lead window before the start time
+        assertInSession(index, DayOfWeek.MONDAY, LocalTime.of(8, 50), first);
+        assertInSession(index, DayOfWeek.MONDAY, LocalTime.of(9, 30), first);
+
+        // Back-to-back sections overlap during the second one's lead window
+        assertInSession(index, DayOfWeek.MONDAY, LocalTime.of(9, 55), first, second);
+        assertInSession(index, DayOfWeek.MONDAY, LocalTime.of(10, 0), second);
+        assertInSession(index, DayOfWeek.MONDAY, LocalTime.of(19, 59, 59), evening);
+    }
+
+    @Test
+    public void testGet() throws Exception {
+        ScheduleIndex index = ScheduleIndex.get();
+        assertSame(index, ScheduleIndex.get());
+
+        // Saving a course discards the index
+        Course course = newCourse(DayOfWeek.SUNDAY, LocalTime.of(3, 0), LocalTime.of(4, 0));
+        course.insert();
+        assertEquals(1, Arrays.stream(ScheduleIndex.get().inSession(DayOfWeek.SUNDAY, LocalTime.of(3, 30).toSecondOfDay()))
+                .filter(crn -> crn == course.getCrn())
+                .count());
+    }
+
+    @Test
+    public void testChangedElsewhere() throws Exception {
+        long now = System.nanoTime();
+        ScheduleIndex index = ScheduleIndex.get(now);
+
+        // Another terminal adds a course, which this process only sees once the index is stale
+        int crn = counter.incrementAndGet();
+        Base.exec("INSERT INTO Courses (crn, name, u_start, u_end) VALUES (?, ?, ?, ?)",
+                crn, "Elsewhere", Time.valueOf(LocalTime.of(5, 0)), Time.valueOf(LocalTime.of(6, 0)));
+        assertSame(index, ScheduleIndex.get(now));
+        ScheduleIndex stale = ScheduleIndex.get(now + TimeUnit.MILLISECONDS.toNanos(Constants.SCHEDULE_INDEX_TTL_MS));
+        assertArrayEquals(new int[]{crn}, stale.inSession(DayOfWeek.SUNDAY, LocalTime.of(5, 30).toSecondOfDay()));
+
+        // Each lookup gets a course of its own
+        Course course = stale.getCourse(crn);
+        assertEquals("Elsewhere", course.getName());
+        assertEquals(LocalTime.of(5, 0), course.getStart(DayOfWeek.SUNDAY));
+        assertNotSame(course, stale.getCourse(crn));
+        assertNull(stale.getCourse(-1));
+    }
+
+    private static Course newCourse(DayOfWeek dayOfWeek, LocalTime start, LocalTime end) {
+        Course course = new Course();
+        course.setCrn(counter.incrementAndGet());
+        course.setStart(dayOfWeek, start);
+        course.setEnd(dayOfWeek, end);
+        return course;
+    }
+
+    private static void assertInSession(ScheduleIndex index, DayOfWeek dayOfWeek, LocalTime time, Course... expected) {
+        int[] actual = index.inSession(dayOfWeek, time.toSecondOfDay());
+        assertArrayEquals(Arrays.stream(expected).mapToInt(Course::getCrn).toArray(), actual);
+    }
+
+}
@@ -0,0 +1,79 @@
+package com.sudicode.nice.database;
+
+import com.sudicode.nice.TestUtil;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for {@link StatusService}.
+ */
+public class StatusServiceTest {
+
+    private static AtomicInteger counter;
+
+    private Course course;
+    private Student present;
+    private Student absent;
+
+    @BeforeClass
+    public static void setUpBeforeClass() throws Exception {
+        counter = new AtomicInteger(1000);
+        TestUtil.openDbConnection();
+    }
+
+    @AfterClass
+    public static void tearDownAfterClass() throws Exception {
+        TestUtil.closeDbConnection();
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        course = new Course();
+        course.setCrn(counter.incrementAndGet());
+        course.insert();
+
+        present = new Student();
+        present.setStudentId(counter.incrementAndGet());
+        present.insert();
+        present.enroll(course);
+
+        absent = new Student();
+        absent.setStudentId(counter.incrementAndGet());
+        absent.insert();
+        absent.enroll(course);
+    }
+
+    @Test
+    public void testGetStatuses() throws Exception {
+        TestUtil.setScheduleForEachDay(course, LocalTime.now().plusMinutes(5), LocalTime.now().plusMinutes(30));
+        present.attend(course);
+        present.attend(course);
+
+        Map<Long, String> statuses = StatusService.getStatuses(course, LocalDate.now());
+        assertEquals(2, statuses.size());
+        assertTrue(statuses.get(present.getStudentId()).startsWith("present"));
+        assertEquals("absent", statuses.get(absent.getStudentId()));
+        for (Student student : new Student[]{present, absent}) {
+            assertEquals(student.getStatus(course, LocalDate.now()), statuses.get(student.getStudentId()));
+        }
+    }
+
+    @Test
+    public void testNoClass() throws Exception {
+        present.attend(course);
+        Map<Long, String> statuses = StatusService.getStatuses(course, LocalDate.now());
+        assertEquals("no class", statuses.get(present.getStudentId()));
+        assertEquals("no class", statuses.get(absent.getStudentId()));
+    }
+
+}
@@ -0,0 +1,82 @@
+package com.sudicode.nice.database;
+
+import com.sudicode.nice.TestUtil;
+import org.javalite.activejdbc.Base;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+/**
+ * Unit tests for {@link StudentCache}.
+ */
+public class StudentCacheTest {
+
+    @BeforeClass
+    public static void setUpBeforeClass() throws Exception {
+        TestUtil.openDbConnection();
+    }
+
+    @AfterClass
+    public static void tearDownAfterClass() throws Exception {
+        TestUtil.closeDbConnection();
+    }
+
+    @Test
+    public void testWarmUp() throws Exception {
+        Student student = new Student();
+        student.setStudentId(3001);
+        student.insert();
+
+        StudentCache.warmUp();
+        long misses = StudentCache.getStats().missCount();
+        Student cached = StudentCache.get(3001);
+        assertEquals(3001, cached.getStudentId());
+        assertSame(cached, StudentCache.get(3001));
+        assertEquals(misses, StudentCache.getStats().missCount());
+    }
+
+    @Test
+    public void testNegativeCachingAndInsert() throws Exception {
+        long negativeHits = StudentCache.getNegativeHitCount();
+        assertNull(StudentCache.get(3002));
+        assertNull(StudentCache.get(3002));
+        assertEquals(negativeHits + 1, StudentCache.getNegativeHitCount());
+
+        Student student = new Student();
+        student.setStudentId(3002);
+        student.insert();
+        assertEquals(3002, StudentCache.get(3002).getStudentId());
+    }
+
+    @Test
+    public void testSaveAndDelete() throws Exception {
+        Student student = new Student();
+        student.setStudentId(3003);
+        student.setFirstName("Before");
+        student.insert();
+        assertEquals("Before", StudentCache.get(3003).getFirstName());
+
+        Student copy = Student.findById(3003);
+        copy.setFirstName("After");
+        copy.saveIt();
+        assertEquals("After", StudentCache.get(3003).getFirstName());
+
+        StudentCache.get(3003).deleteIt();
+        assertNull(StudentCache.get(3003));
+    }
+
+    @Test
+    public void testRefresh() throws Exception {
+        // Another terminal registers a student who was just looked up here
+        assertNull(StudentCache.get(3004));
+        Base.exec("INSERT INTO Students (studentid, firstname) VALUES (?, ?)", 3004, "Elsewhere");
+        assertNull(StudentCache.get(3004));
+        assertEquals("Elsewhere", StudentCache.refresh(3004).getFirstName());
+        assertEquals("Elsewhere", StudentCache.get(3004).getFirstName());
+    }
+
+}
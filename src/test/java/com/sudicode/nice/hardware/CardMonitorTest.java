@@ -0,0 +1,62 @@
+package com.sudicode.nice.hardware;
+
+import org.junit.Test;
+
+import javax.smartcardio.CardTerminal;
+import javax.smartcardio.CardTerminals;
+import java.util.Collections;
+
+import static org.mockito.Mockito.anyLong;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for {@link CardMonitor}.
+ */
+public class CardMonitorTest {
+
+    @Test
+    public void testPublish() throws Exception {
+        CardTerminal inserted = mock(CardTerminal.class);
+        CardTerminal removed = mock(CardTerminal.class);
+        CardTerminals terminals = mock(CardTerminals.class);
+        when(terminals.waitForChange(anyLong())).thenReturn(true).thenAnswer(invocation -> {
+            pause(invocation.getArgumentAt(0, Long.class));
+            return false;
+        });
+        when(terminals.list(CardTerminals.State.CARD_INSERTION)).thenReturn(Collections.singletonList(inserted));
+        when(terminals.list(CardTerminals.State.CARD_REMOVAL)).thenReturn(Collections.singletonList(removed));
+
+        CardListener listener = mock(CardListener.class);
+        CardListener failing = mock(CardListener.class);
+        CardMonitor monitor = new CardMonitor(terminals);
+        monitor.subscribe(failing);
+        monitor.subscribe(listener);
+        doThrow(new IllegalStateException()).when(failing).cardInserted(inserted);
+        monitor.start();
+        try {
+            // A failing listener must not keep the others from being notified
+            verify(listener, timeout(5000)).cardRemoved(removed);
+            verify(listener, timeout(5000)).cardInserted(inserted);
+        } finally {
+            monitor.close();
+        }
+    }
+
+    /**
+     * Sleep like {@link CardTerminals#waitForChange(long)}, which returns rather than throwing when interrupted.
+     *
+     * @param millis Time to sleep
+     */
+    static void pause(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+}
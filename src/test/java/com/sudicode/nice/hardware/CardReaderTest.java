@@ -5,12 +5,15 @@ import org.junit.Test;
 import javax.smartcardio.CardException;
 import javax.smartcardio.CommandAPDU;
 import javax.smartcardio.ResponseAPDU;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
-import static org.mockito.Mockito.any;
-import static org.mockito.Mockito.mock;
-import static org.mockito.Mockito.when;
+import static org.junit.Assume.assumeTrue;
 
 /**
  * Unit tests for {@link CardReader}.
@@ -37,7 +40,93 @@ public class CardReaderTest {
 
         ResponseAPDU resp4Bytes = new ResponseAPDU(new byte[]{(byte) 0xBA, (byte) 0xAD, (byte) 0xF0, (byte) 0x0D, (byte) 0x90, (byte) 0x00});
         CardReader cr4Bytes = new CardReader(deviceThatReturns(resp4Bytes));
-        assertEquals(0xBAADF00D, cr4Bytes.readUID());
+        assertEquals(0xBAADF00DL, cr4Bytes.readUID());
+
+        ResponseAPDU resp7Bytes = new ResponseAPDU(new byte[]{(byte) 0x04, (byte) 0xA1, (byte) 0xB2, (byte) 0xC3, (byte) 0xD4, (byte) 0xE5, (byte) 0xF6, (byte) 0x90, (byte) 0x00});
+        CardReader cr7Bytes = new CardReader(deviceThatReturns(resp7Bytes));
+        assertEquals(0x04A1B2C3D4E5F6L, cr7Bytes.readUID());
+    }
+
+    @Test
+    public void testSimulatedTerminal() throws Exception {
+        SimulatedCardTerminal terminal = new SimulatedCardTerminal("door");
+        CardReader cr = new CardReader(new CardTerminalDevice(terminal));
+        for (long uid : new long[]{0xBAADF00DL, 0x04A1B2C3D4E5F6L, 0x8877665544332211L}) {
+            terminal.place(uid);
+            assertEquals(uid, cr.readUID());
+        }
+    }
+
+    @Test
+    public void testReadCardInfo() throws Exception {
+        SimulatedCardTerminal terminal = new SimulatedCardTerminal("door");
+        CardTerminalDevice device = new CardTerminalDevice(terminal);
+        CardReader cr = new CardReader(device);
+        terminal.place(0x04A1B2C3D4E5F6L);
+
+        CardInfo info = cr.readCardInfo(4, 8);
+        assertEquals(0x04A1B2C3D4E5F6L, info.getUid());
+        assertArrayEquals(new byte[]{(byte) 0x80}, info.getAts());
+        assertEquals(2, info.getBlockCount());
+        assertArrayEquals(filled(16, 4), info.getBlock(0));
+        assertArrayEquals(filled(16, 8), info.getBlock(1));
+        assertEquals(4, device.getSession().getCommandCount());
+    }
+
+    @Test
+    public void testReadCardInfoFailure() throws Exception {
+        ResponseAPDU uid = new ResponseAPDU(new byte[]{(byte) 0xBE, (byte) 0xEF, (byte) 0x90, (byte) 0x00});
+        ResponseAPDU noAts = new ResponseAPDU(new byte[]{(byte) 0x6A, (byte) 0x81});
+        CardReader cr = new CardReader(command -> command.getP1() == 0x01 ? noAts : uid);
+        try {
+            cr.readCardInfo(4);
+            fail("Expected CommandFailedException");
+        } catch (CommandFailedException expected) {
+            assertEquals("Command 2 of 3 failed (SW=0x6A81)", expected.getMessage());
+        }
+    }
+
+    @Test
+    public void testReadUIDDoesNotAllocate() throws Exception {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        assumeTrue(threads.isThreadAllocatedMemorySupported() && threads.isThreadAllocatedMemoryEnabled());
+
+        byte[] answer = {(byte) 0x04, (byte) 0xA1, (byte) 0xB2, (byte) 0xC3, (byte) 0xD4, (byte) 0xE5, (byte) 0xF6, (byte) 0x90, (byte) 0x00};
+        CardReader cr = new CardReader(new Device() {
+            @Override
+            public ResponseAPDU sendCommand(CommandAPDU commandAPDU) {
+                throw new AssertionError("Expected the buffer path");
+            }
+
+            @Override
+            public int sendCommand(ByteBuffer command, ByteBuffer response) {
+                command.position(command.limit());
+                response.put(answer);
+                return answer.length;
+            }
+        });
+
+        int reads = 100_000;
+        long sum = 0;
+        for (int i = 0; i < reads; i++) {
+            sum += cr.readUID();
+        }
+        long thread = Thread.currentThread().getId();
+        long before = threads.getThreadAllocatedBytes(thread);
+        for (int i = 0; i < reads; i++) {
+            sum += cr.readUID();
+        }
+        long allocated = threads.getThreadAllocatedBytes(thread) - before;
+
+        // Any allocation per read would cost at least 16 bytes; allow for the measurement itself.
+        assertEquals(0x04A1B2C3D4E5F6L * reads * 2, sum);
+        assertTrue("Allocated " + allocated + " bytes", allocated < reads);
+    }
+
+    private static byte[] filled(int length, int value) {
+        byte[] bytes = new byte[length];
+        Arrays.fill(bytes, (byte) value);
+        return bytes;
     }
 
     /**
@@ -48,13 +137,7 @@ public class CardReaderTest {
      * @return The {@link Device}
      */
     private Device deviceThatReturns(ResponseAPDU responseAPDU) {
-        try {
-            Device device = mock(Device.class);
-            when(device.sendCommand(any())).thenReturn(responseAPDU);
-            return device;
-        } catch (CardException e) {
-            throw new RuntimeException("Failed to create mock Device", e);
-        }
+        return commandAPDU -> responseAPDU;
     }
 
 }
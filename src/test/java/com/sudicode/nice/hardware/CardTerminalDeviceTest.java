@@ -0,0 +1,118 @@
+package com.sudicode.nice.hardware;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.smartcardio.Card;
+import javax.smartcardio.CardChannel;
+import javax.smartcardio.CardException;
+import javax.smartcardio.CardTerminal;
+import javax.smartcardio.CommandAPDU;
+import javax.smartcardio.ResponseAPDU;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.any;
+import static org.mockito.Mockito.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for {@link CardTerminalDevice}.
+ */
+public class CardTerminalDeviceTest {
+
+    private static final CommandAPDU COMMAND = new CommandAPDU(new byte[]{(byte) 0xFF, (byte) 0xCA, 0x00, 0x00, 0x00});
+    private static final ResponseAPDU RESPONSE = new ResponseAPDU(new byte[]{(byte) 0xBE, (byte) 0xEF, (byte) 0x90, 0x00});
+
+    private CardTerminal cardTerminal;
+    private Card card;
+    private CardChannel channel;
+    private CardTerminalDevice device;
+
+    @Before
+    public void setUp() throws Exception {
+        cardTerminal = mock(CardTerminal.class);
+        card = mock(Card.class);
+        channel = mock(CardChannel.class);
+        when(cardTerminal.connect(anyString())).thenReturn(card);
+        when(card.getBasicChannel()).thenReturn(channel);
+        when(channel.transmit(any())).thenReturn(RESPONSE);
+        device = new CardTerminalDevice(cardTerminal);
+    }
+
+    @Test
+    public void testSessionReuse() throws Exception {
+        assertEquals(RESPONSE, device.sendCommand(COMMAND));
+        assertEquals(RESPONSE, device.sendCommand(COMMAND));
+        verify(cardTerminal, times(1)).connect(anyString());
+        verify(channel, times(2)).transmit(any());
+        assertEquals(2, device.getSession().getCommandCount());
+    }
+
+    @Test
+    public void testDisconnect() throws Exception {
+        device.sendCommand(COMMAND);
+        device.disconnect();
+        verify(card).disconnect(false);
+        assertNull(device.getSession());
+        assertNotNull(device.getLastSession());
+        assertEquals(1, device.getLastSession().getCommandCount());
+
+        // The next command opens a new session
+        device.sendCommand(COMMAND);
+        verify(cardTerminal, times(2)).connect(anyString());
+    }
+
+    @Test
+    public void testSendCommands() throws Exception {
+        List<ResponseAPDU> responses = device.sendCommands(Arrays.asList(COMMAND, COMMAND, COMMAND));
+        assertEquals(Arrays.asList(RESPONSE, RESPONSE, RESPONSE), responses);
+        verify(cardTerminal, times(1)).connect(anyString());
+        assertEquals(3, device.getSession().getCommandCount());
+    }
+
+    @Test
+    public void testSendCommandsFailFast() throws Exception {
+        ResponseAPDU failure = new ResponseAPDU(new byte[]{(byte) 0x6A, (byte) 0x81});
+        when(channel.transmit(any())).thenReturn(RESPONSE, failure, RESPONSE);
+        try {
+            device.sendCommands(Arrays.asList(COMMAND, COMMAND, COMMAND));
+            fail("Expected CommandFailedException");
+        } catch (CommandFailedException expected) {
+            assertEquals(1, expected.getIndex());
+            assertEquals(0x6A81, expected.getSW());
+            assertEquals(Arrays.asList(RESPONSE, failure), expected.getResponses());
+        }
+        verify(channel, times(2)).transmit(any());
+    }
+
+    @Test
+    public void testSendCommandsCardRemoved() throws Exception {
+        when(channel.transmit(any())).thenReturn(RESPONSE).thenThrow(new CardException("Card removed"));
+        try {
+            device.sendCommands(Arrays.asList(COMMAND, COMMAND));
+            fail("Expected CardException");
+        } catch (CardException expected) {
+            assertEquals("Card removed", expected.getMessage());
+        }
+        // The script does not continue on a new session
+        verify(cardTerminal, times(1)).connect(anyString());
+    }
+
+    @Test
+    public void testStaleSession() throws Exception {
+        device.sendCommand(COMMAND);
+        when(channel.transmit(any())).thenThrow(new CardException("Card removed")).thenReturn(RESPONSE);
+        assertEquals(RESPONSE, device.sendCommand(COMMAND));
+        verify(card).disconnect(false);
+        verify(cardTerminal, times(2)).connect(anyString());
+    }
+
+}
@@ -0,0 +1,96 @@
+package com.sudicode.nice.hardware;
+
+import com.google.common.collect.ImmutableMap;
+import org.junit.Test;
+
+import javax.smartcardio.CardTerminal;
+import javax.smartcardio.CardTerminals;
+import javax.smartcardio.ResponseAPDU;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.mockito.Mockito.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for {@link ReaderManager}.
+ */
+public class ReaderManagerTest {
+
+    @Test
+    public void testMergeTaps() throws Exception {
+        List<CardTerminal> terminals = Arrays.asList(terminal("door-1"), terminal("door-2"), terminal("door-3"));
+        CardReader[] readers = {new CardReader(deviceThatReads(1)), new CardReader(deviceThatReads(2)),
+                new CardReader(deviceThatReads(3))};
+
+        // A card is placed on every terminal at every change
+        CardTerminals cardTerminals = mock(CardTerminals.class);
+        when(cardTerminals.waitForChange(anyLong())).thenAnswer(invocation -> {
+            CardMonitorTest.pause(5);
+            return true;
+        });
+        when(cardTerminals.list(CardTerminals.State.CARD_INSERTION)).thenReturn(terminals);
+        when(cardTerminals.list(CardTerminals.State.CARD_REMOVAL)).thenReturn(terminals);
+
+        ReaderManager manager = new ReaderManager(new CardMonitor(cardTerminals),
+                ImmutableMap.of("door-1", readers[0], "door-2", readers[1], "door-3", readers[2]));
+        assertEquals(3, manager.getReaderCount());
+        manager.start();
+        try {
+            Set<String> seen = new HashSet<>();
+            for (int i = 0; i < 30; i++) {
+                Tap tap = manager.poll(5, TimeUnit.SECONDS);
+                assertNotNull(tap);
+                assertEquals(tap.getTerminal(), "door-" + tap.getUid());
+                seen.add(tap.getTerminal());
+            }
+            assertEquals(3, seen.size());
+        } finally {
+            manager.close();
+        }
+    }
+
+    @Test
+    public void testCardRemoved() throws Exception {
+        Device device = mock(Device.class);
+        ReaderManager manager = new ReaderManager(new CardMonitor(mock(CardTerminals.class)),
+                ImmutableMap.of("door-1", new CardReader(device)));
+        manager.cardRemoved(terminal("door-1"));
+        manager.cardRemoved(terminal("unknown"));
+        verify(device).disconnect();
+    }
+
+    @Test
+    public void testNoReaders() throws Exception {
+        ReaderManager manager = new ReaderManager(new CardMonitor(mock(CardTerminals.class)), ImmutableMap.of());
+        manager.start();
+        assertNull(manager.poll(10, TimeUnit.MILLISECONDS));
+        manager.close();
+    }
+
+    private static CardTerminal terminal(String name) {
+        CardTerminal terminal = mock(CardTerminal.class);
+        when(terminal.getName()).thenReturn(name);
+        return terminal;
+    }
+
+    /**
+     * Generate a {@link Device} on which the same card is always present.
+     *
+     * @param uid The card's UID
+     * @return The {@link Device}
+     */
+    private static Device deviceThatReads(int uid) {
+        ResponseAPDU response = new ResponseAPDU(new byte[]{0x00, 0x00, 0x00, (byte) uid, (byte) 0x90, 0x00});
+        return commandAPDU -> response;
+    }
+
+}
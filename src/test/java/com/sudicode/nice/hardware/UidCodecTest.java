@@ -0,0 +1,55 @@
+package com.sudicode.nice.hardware;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Unit tests for {@link UidCodec}.
+ */
+public class UidCodecTest {
+
+    @Test
+    public void testDecode() throws Exception {
+        assertEquals(0, decode());
+        assertEquals(0xBEEF, decode(0xBE, 0xEF));
+        assertEquals(0xBAADF00DL, decode(0xBA, 0xAD, 0xF0, 0x0D));
+        assertEquals(0x04A1B2C3D4E5F6L, decode(0x04, 0xA1, 0xB2, 0xC3, 0xD4, 0xE5, 0xF6));
+        assertEquals(0xFFFFFFFFFFFFFFFFL, decode(0xFF, 0xFF, 0xFF, 0xFF, 0xFF, 0xFF, 0xFF, 0xFF));
+
+        // The first 2 bytes of a 10-byte UID are folded into the top 16 bits
+        assertEquals(0x0011223344556677L, decode(0x00, 0x00, 0x00, 0x11, 0x22, 0x33, 0x44, 0x55, 0x66, 0x77));
+        assertEquals(0x8811223344556677L, decode(0x88, 0x00, 0x00, 0x11, 0x22, 0x33, 0x44, 0x55, 0x66, 0x77));
+        assertEquals(0x0033223344556677L, decode(0x00, 0x22, 0x00, 0x11, 0x22, 0x33, 0x44, 0x55, 0x66, 0x77));
+    }
+
+    @Test
+    public void testDecodeAtOffset() throws Exception {
+        ByteBuffer buffer = ByteBuffer.wrap(new byte[]{0x7F, 0x01, 0x02, 0x03, 0x04, (byte) 0x90, 0x00});
+        assertEquals(0x01020304L, UidCodec.decode(buffer, 1, 4));
+        assertEquals(0, buffer.position());
+    }
+
+    @Test
+    public void testTruncatedId() throws Exception {
+        assertEquals(0x04A1B2C3L, UidCodec.truncatedId(decode(0x04, 0xA1, 0xB2, 0xC3, 0xD4, 0xE5, 0xF6)));
+        assertEquals(-1, UidCodec.truncatedId(decode(0xBA, 0xAD, 0xF0, 0x0D)));
+        assertEquals(-1, UidCodec.truncatedId(decode(0x88, 0x00, 0x00, 0x11, 0x22, 0x33, 0x44, 0x55, 0x66, 0x77)));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testTooLong() throws Exception {
+        UidCodec.decode(ByteBuffer.allocate(16), 0, 11);
+    }
+
+    private static long decode(int... bytes) {
+        ByteBuffer buffer = ByteBuffer.allocate(bytes.length);
+        for (int b : bytes) {
+            buffer.put((byte) b);
+        }
+        return UidCodec.decode(buffer, 0, bytes.length);
+    }
+
+}
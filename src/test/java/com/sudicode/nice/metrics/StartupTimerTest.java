@@ -0,0 +1,50 @@
+package com.sudicode.nice.metrics;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for {@link StartupTimer}.
+ */
+public class StartupTimerTest {
+
+    @Before
+    public void setUp() throws Exception {
+        StartupTimer.log();
+    }
+
+    @Test
+    public void testPhases() throws Exception {
+        long start = System.nanoTime() - TimeUnit.MILLISECONDS.toNanos(50);
+        long next = StartupTimer.recordSince("database", start);
+        StartupTimer.recordSince("courses", next);
+        StartupTimer.mark("window shown");
+
+        List<StartupTimer.Phase> phases = StartupTimer.getPhases();
+        assertEquals(3, phases.size());
+        assertEquals("database", phases.get(0).getName());
+        assertTrue(phases.get(0).getDurationMillis() >= 50);
+        assertTrue(phases.get(0).getFinishedMillis() >= phases.get(0).getDurationMillis());
+        assertEquals("courses", phases.get(1).getName());
+        assertTrue(phases.get(1).getDurationMillis() < 50);
+
+        // A milestone lasts from the JVM starting to now
+        StartupTimer.Phase shown = phases.get(2);
+        assertEquals(shown.getFinishedMillis(), shown.getDurationMillis());
+        assertTrue(shown.getFinishedMillis() >= phases.get(1).getFinishedMillis());
+    }
+
+    @Test
+    public void testLogClears() throws Exception {
+        StartupTimer.mark("window shown");
+        StartupTimer.log();
+        assertTrue(StartupTimer.getPhases().isEmpty());
+    }
+
+}
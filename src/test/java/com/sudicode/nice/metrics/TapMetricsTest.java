@@ -0,0 +1,72 @@
+package com.sudicode.nice.metrics;
+
+import com.sudicode.nice.metrics.TapMetrics.Stage;
+import org.junit.Test;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.openmbean.CompositeData;
+import javax.management.openmbean.TabularData;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Unit tests for {@link TapMetrics}.
+ */
+public class TapMetricsTest {
+
+    @Test
+    public void testRecord() throws Exception {
+        long before = TapMetrics.snapshot(Stage.LOOKUP).getCount();
+        assertNull(TapMetrics.snapshot(Stage.LOOKUP, "metrics-door"));
+
+        TapMetrics.record(Stage.LOOKUP, "metrics-door", TimeUnit.MILLISECONDS.toNanos(2));
+        TapMetrics.record(Stage.LOOKUP, null, TimeUnit.MILLISECONDS.toNanos(4));
+        assertEquals(before + 2, TapMetrics.snapshot(Stage.LOOKUP).getCount());
+        assertEquals(1, TapMetrics.snapshot(Stage.LOOKUP, "metrics-door").getCount());
+        assertEquals(0, TapMetrics.snapshot(Stage.READ, "metrics-door").getCount());
+        TapMetrics.logSummary();
+    }
+
+    @Test
+    public void testJmx() throws Exception {
+        TapMetrics.register();
+        TapMetrics.register();
+        TapMetrics.record(Stage.READ, "jmx-door", TimeUnit.MILLISECONDS.toNanos(3));
+
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = new ObjectName("com.sudicode.nice:type=TapMetrics");
+        TabularData stages = (TabularData) server.getAttribute(name, "Stages");
+        CompositeData read = (CompositeData) stages.get(new Object[]{"READ"}).get("value");
+        assertEquals(TapMetrics.snapshot(Stage.READ).getCount(), (long) read.get("count"));
+
+        TabularData terminals = (TabularData) server.getAttribute(name, "Terminals");
+        TabularData door = (TabularData) terminals.get(new Object[]{"jmx-door"}).get("value");
+        CompositeData doorRead = (CompositeData) door.get(new Object[]{"READ"}).get("value");
+        assertEquals(1L, doorRead.get("count"));
+        assertEquals(3_000, (long) doorRead.get("p50Micros"), 3_000 / 64);
+    }
+
+    @Test
+    public void testGaugesAndCounters() throws Exception {
+        AtomicLong total = new AtomicLong(5);
+        TapMetrics.registerGauge("test.depth", () -> 3);
+        TapMetrics.registerCounter("test.total", total::get);
+        try {
+            assertEquals(3L, (long) TapMetrics.readGauges().get("test.depth"));
+            total.addAndGet(2);
+            assertEquals(7L, (long) TapMetrics.readCounters().get("test.total"));
+            TapMetrics.logSummary();
+        } finally {
+            TapMetrics.unregisterGauge("test.depth");
+            TapMetrics.unregisterCounter("test.total");
+        }
+        assertNull(TapMetrics.readGauges().get("test.depth"));
+        assertNull(TapMetrics.readCounters().get("test.total"));
+    }
+
+}
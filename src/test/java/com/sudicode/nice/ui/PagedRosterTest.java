@@ -0,0 +1,188 @@
+package com.sudicode.nice.ui;
+
+import javafx.collections.ListChangeListener;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for {@link PagedRoster}.
+ */
+public class PagedRosterTest {
+
+    private static final int STUDENTS = 100;
+    private static final int PAGE_SIZE = 10;
+    private static final int MAX_PAGES = 4;
+
+    private Queue<Runnable> backgroundTasks;
+    private Queue<Runnable> uiTasks;
+    private List<Long> loads;
+    private int changes;
+    private PagedRoster roster;
+
+    @Before
+    public void setUp() throws Exception {
+        backgroundTasks = new ArrayDeque<>();
+        uiTasks = new ArrayDeque<>();
+        loads = new ArrayList<>();
+        long[] ids = new long[STUDENTS];
+        for (int i = 0; i < STUDENTS; i++) {
+            ids[i] = 2 * i;
+        }
+        roster = new PagedRoster(ids, PAGE_SIZE, MAX_PAGES, (from, limit) -> {
+            loads.add(from);
+            List<StudentRow> rows = new ArrayList<>();
+            for (long id = from; rows.size() < limit && id < 2 * STUDENTS; id += 2) {
+                StudentRow row = new StudentRow(id);
+                row.statusProperty().set("absent");
+                rows.add(row);
+            }
+            return rows;
+        }, backgroundTasks::add, uiTasks::add);
+        roster.addListener((ListChangeListener<StudentRow>) change -> changes++);
+    }
+
+    @Test
+    public void testPlaceholderThenLoad() throws Exception {
+        assertEquals(STUDENTS, roster.size());
+        StudentRow placeholder = roster.get(15);
+        assertEquals(30, placeholder.getStudentId());
+        assertNull(placeholder.statusProperty().get());
+
+        runTasks();
+        StudentRow row = roster.get(15);
+        assertEquals(30, row.getStudentId());
+        assertEquals("absent", row.statusProperty().get());
+        assertTrue(changes > 0);
+
+        // Keyset: the page and the one after it were each loaded from their first ID
+        assertTrue(loads.contains(20L));
+        assertTrue(loads.contains(40L));
+    }
+
+    @Test
+    public void testPrefetchDirection() throws Exception {
+        roster.get(55);
+        runTasks();
+        roster.get(45);
+        runTasks();
+        assertTrue(loads.contains(60L));
+        assertTrue(loads.contains(80L));
+        assertTrue(loads.contains(100L));
+        assertTrue(loads.contains(120L));
+    }
+
+    @Test
+    public void testBoundedWindow() throws Exception {
+        for (int i = 0; i < STUDENTS; i++) {
+            roster.get(i);
+            runTasks();
+        }
+        assertEquals(MAX_PAGES, roster.getPageCount());
+        assertNull(roster.find(0));
+        assertNotNull(roster.find(2 * (STUDENTS - 1)));
+    }
+
+    @Test
+    public void testBoundedLoads() throws Exception {
+        roster.get(0);
+        roster.get(30);
+        roster.get(60);
+        assertEquals(PagedRoster.MAX_LOADS, backgroundTasks.size());
+        assertEquals(PagedRoster.MAX_LOADS, roster.getLoadingCount());
+        runTasks();
+        assertEquals(0, roster.getLoadingCount());
+        assertEquals("absent", roster.get(60).statusProperty().get());
+    }
+
+    @Test
+    public void testStatusWhileLoading() throws Exception {
+        roster.get(0);
+        roster.find(0).statusProperty().set("present");
+        runTasks();
+        assertEquals("present", roster.get(0).statusProperty().get());
+        assertEquals("absent", roster.get(1).statusProperty().get());
+    }
+
+    @Test
+    public void testAddAndRemove() throws Exception {
+        roster.get(0);
+        runTasks();
+        StudentRow first = roster.get(0);
+
+        roster.addStudent(3);
+        assertEquals(STUDENTS + 1, roster.size());
+        assertEquals(3, roster.get(2).getStudentId());
+        assertEquals(4, roster.get(3).getStudentId());
+
+        roster.removeStudent(3);
+        roster.removeStudent(0);
+        assertEquals(STUDENTS - 1, roster.size());
+        assertEquals(2, roster.get(0).getStudentId());
+        assertTrue(first != roster.get(0));
+    }
+
+    @Test
+    public void testDispose() throws Exception {
+        StudentRow placeholder = roster.get(0);
+        roster.dispose();
+        runTasks();
+        assertEquals(0, roster.getPageCount());
+        assertNull(placeholder.statusProperty().get());
+    }
+
+    @Test
+    public void testFailedLoadIsRetried() throws Exception {
+        roster = new PagedRoster(new long[]{1, 2, 3}, PAGE_SIZE, MAX_PAGES, (from, limit) -> {
+            throw new IllegalStateException("Database unavailable");
+        }, backgroundTasks::add, uiTasks::add);
+        roster.get(0);
+        runTasks();
+        assertEquals(0, roster.getPageCount());
+        assertSame(roster.get(0), roster.find(1));
+    }
+
+    @Test
+    public void testInterruptedLoadIsRetried() throws Exception {
+        roster = new PagedRoster(new long[]{1, 2, 3}, PAGE_SIZE, MAX_PAGES, (from, limit) -> {
+            throw new InterruptedException();
+        }, backgroundTasks::add, uiTasks::add);
+        StudentRow placeholder = roster.get(0);
+        runTasks();
+        assertEquals(0, roster.getPageCount());
+        assertTrue(placeholder != roster.get(0));
+        assertEquals(1, backgroundTasks.size());
+    }
+
+    @Test
+    public void testEmptyLoadIsRetried() throws Exception {
+        roster = new PagedRoster(new long[]{1, 2, 3}, PAGE_SIZE, MAX_PAGES, (from, limit) -> new ArrayList<>(),
+                backgroundTasks::add, uiTasks::add);
+        StudentRow placeholder = roster.get(0);
+        runTasks();
+        assertEquals(0, roster.getPageCount());
+        assertTrue(placeholder != roster.get(0));
+        assertEquals(1, backgroundTasks.size());
+    }
+
+    private void runTasks() {
+        while (!backgroundTasks.isEmpty() || !uiTasks.isEmpty()) {
+            if (!backgroundTasks.isEmpty()) {
+                backgroundTasks.poll().run();
+            } else {
+                uiTasks.poll().run();
+            }
+        }
+    }
+
+}
@@ -0,0 +1,86 @@
+package com.sudicode.nice.ui;
+
+import com.google.common.collect.ImmutableMap;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Queue;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for {@link StatusCoalescer}.
+ */
+public class StatusCoalescerTest {
+
+    private Queue<Runnable> uiTasks;
+    private Map<Long, String> shown;
+    private int shownCrn;
+    private int batches;
+    private StatusCoalescer coalescer;
+
+    @Before
+    public void setUp() throws Exception {
+        uiTasks = new ArrayDeque<>();
+        shown = new HashMap<>();
+        coalescer = new StatusCoalescer(uiTasks::add, (crn, statuses) -> {
+            batches++;
+            shownCrn = crn;
+            int changed = 0;
+            for (Map.Entry<Long, String> entry : statuses.entrySet()) {
+                if (!entry.getValue().equals(shown.put(entry.getKey(), entry.getValue()))) {
+                    changed++;
+                }
+            }
+            return changed;
+        });
+    }
+
+    @Test
+    public void testCoalesce() throws Exception {
+        coalescer.post(1, 10L, "absent");
+        coalescer.post(1, 11L, "absent");
+        coalescer.post(1, 10L, "present");
+        assertEquals(1, uiTasks.size());
+        runUiTasks();
+        assertEquals(1, batches);
+        assertEquals(ImmutableMap.of(10L, "present", 11L, "absent"), shown);
+        assertEquals(1, coalescer.getPostCount());
+        assertEquals(2, coalescer.getRowUpdateCount());
+
+        // After a flush, the next update schedules another one, and unchanged rows are not counted
+        coalescer.post(1, ImmutableMap.of(10L, "present", 11L, "late"));
+        assertEquals(1, uiTasks.size());
+        runUiTasks();
+        assertEquals(2, batches);
+        assertEquals(2, coalescer.getPostCount());
+        assertEquals(3, coalescer.getRowUpdateCount());
+    }
+
+    @Test
+    public void testCourseChange() throws Exception {
+        coalescer.post(1, 10L, "absent");
+        coalescer.post(2, 20L, "present");
+        runUiTasks();
+        assertEquals(2, shownCrn);
+        assertEquals(ImmutableMap.of(20L, "present"), shown);
+
+        coalescer.post(2, 21L, "present");
+        coalescer.clear();
+        runUiTasks();
+        assertEquals(1, batches);
+        assertTrue(uiTasks.isEmpty());
+    }
+
+    private void runUiTasks() {
+        Runnable task;
+        while ((task = uiTasks.poll()) != null) {
+            task.run();
+        }
+    }
+
+}
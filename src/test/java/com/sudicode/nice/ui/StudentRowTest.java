@@ -0,0 +1,85 @@
+package com.sudicode.nice.ui;
+
+import com.sudicode.nice.TestUtil;
+import com.sudicode.nice.database.Course;
+import com.sudicode.nice.database.Student;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for {@link StudentRow}.
+ */
+public class StudentRowTest {
+
+    @BeforeClass
+    public static void setUpBeforeClass() throws Exception {
+        TestUtil.openDbConnection();
+    }
+
+    @AfterClass
+    public static void tearDownAfterClass() throws Exception {
+        TestUtil.closeDbConnection();
+    }
+
+    @Test
+    public void testLoadPage() throws Exception {
+        Course course = new Course();
+        course.setCrn(7001);
+        course.insert();
+        for (long id = 7002; id <= 7006; id++) {
+            Student student = new Student();
+            student.setStudentId(id);
+            student.setFirstName("Ada");
+            student.setLastName("Lovelace");
+            student.insert();
+            student.enroll(course);
+        }
+
+        List<StudentRow> rows = StudentRow.loadPage(course, LocalDate.now(), 7003, 2);
+        assertEquals(2, rows.size());
+        StudentRow row = rows.get(0);
+        assertEquals(7003, row.getStudentId());
+        assertEquals(7003, row.studentIdProperty().get());
+        assertEquals("Ada", row.firstNameProperty().get());
+        assertEquals("Lovelace", row.lastNameProperty().get());
+        assertEquals("no class", row.statusProperty().get());
+        assertSame(row, row.statusProperty().getBean());
+        assertEquals(7004, rows.get(1).getStudentId());
+
+        assertArrayEquals(new long[]{7002, 7003, 7004, 7005, 7006}, Student.findIdsByCrn(7001));
+        assertTrue(StudentRow.loadPage(course, LocalDate.now(), 7007, 2).isEmpty());
+    }
+
+    @Test
+    public void testPlaceholder() {
+        StudentRow row = new StudentRow(7010);
+        assertEquals(7010, row.getStudentId());
+        assertNull(row.getStudent());
+        assertNull(row.lastNameProperty().get());
+        assertNull(row.statusProperty().get());
+    }
+
+    @Test(expected = InterruptedException.class)
+    public void testLoadPageInterrupted() throws Exception {
+        Course course = new Course();
+        course.setCrn(7011);
+        course.insert();
+        Thread.currentThread().interrupt();
+        try {
+            StudentRow.loadPage(course, LocalDate.now(), 0, 10);
+        } finally {
+            Thread.interrupted();
+        }
+    }
+
+}